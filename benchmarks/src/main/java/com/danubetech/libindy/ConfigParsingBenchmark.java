@@ -0,0 +1,62 @@
+package com.danubetech.libindy;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of the connector configuration strings into (unopened) Indy connections.
+ * This is in the same package as the connector, so it can call the parsing step without opening anything.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConfigParsingBenchmark {
+
+    @Param({"1", "10", "100"})
+    public int networks;
+
+    private IndyConnector indyConnector;
+
+    @Setup
+    public void setup() {
+
+        StringBuilder poolConfigs = new StringBuilder();
+        StringBuilder poolVersions = new StringBuilder();
+        StringBuilder walletNames = new StringBuilder();
+        StringBuilder submitterDidSeeds = new StringBuilder();
+        StringBuilder genesisTimestamps = new StringBuilder();
+
+        for (int i=0; i<this.networks; i++) {
+            String network = i == 0 ? "_" : ("network" + i + ":test");
+            String separator = i == 0 ? "" : ";";
+            poolConfigs.append(separator).append(network).append(";./sovrin/").append(i).append(".txn");
+            poolVersions.append(separator).append(network).append(";2iNA");
+            walletNames.append(separator).append(network).append(";wallet_").append(i);
+            submitterDidSeeds.append(separator).append(network).append(";").append(String.format("%032d", i));
+            genesisTimestamps.append(separator).append(network).append(";").append(1500000000L + i);
+        }
+
+        this.indyConnector = new IndyConnector();
+        this.indyConnector.setPoolConfigs(poolConfigs.toString());
+        this.indyConnector.setPoolVersions(poolVersions.toString());
+        this.indyConnector.setWalletNames(walletNames.toString());
+        this.indyConnector.setSubmitterDidSeeds(submitterDidSeeds.toString());
+        this.indyConnector.setGenesisTimestamps(genesisTimestamps.toString());
+    }
+
+    @Benchmark
+    public Map<String, IndyConnection> createIndyConnections() {
+
+        List<IndyConnectionException> exceptions = new ArrayList<>();
+        Map<String, IndyConnection> indyConnections = this.indyConnector.createIndyConnections(exceptions);
+        if (! exceptions.isEmpty()) throw new IllegalStateException("Invalid benchmark configuration: " + exceptions);
+        return indyConnections;
+    }
+}
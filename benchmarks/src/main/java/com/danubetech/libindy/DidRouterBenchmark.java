@@ -0,0 +1,65 @@
+package com.danubetech.libindy;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Routing of DIDs to Indy connections, with the {@link IndyDidRouter} and by taking the network apart from the DID first.
+ * Run with "-prof gc" to compare the allocations of both.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(16)
+@State(Scope.Benchmark)
+public class DidRouterBenchmark {
+
+    @Param({"4", "256"})
+    public int networks;
+
+    private IndyConnector indyConnector;
+    private String[] dids;
+
+    @Setup
+    public void setup() {
+
+        Map<String, IndyConnection> indyConnections = new LinkedHashMap<>();
+        this.dids = new String[this.networks];
+        for (int i=0; i<this.networks; i++) {
+            String network = i == 0 ? "_" : (i % 2 == 0 ? "network" + i : "network" + i + ":test");
+            indyConnections.put(network, new IndyConnection(network, network, "./sovrin/" + i + ".txn", 2, true, true, false, true, false, "wallet_" + i, String.format("%032d", i), null));
+            this.dids[i] = (i % 3 == 0 ? "did:indy:" : "did:sov:") + IndyConnection.getDidNetworkPrefix(network) + "WRfXPg8dantKVubE3HX8pw";
+        }
+
+        this.indyConnector = new IndyConnector();
+        this.indyConnector.setIndyConnections(indyConnections);
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+
+        private int next = ThreadLocalRandom.current().nextInt(1 << 16);
+    }
+
+    @Benchmark
+    public IndyConnection router(ThreadState threadState) throws IndyConnectionException {
+
+        String did = this.dids[threadState.next++ % this.dids.length];
+        return this.indyConnector.getIndyConnectionForDid(did, false, false, false);
+    }
+
+    @Benchmark
+    public IndyConnection split(ThreadState threadState) throws IndyConnectionException {
+
+        String did = this.dids[threadState.next++ % this.dids.length];
+        String methodSpecificId = did.substring(did.indexOf(':', 4) + 1);
+        String didNetworkPrefix = methodSpecificId.substring(0, methodSpecificId.lastIndexOf(':') + 1);
+        return this.indyConnector.getIndyConnection(IndyConnection.getNetwork(didNetworkPrefix), false, false, false);
+    }
+}
@@ -0,0 +1,62 @@
+package com.danubetech.libindy;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookups of Indy connections by many threads across many networks.
+ * The connections are not opened and auto re-open is off, so this measures the lookup path only,
+ * with and without the idle timeout (which records the time of last use on every lookup).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(16)
+@State(Scope.Benchmark)
+public class GetIndyConnectionBenchmark {
+
+    @Param({"1", "16", "256"})
+    public int networks;
+
+    @Param({"false", "true"})
+    public boolean idleTimeout;
+
+    private IndyConnector indyConnector;
+    private String[] networkNames;
+
+    @Setup
+    public void setup() {
+
+        Map<String, IndyConnection> indyConnections = new LinkedHashMap<>();
+        this.networkNames = new String[this.networks];
+        for (int i=0; i<this.networks; i++) {
+            String network = "network" + i;
+            indyConnections.put(network, new IndyConnection(network, network, "./sovrin/" + i + ".txn", 2, true, true, false, true, false, "wallet_" + i, String.format("%032d", i), null));
+            this.networkNames[i] = network;
+        }
+
+        this.indyConnector = new IndyConnector();
+        this.indyConnector.setIndyConnections(indyConnections);
+        if (this.idleTimeout) this.indyConnector.setIdleTimeout(Duration.ofHours(1));
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+
+        private int next = ThreadLocalRandom.current().nextInt(1 << 16);
+    }
+
+    @Benchmark
+    public IndyConnection getIndyConnection(ThreadState threadState) throws IndyConnectionException {
+
+        String network = this.networkNames[threadState.next++ % this.networkNames.length];
+        return this.indyConnector.getIndyConnection(network, false, false, false);
+    }
+}
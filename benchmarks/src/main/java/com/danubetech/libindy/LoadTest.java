@@ -0,0 +1,313 @@
+package com.danubetech.libindy;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A load and soak test of the Indy connector: many threads send a mix of reads (GET_NYM) and writes (ATTRIB on the submitter DID)
+ * across many networks, while reopen storms close the connections of several networks at once, so that the threads re-open them.
+ * Every report interval, this prints per-network latency percentiles and throughput, the pool and wallet handles that are owned
+ * and leaked, and how much heap and resident memory have grown since the start.
+ *
+ * By default, this uses the {@link InMemoryIndyTransport}. To run against a local ledger instead, e.g. an indy-pool Docker container,
+ * set "indy.loadtest.genesis" to the path of its genesis file (this needs libindy). All networks then use that ledger. Run with e.g.
+ * java -Dindy.loadtest.duration=3600 -Dindy.loadtest.reopenInterval=30 -cp target/benchmarks.jar com.danubetech.libindy.LoadTest
+ *
+ * System properties (with defaults): indy.loadtest.networks (10), .threads (32), .duration (60 seconds), .reportInterval (10 seconds),
+ * .writeRatio (0.1), .reopenInterval (0 seconds, i.e. no reopen storms), .reopenNetworks (half of the networks), .readDids (1000),
+ * .latencyMillis (5) and .failureRate (0) for the in-memory transport, .genesis and .submitterDidSeed for a local ledger.
+ */
+public class LoadTest {
+
+    public static final String PROPERTY_PREFIX = "indy.loadtest.";
+
+    private static final String TRUSTEE_SEED = "000000000000000000000000Trustee1";
+    private static final String BASE58_ALPHABET = "123456789ABCDEFGHJKLMNPQRSTUVWXYZabcdefghijkmnopqrstuvwxyz";
+
+    private final int networks = Integer.getInteger(PROPERTY_PREFIX + "networks", 10);
+    private final int threads = Integer.getInteger(PROPERTY_PREFIX + "threads", 32);
+    private final Duration duration = Duration.ofSeconds(Long.getLong(PROPERTY_PREFIX + "duration", 60));
+    private final Duration reportInterval = Duration.ofSeconds(Long.getLong(PROPERTY_PREFIX + "reportInterval", 10));
+    private final double writeRatio = Double.parseDouble(System.getProperty(PROPERTY_PREFIX + "writeRatio", "0.1"));
+    private final Duration reopenInterval = Duration.ofSeconds(Long.getLong(PROPERTY_PREFIX + "reopenInterval", 0));
+    private final int reopenNetworks = Integer.getInteger(PROPERTY_PREFIX + "reopenNetworks", Math.max(1, this.networks / 2));
+    private final int readDids = Integer.getInteger(PROPERTY_PREFIX + "readDids", 1000);
+    private final int latencyMillis = Integer.getInteger(PROPERTY_PREFIX + "latencyMillis", 5);
+    private final double failureRate = Double.parseDouble(System.getProperty(PROPERTY_PREFIX + "failureRate", "0"));
+    private final String genesis = System.getProperty(PROPERTY_PREFIX + "genesis");
+    private final String submitterDidSeed = System.getProperty(PROPERTY_PREFIX + "submitterDidSeed", TRUSTEE_SEED);
+
+    private final String[] networkNames = new String[this.networks];
+    private final String[] dids = new String[this.readDids];
+    private final Map<String, NetworkStats> networkStats = new LinkedHashMap<>();
+    private final Map<String, LongAdder> errorCounts = new ConcurrentHashMap<>();
+    private final LongAdder reopenStormCount = new LongAdder();
+    private final AtomicBoolean stopped = new AtomicBoolean();
+
+    private IndyConnector indyConnector;
+    private long startNanos;
+    private long startHeapBytes;
+    private long startResidentBytes;
+
+    public static void main(String[] args) throws Exception {
+
+        new LoadTest().run();
+    }
+
+    public void run() throws Exception {
+
+        this.setup();
+        this.indyConnector.openIndyConnections(true, false, false);
+
+        MemoryMXBean memoryMXBean = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        this.startHeapBytes = memoryMXBean.getHeapMemoryUsage().getUsed();
+        this.startResidentBytes = residentBytes();
+        this.startNanos = System.nanoTime();
+        System.out.printf("Load test: %d networks, %d threads, %s, write ratio %.2f, reopen storms every %s, %s%n", this.networks, this.threads, this.duration, this.writeRatio, this.reopenInterval.isZero() ? "never" : this.reopenInterval, this.genesis == null ? "in-memory transport" : ("ledger " + this.genesis));
+
+        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1, IndyExecutors.newDaemonThreadFactory("indy-loadtest-"));
+        scheduler.scheduleAtFixedRate(() -> this.report(false), this.reportInterval.toMillis(), this.reportInterval.toMillis(), TimeUnit.MILLISECONDS);
+        if (! this.reopenInterval.isZero()) scheduler.scheduleAtFixedRate(this::reopenStorm, this.reopenInterval.toMillis(), this.reopenInterval.toMillis(), TimeUnit.MILLISECONDS);
+
+        ExecutorService workers = Executors.newFixedThreadPool(this.threads, IndyExecutors.newDaemonThreadFactory("indy-loadtest-worker-"));
+        for (int i=0; i<this.threads; i++) workers.execute(this::work);
+
+        Thread.sleep(this.duration.toMillis());
+        this.stopped.set(true);
+        workers.shutdown();
+        workers.awaitTermination(1, TimeUnit.MINUTES);
+        scheduler.shutdownNow();
+
+        this.report(true);
+        this.indyConnector.closeIndyConnections();
+        System.gc();
+        System.out.printf("After close: %s%n", this.handles());
+    }
+
+    private void setup() {
+
+        this.indyConnector = new IndyConnector();
+
+        StringBuilder poolConfigs = new StringBuilder();
+        StringBuilder poolVersions = new StringBuilder();
+        StringBuilder walletNames = new StringBuilder();
+        StringBuilder submitterDidSeeds = new StringBuilder();
+        for (int i=0; i<this.networks; i++) {
+            String network = "network" + i;
+            String separator = i == 0 ? "" : ";";
+            poolConfigs.append(separator).append(network).append(";").append(this.genesis != null ? this.genesis : ("./sovrin/" + i + ".txn"));
+            poolVersions.append(separator).append(network).append(";2");
+            walletNames.append(separator).append(network).append(";loadtest_wallet_").append(i);
+            submitterDidSeeds.append(separator).append(network).append(";").append(this.submitterDidSeed);
+            this.networkNames[i] = network;
+            this.networkStats.put(network, new NetworkStats());
+        }
+        for (int i=0; i<this.readDids; i++) this.dids[i] = randomDid();
+
+        if (this.genesis != null) {
+            if (! new File(this.genesis).exists()) throw new IllegalStateException("Genesis file not found: " + this.genesis);
+        } else {
+            InMemoryIndyTransport transport = new InMemoryIndyTransport(Duration.ofMillis(this.latencyMillis), Duration.ofMillis(this.latencyMillis / 5), this.failureRate);
+            for (String did : this.dids) transport.addNym(did, randomDid());
+            this.indyConnector.setTransport(transport);
+        }
+
+        this.indyConnector.setPoolConfigs(poolConfigs.toString());
+        this.indyConnector.setPoolVersions(poolVersions.toString());
+        this.indyConnector.setWalletNames(walletNames.toString());
+        this.indyConnector.setSubmitterDidSeeds(submitterDidSeeds.toString());
+    }
+
+    /*
+     * Load
+     */
+
+    private void work() {
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (! this.stopped.get()) {
+            String network = this.networkNames[random.nextInt(this.networkNames.length)];
+            NetworkStats networkStats = this.networkStats.get(network);
+            boolean write = random.nextDouble() < this.writeRatio;
+
+            LatencyStats latencyStats = write ? networkStats.writes : networkStats.reads;
+            long startNanos = System.nanoTime();
+            try {
+                IndyConnection indyConnection = this.indyConnector.getIndyConnection(network, true, true, false);
+                if (write) {
+                    JSONObject operation = new JSONObject().put("type", "100").put("dest", indyConnection.getSubmitterDid()).put("raw", new JSONObject().put("loadtest", Long.toString(startNanos)).toString());
+                    JSONObject request = new JSONObject().put("reqId", random.nextLong(Long.MAX_VALUE)).put("identifier", indyConnection.getSubmitterDid()).put("operation", operation).put("protocolVersion", 2);
+                    indyConnection.signAndSubmitRequestAsync(request.toString()).get();
+                } else {
+                    indyConnection.getNymAsync(this.dids[random.nextInt(this.dids.length)]).get();
+                }
+                latencyStats.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos));
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception ex) {
+                latencyStats.errors.increment();
+                Throwable cause = IndyFutures.unwrap(ex);
+                this.errorCounts.computeIfAbsent(cause.getClass().getSimpleName() + ": " + cause.getMessage(), x -> new LongAdder()).increment();
+            }
+        }
+    }
+
+    /**
+     * Closes the connections of several networks at the same time, while the threads keep sending requests to them,
+     * so that they are re-opened under load.
+     */
+    private void reopenStorm() {
+
+        List<String> networks = new ArrayList<>(List.of(this.networkNames));
+        Collections.shuffle(networks);
+        for (String network : networks.subList(0, Math.min(this.reopenNetworks, networks.size()))) {
+            try {
+                IndyConnection indyConnection = this.indyConnector.getIndyConnection(network, false, false, false);
+                if (indyConnection != null) indyConnection.closeAsync();
+            } catch (IndyConnectionException ex) {
+                System.out.printf("Cannot close network %s: %s%n", network, ex.getMessage());
+            }
+        }
+        this.reopenStormCount.increment();
+    }
+
+    /*
+     * Reports
+     */
+
+    private void report(boolean total) {
+
+        double seconds = (System.nanoTime() - this.startNanos) / 1e9;
+        System.out.printf("%n%s after %.0f s (%d reopen storms)%n", total ? "Total" : "Interval", seconds, this.reopenStormCount.sum());
+        System.out.printf("%-12s %6s %10s %9s %9s %9s %9s %9s %8s%n", "network", "op", "count", "ops/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "errors");
+
+        for (Map.Entry<String, NetworkStats> entry : this.networkStats.entrySet()) {
+            printHistogram(entry.getKey(), "read", entry.getValue().reads, total, total ? seconds : this.reportInterval.toSeconds());
+            printHistogram(entry.getKey(), "write", entry.getValue().writes, total, total ? seconds : this.reportInterval.toSeconds());
+        }
+        if (total) this.errorCounts.forEach((error, count) -> System.out.printf("Error (%d times): %s%n", count.sum(), error));
+
+        MemoryMXBean memoryMXBean = ManagementFactory.getMemoryMXBean();
+        long heapBytes = memoryMXBean.getHeapMemoryUsage().getUsed();
+        long residentBytes = residentBytes();
+        System.out.printf("Handles: %s%n", this.handles());
+        System.out.printf("Memory: heap %d MB (%+d MB), non-heap %d MB, resident %s%n", heapBytes >> 20, (heapBytes - this.startHeapBytes) >> 20, memoryMXBean.getNonHeapMemoryUsage().getUsed() >> 20, residentBytes < 0 ? "unknown" : String.format("%d MB (%+d MB)", residentBytes >> 20, (residentBytes - this.startResidentBytes) >> 20));
+    }
+
+    private static void printHistogram(String network, String op, LatencyStats latencyStats, boolean total, double seconds) {
+
+        Histogram histogram = latencyStats.interval(total);
+        long errors = latencyStats.errors(total);
+        if (histogram.getTotalCount() == 0 && errors == 0) return;
+        System.out.printf("%-12s %6s %10d %9.1f %9.2f %9.2f %9.2f %9.2f %8s%n", network, op, histogram.getTotalCount(), histogram.getTotalCount() / seconds,
+                histogram.getValueAtPercentile(50) / 1000.0, histogram.getValueAtPercentile(90) / 1000.0, histogram.getValueAtPercentile(99) / 1000.0, histogram.getValueAtPercentile(99.9) / 1000.0, Long.toString(errors));
+    }
+
+    private String handles() {
+
+        int poolHandles = 0, walletHandles = 0;
+        Map<String, IndyConnection> indyConnections = this.indyConnector.getIndyConnections();
+        if (indyConnections != null) for (IndyConnection indyConnection : indyConnections.values()) {
+            poolHandles += indyConnection.getNativeHandles().getPoolHandleCount();
+            walletHandles += indyConnection.getNativeHandles().getWalletHandleCount();
+        }
+        return poolHandles + " pool handles, " + walletHandles + " wallet handles, " + IndyNativeHandles.getLeakedHandleCount() + " leaked";
+    }
+
+    /**
+     * The resident set size of this process, which includes native memory such as that of libindy, or -1 if it is not known (e.g. not on Linux).
+     */
+    private static long residentBytes() {
+
+        try {
+            for (String line : Files.readAllLines(Path.of("/proc/self/status"))) {
+                if (line.startsWith("VmRSS:")) return Long.parseLong(line.substring(6).trim().split("\\s+")[0]) * 1024;
+            }
+        } catch (IOException | RuntimeException ex) {
+            return -1;
+        }
+        return -1;
+    }
+
+    /**
+     * A random DID, i.e. 16 random bytes in base58, which is what libindy expects when building requests.
+     */
+    private static String randomDid() {
+
+        byte[] bytes = new byte[16];
+        ThreadLocalRandom.current().nextBytes(bytes);
+        StringBuilder did = new StringBuilder();
+        BigInteger value = new BigInteger(1, bytes);
+        BigInteger base = BigInteger.valueOf(BASE58_ALPHABET.length());
+        while (value.signum() > 0) {
+            BigInteger[] quotientAndRemainder = value.divideAndRemainder(base);
+            did.append(BASE58_ALPHABET.charAt(quotientAndRemainder[1].intValue()));
+            value = quotientAndRemainder[0];
+        }
+        for (int i=0; i<bytes.length && bytes[i] == 0; i++) did.append(BASE58_ALPHABET.charAt(0));
+        return did.reverse().toString();
+    }
+
+    /*
+     * Helper classes
+     */
+
+    private static class NetworkStats {
+
+        private final LatencyStats reads = new LatencyStats();
+        private final LatencyStats writes = new LatencyStats();
+    }
+
+    /**
+     * Latencies in microseconds, recorded without blocking the threads, with a histogram for the last interval and one for the whole run.
+     */
+    private static class LatencyStats {
+
+        private final Recorder recorder = new Recorder(3);
+        private final Histogram totalHistogram = new Histogram(3);
+        private Histogram intervalHistogram;
+        private final LongAdder errors = new LongAdder();
+        private long totalErrors;
+
+        private void recordValue(long micros) {
+            this.recorder.recordValue(micros);
+        }
+
+        private synchronized Histogram interval(boolean total) {
+            this.intervalHistogram = this.recorder.getIntervalHistogram(this.intervalHistogram);
+            this.totalHistogram.add(this.intervalHistogram);
+            return total ? this.totalHistogram : this.intervalHistogram;
+        }
+
+        private synchronized long errors(boolean total) {
+            long intervalErrors = this.errors.sumThenReset();
+            this.totalErrors += intervalErrors;
+            return total ? this.totalErrors : intervalErrors;
+        }
+    }
+}
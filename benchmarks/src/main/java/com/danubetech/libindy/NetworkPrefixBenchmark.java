@@ -0,0 +1,40 @@
+package com.danubetech.libindy;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversions between networks and DID network prefixes, which are done for every DID that is resolved.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class NetworkPrefixBenchmark {
+
+    @Param({"", "sovrin:", "sovrin:staging:"})
+    public String didNetworkPrefix;
+
+    private String network;
+
+    @Setup
+    public void setup() {
+
+        this.network = IndyConnection.getNetwork(this.didNetworkPrefix);
+    }
+
+    @Benchmark
+    public String getNetwork() {
+
+        return IndyConnection.getNetwork(this.didNetworkPrefix);
+    }
+
+    @Benchmark
+    public String getDidNetworkPrefix() {
+
+        return IndyConnection.getDidNetworkPrefix(this.network);
+    }
+}
@@ -0,0 +1,85 @@
+package com.danubetech.libindy;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full open/close cycles of the Indy connector. By default, this uses the {@link InMemoryIndyTransport} with 10 networks.
+ * To run against a local ledger instead, e.g. an indy-pool Docker container, set the system property "indy.benchmark.genesis"
+ * to the path of its genesis file (this needs libindy), e.g.
+ * java -Dindy.benchmark.genesis=./pool_transactions_genesis -jar target/benchmarks.jar OpenCloseBenchmark
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OpenCloseBenchmark {
+
+    public static final String PROPERTY_GENESIS = "indy.benchmark.genesis";
+
+    private static final int IN_MEMORY_NETWORKS = 10;
+
+    @Param({"false", "true"})
+    public boolean retrieveTaa;
+
+    @Param({"5"})
+    public int latencyMillis;
+
+    private IndyConnector indyConnector;
+
+    @Setup
+    public void setup() {
+
+        String genesis = System.getProperty(PROPERTY_GENESIS);
+        this.indyConnector = new IndyConnector();
+
+        if (genesis != null) {
+            if (! new File(genesis).exists()) throw new IllegalStateException("Genesis file not found: " + genesis);
+            this.indyConnector.setPoolConfigs("_;" + genesis);
+            this.indyConnector.setPoolVersions("_;2");
+            this.indyConnector.setWalletNames("_;benchmark_wallet");
+            this.indyConnector.setSubmitterDidSeeds("_;00000000000000000000000000000000");
+            return;
+        }
+
+        InMemoryIndyTransport transport = new InMemoryIndyTransport(Duration.ofMillis(this.latencyMillis), Duration.ofMillis(this.latencyMillis / 5), 0);
+        transport.setTaa("Transaction Author Agreement", "1.0");
+
+        StringBuilder poolConfigs = new StringBuilder();
+        StringBuilder poolVersions = new StringBuilder();
+        StringBuilder walletNames = new StringBuilder();
+        StringBuilder submitterDidSeeds = new StringBuilder();
+        for (int i=0; i<IN_MEMORY_NETWORKS; i++) {
+            String network = "network" + i;
+            String separator = i == 0 ? "" : ";";
+            poolConfigs.append(separator).append(network).append(";./sovrin/").append(i).append(".txn");
+            poolVersions.append(separator).append(network).append(";").append(i % 2 == 0 ? "2" : "1");
+            walletNames.append(separator).append(network).append(";wallet_").append(i);
+            submitterDidSeeds.append(separator).append(network).append(";").append(String.format("%032d", i));
+        }
+
+        this.indyConnector.setTransport(transport);
+        this.indyConnector.setPoolConfigs(poolConfigs.toString());
+        this.indyConnector.setPoolVersions(poolVersions.toString());
+        this.indyConnector.setWalletNames(walletNames.toString());
+        this.indyConnector.setSubmitterDidSeeds(submitterDidSeeds.toString());
+    }
+
+    @TearDown
+    public void tearDown() throws IndyConnectionException {
+
+        this.indyConnector.closeIndyConnections();
+    }
+
+    @Benchmark
+    public void openClose() throws IndyConnectionException {
+
+        this.indyConnector.openIndyConnections(true, this.retrieveTaa, true);
+        this.indyConnector.closeIndyConnections();
+    }
+}
@@ -0,0 +1,552 @@
+package com.danubetech.libindy;
+
+import org.hyperledger.indy.sdk.pool.PoolLedgerTimeoutException;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * A transport that simulates pools, wallets and a ledger in memory, without libindy.
+ * Opening pools and submitting requests take a configurable latency with jitter, and fail with a configurable rate
+ * (with a {@link PoolLedgerTimeoutException}, like an unreachable pool). Wallet and DID calls complete right away.
+ *
+ * The ledger answers the read requests used by the connector: NYMs and ATTRIBs that have been added with
+ * {@link #addNym(String, String)} and {@link #addAttrib(String, String, String)} or written with NYM and ATTRIB requests,
+ * the TAA, and GET_TXN (which returns the written transactions for the DOMAIN ledger). All other requests are accepted like writes.
+ * This is meant for load tests and for profiling the concurrency of the connector, not for testing ledger semantics.
+ */
+public class InMemoryIndyTransport implements IndyTransport {
+
+    private static final String NYM = "1";
+    private static final String ATTRIB = "100";
+    private static final String GET_TXN = "3";
+    private static final String GET_ATTR = "104";
+    private static final String GET_NYM = "105";
+    private static final String GET_TXN_AUTHR_AGRMT = "6";
+
+    private static final String BASE58_ALPHABET = "123456789ABCDEFGHJKLMNPQRSTUVWXYZabcdefghijkmnopqrstuvwxyz";
+
+    private Duration latency = Duration.ofMillis(5);
+    private Duration jitter = Duration.ZERO;
+    private double failureRate = 0;
+    private Executor executor = ForkJoinPool.commonPool();
+
+    private final PoolVersionDispatcher poolVersionDispatcher = new PoolVersionDispatcher(poolVersion -> CompletableFuture.completedFuture(null));
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    private final Set<String> poolConfigs = ConcurrentHashMap.newKeySet();
+    private final Map<String, String> poolConfigFingerprints = new ConcurrentHashMap<>();
+    private final LongAdder createdPoolConfigCount = new LongAdder();
+    private final LongAdder refreshCount = new LongAdder();
+    private final Map<Integer, String> openPools = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, String>> wallets = new ConcurrentHashMap<>();
+    private final Map<String, String> walletKeys = new ConcurrentHashMap<>();
+    private final Map<Integer, String> openWallets = new ConcurrentHashMap<>();
+    private final Map<String, String> didMetadata = new ConcurrentHashMap<>();
+    private final LongAdder createdDidCount = new LongAdder();
+    private final Map<String, String> nyms = new ConcurrentHashMap<>();
+    private final Map<String, String> attribs = new ConcurrentHashMap<>();
+    private final Map<Long, JSONObject> domainTxns = new ConcurrentHashMap<>();
+    private volatile String taa;
+    private volatile String taaVersion;
+
+    private final AtomicInteger nextHandle = new AtomicInteger();
+    private final AtomicLong nextReqId = new AtomicLong();
+    private final AtomicLong nextSeqNo = new AtomicLong();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private final LongAdder requestCount = new LongAdder();
+    private final LongAdder failureCount = new LongAdder();
+
+    record InMemoryPoolHandle(int handle) implements PoolHandle {
+        @Override
+        public int getHandle() {
+            return this.handle;
+        }
+    }
+
+    record InMemoryWalletHandle(int handle) implements WalletHandle {
+        @Override
+        public int getHandle() {
+            return this.handle;
+        }
+    }
+
+    public InMemoryIndyTransport() {
+    }
+
+    public InMemoryIndyTransport(Duration latency, Duration jitter, double failureRate) {
+        this.latency = latency;
+        this.jitter = jitter;
+        this.failureRate = failureRate;
+    }
+
+    @Override
+    public PoolVersionDispatcher getPoolVersionDispatcher() {
+        return this.poolVersionDispatcher;
+    }
+
+    /*
+     * Pools
+     */
+
+    @Override
+    public CompletableFuture<Boolean> createPoolLedgerConfig(String poolConfigName, String poolConfigFile) {
+
+        boolean created = this.poolConfigs.add(poolConfigName);
+        if (created) this.createdPoolConfigCount.increment();
+        return CompletableFuture.completedFuture(created);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> existsPoolLedgerConfig(String poolConfigName) {
+        return CompletableFuture.completedFuture(this.poolConfigs.contains(poolConfigName));
+    }
+
+    @Override
+    public CompletableFuture<Void> deletePoolLedgerConfig(String poolConfigName) {
+
+        if (this.openPools.containsValue(poolConfigName)) return CompletableFuture.failedFuture(new IllegalStateException("Pool config is open: " + poolConfigName));
+        if (! this.poolConfigs.remove(poolConfigName)) return CompletableFuture.failedFuture(new IllegalArgumentException("Pool config not found: " + poolConfigName));
+        this.poolConfigFingerprints.remove(poolConfigName);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<String> getPoolLedgerConfigFingerprint(String poolConfigName) {
+        return CompletableFuture.completedFuture(this.poolConfigFingerprints.get(poolConfigName));
+    }
+
+    @Override
+    public CompletableFuture<Void> setPoolLedgerConfigFingerprint(String poolConfigName, String fingerprint) {
+
+        if (! this.poolConfigs.contains(poolConfigName)) return CompletableFuture.failedFuture(new IllegalArgumentException("Pool config not found: " + poolConfigName));
+        this.poolConfigFingerprints.put(poolConfigName, fingerprint);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<PoolHandle> openPoolLedger(String poolConfigName) {
+
+        if (! this.poolConfigs.contains(poolConfigName)) return CompletableFuture.failedFuture(new IllegalArgumentException("Pool config not found: " + poolConfigName));
+        if (this.openPools.containsValue(poolConfigName)) return CompletableFuture.failedFuture(new IllegalStateException("Pool already open: " + poolConfigName));
+        return this.simulate(() -> {
+            int handle = this.nextHandle.incrementAndGet();
+            this.openPools.put(handle, poolConfigName);
+            return new InMemoryPoolHandle(handle);
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> closePoolLedger(PoolHandle poolHandle) {
+
+        if (this.openPools.remove(poolHandle.getHandle()) == null) return CompletableFuture.failedFuture(new IllegalArgumentException("Pool not open: " + poolHandle.getHandle()));
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<Void> refreshPoolLedger(PoolHandle poolHandle) {
+
+        if (! this.openPools.containsKey(poolHandle.getHandle())) return CompletableFuture.failedFuture(new IllegalArgumentException("Pool not open: " + poolHandle.getHandle()));
+        return this.simulate(() -> {
+            this.refreshCount.increment();
+            return null;
+        });
+    }
+
+    /*
+     * Wallets
+     */
+
+    @Override
+    public CompletableFuture<Boolean> createWallet(String walletConfig, String walletCredentials) {
+
+        String walletId = new JSONObject(walletConfig).getString("id");
+        boolean created = this.wallets.putIfAbsent(walletId, new ConcurrentHashMap<>()) == null;
+        if (created) this.walletKeys.put(walletId, walletKey(walletCredentials));
+        return CompletableFuture.completedFuture(created);
+    }
+
+    @Override
+    public CompletableFuture<WalletHandle> openWallet(String walletConfig, String walletCredentials) {
+
+        String walletId = new JSONObject(walletConfig).getString("id");
+        if (! this.wallets.containsKey(walletId)) return CompletableFuture.failedFuture(new IllegalArgumentException("Wallet not found: " + walletId));
+        if (! this.walletKeys.get(walletId).equals(walletKey(walletCredentials))) return CompletableFuture.failedFuture(new IllegalArgumentException("Invalid key for wallet: " + walletId));
+        if (this.openWallets.containsValue(walletId)) return CompletableFuture.failedFuture(new IllegalStateException("Wallet already open: " + walletId));
+
+        int handle = this.nextHandle.incrementAndGet();
+        this.openWallets.put(handle, walletId);
+        return CompletableFuture.completedFuture(new InMemoryWalletHandle(handle));
+    }
+
+    @Override
+    public CompletableFuture<Void> closeWallet(WalletHandle walletHandle) {
+
+        if (this.openWallets.remove(walletHandle.getHandle()) == null) return CompletableFuture.failedFuture(new IllegalArgumentException("Wallet not open: " + walletHandle.getHandle()));
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<String> generateWalletKey(String seed) {
+        return CompletableFuture.completedFuture(base58(sha256(seed == null ? String.valueOf(this.secureRandom.nextLong()) : seed)));
+    }
+
+    private static String walletKey(String walletCredentials) {
+        JSONObject jsonObject = new JSONObject(walletCredentials);
+        return jsonObject.optString("key_derivation_method", IndyWalletConfig.ARGON2I_MOD) + ":" + jsonObject.getString("key");
+    }
+
+    /*
+     * DIDs
+     */
+
+    @Override
+    public CompletableFuture<MyDid> createAndStoreMyDid(WalletHandle walletHandle, String seed) {
+
+        Map<String, String> dids = this.getWalletDids(walletHandle);
+        if (dids == null) return CompletableFuture.failedFuture(new IllegalArgumentException("Wallet not open: " + walletHandle.getHandle()));
+
+        byte[] verkey = new byte[32];
+        if (seed == null) this.secureRandom.nextBytes(verkey); else verkey = sha256(seed);
+        byte[] did = new byte[16];
+        System.arraycopy(verkey, 0, did, 0, did.length);
+
+        MyDid myDid = new MyDid(base58(did), base58(verkey));
+        dids.put(myDid.did(), myDid.verkey());
+        this.createdDidCount.increment();
+        return CompletableFuture.completedFuture(myDid);
+    }
+
+    @Override
+    public CompletableFuture<String> getMyDidWithMeta(WalletHandle walletHandle, String did) {
+
+        Map<String, String> dids = this.getWalletDids(walletHandle);
+        String verkey = dids == null ? null : dids.get(did);
+        if (verkey == null) return CompletableFuture.failedFuture(new IllegalArgumentException("DID not found: " + did));
+
+        JSONObject jsonObject = new JSONObject();
+        jsonObject.put("did", did);
+        jsonObject.put("verkey", verkey);
+        jsonObject.put("metadata", this.didMetadata.getOrDefault(this.openWallets.get(walletHandle.getHandle()) + "|" + did, null));
+        return CompletableFuture.completedFuture(jsonObject.toString());
+    }
+
+    @Override
+    public CompletableFuture<String> getListMyDidsWithMeta(WalletHandle walletHandle) {
+
+        String walletId = this.openWallets.get(walletHandle.getHandle());
+        Map<String, String> dids = walletId == null ? null : this.wallets.get(walletId);
+        if (dids == null) return CompletableFuture.failedFuture(new IllegalArgumentException("Wallet not open: " + walletHandle.getHandle()));
+
+        JSONArray jsonArray = new JSONArray();
+        for (Map.Entry<String, String> did : dids.entrySet()) {
+            JSONObject jsonObject = new JSONObject();
+            jsonObject.put("did", did.getKey());
+            jsonObject.put("verkey", did.getValue());
+            jsonObject.put("metadata", this.didMetadata.get(walletId + "|" + did.getKey()));
+            jsonArray.put(jsonObject);
+        }
+        return CompletableFuture.completedFuture(jsonArray.toString());
+    }
+
+    @Override
+    public CompletableFuture<Void> setDidMetadata(WalletHandle walletHandle, String did, String metadata) {
+
+        String walletId = this.openWallets.get(walletHandle.getHandle());
+        Map<String, String> dids = walletId == null ? null : this.wallets.get(walletId);
+        if (dids == null || ! dids.containsKey(did)) return CompletableFuture.failedFuture(new IllegalArgumentException("DID not found: " + did));
+        this.didMetadata.put(walletId + "|" + did, metadata);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    private Map<String, String> getWalletDids(WalletHandle walletHandle) {
+        String walletId = this.openWallets.get(walletHandle.getHandle());
+        return walletId == null ? null : this.wallets.get(walletId);
+    }
+
+    /*
+     * Ledger
+     */
+
+    @Override
+    public CompletableFuture<String> buildGetNymRequest(String submitterDid, String targetDid) {
+        return CompletableFuture.completedFuture(this.buildRequest(submitterDid, new JSONObject().put("type", GET_NYM).put("dest", targetDid)));
+    }
+
+    @Override
+    public CompletableFuture<String> buildGetAttribRequest(String submitterDid, String targetDid, String raw, String hash, String enc) {
+        return CompletableFuture.completedFuture(this.buildRequest(submitterDid, new JSONObject().put("type", GET_ATTR).put("dest", targetDid).put("raw", raw).put("hash", hash).put("enc", enc)));
+    }
+
+    @Override
+    public CompletableFuture<String> buildGetTxnRequest(String submitterDid, String ledgerType, int seqNo) {
+        return CompletableFuture.completedFuture(this.buildRequest(submitterDid, new JSONObject().put("type", GET_TXN).put("ledgerId", ledgerType).put("data", seqNo)));
+    }
+
+    @Override
+    public CompletableFuture<String> buildGetTxnAuthorAgreementRequest(String submitterDid, String data) {
+        return CompletableFuture.completedFuture(this.buildRequest(submitterDid, new JSONObject().put("type", GET_TXN_AUTHR_AGRMT)));
+    }
+
+    private String buildRequest(String submitterDid, JSONObject operation) {
+
+        JSONObject jsonObject = new JSONObject();
+        jsonObject.put("reqId", this.nextReqId.incrementAndGet());
+        jsonObject.put("identifier", submitterDid);
+        jsonObject.put("operation", operation);
+        jsonObject.put("protocolVersion", 2);
+        return jsonObject.toString();
+    }
+
+    @Override
+    public CompletableFuture<String> signRequest(WalletHandle walletHandle, String submitterDid, String request) {
+
+        Map<String, String> dids = this.getWalletDids(walletHandle);
+        String verkey = dids == null ? null : dids.get(submitterDid);
+        if (verkey == null) return CompletableFuture.failedFuture(new IllegalArgumentException("Submitter DID not found: " + submitterDid));
+
+        JSONObject jsonObject = new JSONObject(request);
+        jsonObject.put("identifier", submitterDid);
+        jsonObject.put("signature", base58(sha256(verkey + request)));
+        return CompletableFuture.completedFuture(jsonObject.toString());
+    }
+
+    @Override
+    public CompletableFuture<String> submitRequest(PoolHandle poolHandle, String request) {
+
+        if (! this.openPools.containsKey(poolHandle.getHandle())) return CompletableFuture.failedFuture(new IllegalArgumentException("Pool not open: " + poolHandle.getHandle()));
+        return this.simulate(() -> this.reply(new JSONObject(request)));
+    }
+
+    @Override
+    public CompletableFuture<String> signAndSubmitRequest(PoolHandle poolHandle, WalletHandle walletHandle, String submitterDid, String request) {
+
+        Map<String, String> dids = this.getWalletDids(walletHandle);
+        if (dids == null || ! dids.containsKey(submitterDid)) return CompletableFuture.failedFuture(new IllegalArgumentException("Submitter DID not found: " + submitterDid));
+        return this.submitRequest(poolHandle, request);
+    }
+
+    private String reply(JSONObject request) {
+
+        JSONObject operation = request.getJSONObject("operation");
+        String type = operation.getString("type");
+        String dest = operation.optString("dest", null);
+
+        JSONObject result = new JSONObject();
+        result.put("type", type);
+        result.put("reqId", request.get("reqId"));
+        result.put("identifier", request.opt("identifier"));
+
+        switch (type) {
+            case GET_NYM -> {
+                String verkey = this.nyms.get(dest);
+                result.put("dest", dest);
+                result.put("data", verkey == null ? JSONObject.NULL : new JSONObject().put("dest", dest).put("verkey", verkey).put("role", JSONObject.NULL).toString());
+            }
+            case GET_ATTR -> {
+                String raw = operation.optString("raw", null);
+                String value = raw == null ? null : this.attribs.get(dest + "|" + raw);
+                result.put("dest", dest);
+                result.put("raw", raw);
+                result.put("data", value == null ? JSONObject.NULL : new JSONObject().put(raw, new JSONObject(value)).toString());
+            }
+            case GET_TXN_AUTHR_AGRMT -> {
+                String taa = this.taa;
+                result.put("data", taa == null ? JSONObject.NULL : new JSONObject().put("text", taa).put("version", this.taaVersion));
+            }
+            case GET_TXN -> {
+                result.put("seqNo", operation.opt("data"));
+                if ("DOMAIN".equals(operation.opt("ledgerId"))) {
+                    JSONObject txn = this.domainTxns.get(operation.optLong("data", 0));
+                    result.put("data", txn == null ? JSONObject.NULL : txn);
+                } else {
+                    result.put("data", new JSONObject().put("ledgerId", operation.opt("ledgerId")));
+                }
+            }
+            default -> {
+                if (NYM.equals(type) && operation.has("verkey")) this.nyms.put(dest, operation.getString("verkey"));
+                if (ATTRIB.equals(type) && operation.has("raw")) {
+                    JSONObject raw = new JSONObject(operation.getString("raw"));
+                    for (String name : raw.keySet()) this.attribs.put(dest + "|" + name, String.valueOf(raw.get(name)));
+                }
+                long seqNo = this.nextSeqNo.incrementAndGet();
+                result.put("txn", new JSONObject().put("type", type).put("data", operation));
+                result.put("txnMetadata", new JSONObject().put("seqNo", seqNo));
+                this.domainTxns.put(seqNo, new JSONObject().put("txn", result.get("txn")).put("txnMetadata", result.get("txnMetadata")));
+            }
+        }
+
+        JSONObject reply = new JSONObject();
+        reply.put("op", "REPLY");
+        reply.put("result", result);
+        return reply.toString();
+    }
+
+    /*
+     * Simulation
+     */
+
+    private <T> CompletableFuture<T> simulate(Supplier<T> call) {
+
+        long delayNanos = this.latency.toNanos();
+        long jitterNanos = this.jitter.toNanos();
+        if (jitterNanos > 0) delayNanos = Math.max(0, delayNanos + ThreadLocalRandom.current().nextLong(-jitterNanos, jitterNanos + 1));
+        boolean fail = this.failureRate > 0 && ThreadLocalRandom.current().nextDouble() < this.failureRate;
+
+        this.requestCount.increment();
+        int inFlight = this.inFlight.incrementAndGet();
+        this.maxInFlight.accumulateAndGet(inFlight, Math::max);
+
+        Executor executor = delayNanos > 0 ? CompletableFuture.delayedExecutor(delayNanos, TimeUnit.NANOSECONDS, this.executor) : this.executor;
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                if (fail) {
+                    this.failureCount.increment();
+                    throw new CompletionException(new PoolLedgerTimeoutException());
+                }
+                return call.get();
+            } finally {
+                this.inFlight.decrementAndGet();
+            }
+        }, executor);
+    }
+
+    private static byte[] sha256(String string) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(string.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex.getMessage(), ex);
+        }
+    }
+
+    private static String base58(byte[] bytes) {
+        StringBuilder string = new StringBuilder();
+        BigInteger number = new BigInteger(1, bytes);
+        BigInteger base = BigInteger.valueOf(58);
+        while (number.signum() > 0) {
+            BigInteger[] divideAndRemainder = number.divideAndRemainder(base);
+            string.append(BASE58_ALPHABET.charAt(divideAndRemainder[1].intValue()));
+            number = divideAndRemainder[0];
+        }
+        for (int i=0; i<bytes.length && bytes[i] == 0; i++) string.append(BASE58_ALPHABET.charAt(0));
+        return string.reverse().toString();
+    }
+
+    /*
+     * Ledger content
+     */
+
+    public void addNym(String did, String verkey) {
+        this.nyms.put(did, verkey);
+    }
+
+    /**
+     * @param value The value of the raw attribute, as a JSON string, e.g. {"endpoint":"https://example.com"}.
+     */
+    public void addAttrib(String did, String raw, String value) {
+        this.attribs.put(did + "|" + raw, value);
+    }
+
+    public void setTaa(String taa, String taaVersion) {
+        this.taaVersion = taaVersion;
+        this.taa = taa;
+    }
+
+    /*
+     * Getters and setters
+     */
+
+    public Duration getLatency() {
+        return latency;
+    }
+
+    public void setLatency(Duration latency) {
+        this.latency = latency;
+    }
+
+    public Duration getJitter() {
+        return jitter;
+    }
+
+    public void setJitter(Duration jitter) {
+        this.jitter = jitter;
+    }
+
+    public double getFailureRate() {
+        return failureRate;
+    }
+
+    public void setFailureRate(double failureRate) {
+        this.failureRate = failureRate;
+    }
+
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * @param executor The executor on which simulated ledger calls complete. The default is the common fork/join pool.
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    public long getRequestCount() {
+        return requestCount.sum();
+    }
+
+    public long getFailureCount() {
+        return failureCount.sum();
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight.get();
+    }
+
+    /**
+     * The number of DIDs that have been created in all wallets.
+     */
+    public long getCreatedDidCount() {
+        return createdDidCount.sum();
+    }
+
+    /**
+     * The number of pool configs that have been created, including pool configs that have been created again.
+     */
+    public long getCreatedPoolConfigCount() {
+        return createdPoolConfigCount.sum();
+    }
+
+    /**
+     * The number of times that pools have been refreshed.
+     */
+    public long getRefreshCount() {
+        return refreshCount.sum();
+    }
+
+    public int getOpenPoolCount() {
+        return openPools.size();
+    }
+
+    public int getOpenWalletCount() {
+        return openWallets.size();
+    }
+}
@@ -0,0 +1,135 @@
+package com.danubetech.libindy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * A circuit breaker for the ledger calls of a network. After a number of consecutive failures (including timeouts), the circuit
+ * opens, and ledger calls fail right away instead of waiting for a ledger that does not respond. After the open duration,
+ * a single ledger call is let through as a probe (half-open): if it succeeds, the circuit closes again, otherwise it stays open.
+ */
+public class IndyCircuitBreaker {
+
+    private static final Logger log = LoggerFactory.getLogger(IndyCircuitBreaker.class);
+
+    public static final int DEFAULT_FAILURE_THRESHOLD = 5;
+    public static final Duration DEFAULT_OPEN_DURATION = Duration.ofSeconds(30);
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String network;
+    private final int failureThreshold;
+    private final Duration openDuration;
+    private final LongSupplier ticker;
+
+    private volatile State state = State.CLOSED;
+    private volatile int consecutiveFailures;
+    private long openedNanos;
+    private boolean probing;
+    private final LongAdder rejectedCount = new LongAdder();
+
+    /**
+     * @param ticker The source of the time in nanoseconds that the open duration is measured with, e.g. System::nanoTime.
+     */
+    public IndyCircuitBreaker(String network, int failureThreshold, Duration openDuration, LongSupplier ticker) {
+        if (failureThreshold < 1) throw new IllegalArgumentException("Expected a positive failure threshold: " + failureThreshold);
+        this.network = network;
+        this.failureThreshold = failureThreshold;
+        this.openDuration = openDuration;
+        this.ticker = ticker;
+    }
+
+    public IndyCircuitBreaker(String network, int failureThreshold, Duration openDuration) {
+        this(network, failureThreshold, openDuration, System::nanoTime);
+    }
+
+    public IndyCircuitBreaker(String network) {
+        this(network, DEFAULT_FAILURE_THRESHOLD, DEFAULT_OPEN_DURATION);
+    }
+
+    /**
+     * @return Whether a ledger call may be made. If so, its outcome must be reported with {@link #onSuccess()} or {@link #onFailure()}.
+     */
+    public boolean tryAcquire() {
+
+        if (this.state == State.CLOSED) return true;
+
+        synchronized (this) {
+            if (this.state == State.CLOSED) return true;
+            if (this.state == State.OPEN && this.ticker.getAsLong() - this.openedNanos >= this.openDuration.toNanos()) {
+                this.state = State.HALF_OPEN;
+                this.probing = false;
+                if (log.isInfoEnabled()) log.info("Circuit breaker for network " + this.network + " is half-open, probing the ledger.");
+            }
+            if (this.state == State.HALF_OPEN && ! this.probing) {
+                this.probing = true;
+                return true;
+            }
+        }
+
+        this.rejectedCount.increment();
+        return false;
+    }
+
+    public void onSuccess() {
+
+        if (this.state == State.CLOSED && this.consecutiveFailures == 0) return;
+
+        synchronized (this) {
+            this.consecutiveFailures = 0;
+            if (this.state != State.CLOSED) {
+                this.state = State.CLOSED;
+                this.probing = false;
+                if (log.isInfoEnabled()) log.info("Circuit breaker for network " + this.network + " is closed again.");
+            }
+        }
+    }
+
+    public synchronized void onFailure() {
+
+        this.consecutiveFailures++;
+        if (this.state == State.HALF_OPEN || (this.state == State.CLOSED && this.consecutiveFailures >= this.failureThreshold)) {
+            if (log.isWarnEnabled()) log.warn("Circuit breaker for network " + this.network + " is open after " + this.consecutiveFailures + " consecutive failures, failing ledger calls for " + this.openDuration + ".");
+            this.state = State.OPEN;
+            this.openedNanos = this.ticker.getAsLong();
+            this.probing = false;
+        }
+    }
+
+    /*
+     * Getters
+     */
+
+    public State getState() {
+        return this.state;
+    }
+
+    public int getFailureThreshold() {
+        return this.failureThreshold;
+    }
+
+    public Duration getOpenDuration() {
+        return this.openDuration;
+    }
+
+    /**
+     * The number of ledger calls that have failed right away because the circuit was open.
+     */
+    public long getRejectedCount() {
+        return this.rejectedCount.sum();
+    }
+
+    /*
+     * Object methods
+     */
+
+    public String toString() {
+        return this.state + " (" + this.failureThreshold + " failures, " + this.openDuration + " open)";
+    }
+}
@@ -0,0 +1,132 @@
+package com.danubetech.libindy;
+
+import java.util.*;
+
+/**
+ * The difference between the open Indy connections of a connector and its current configuration,
+ * see {@link IndyConnector#diffConfiguration()}. Added and changed networks come with new (not yet opened) Indy connections.
+ * A network has also changed if its genesis file has changed in place, see {@link IndyConnection#getGenesisFingerprint()}.
+ */
+public class IndyConfigDiff {
+
+    private final Map<String, IndyConnection> added;
+    private final Set<String> removed;
+    private final Map<String, IndyConnection> changed;
+    private final Set<String> unchanged;
+
+    public IndyConfigDiff(Map<String, IndyConnection> added, Set<String> removed, Map<String, IndyConnection> changed, Set<String> unchanged) {
+        this.added = Collections.unmodifiableMap(new LinkedHashMap<>(added));
+        this.removed = Collections.unmodifiableSet(new LinkedHashSet<>(removed));
+        this.changed = Collections.unmodifiableMap(new LinkedHashMap<>(changed));
+        this.unchanged = Collections.unmodifiableSet(new LinkedHashSet<>(unchanged));
+    }
+
+    /**
+     * @param current The open Indy connections.
+     * @param configured The Indy connections created from the current configuration.
+     */
+    public static IndyConfigDiff diff(Map<String, IndyConnection> current, Map<String, IndyConnection> configured) {
+
+        Map<String, IndyConnection> added = new LinkedHashMap<>();
+        Set<String> removed = new LinkedHashSet<>();
+        Map<String, IndyConnection> changed = new LinkedHashMap<>();
+        Set<String> unchanged = new LinkedHashSet<>();
+
+        for (IndyConnection indyConnection : configured.values()) {
+            IndyConnection currentIndyConnection = current.get(indyConnection.getNetwork());
+            if (currentIndyConnection == null) {
+                added.put(indyConnection.getNetwork(), indyConnection);
+            } else if (! hasSameConfig(currentIndyConnection, indyConnection) || ! hasSameGenesisFile(currentIndyConnection, indyConnection)) {
+                changed.put(indyConnection.getNetwork(), indyConnection);
+            } else {
+                unchanged.add(indyConnection.getNetwork());
+            }
+        }
+
+        for (String network : current.keySet()) {
+            if (! configured.containsKey(network)) removed.add(network);
+        }
+
+        return new IndyConfigDiff(added, removed, changed, unchanged);
+    }
+
+    /**
+     * Whether two Indy connections have the same configuration, i.e. one can be used instead of the other.
+     */
+    public static boolean hasSameConfig(IndyConnection indyConnection, IndyConnection otherIndyConnection) {
+
+        return Objects.equals(indyConnection.getPoolConfigName(), otherIndyConnection.getPoolConfigName())
+                && Objects.equals(indyConnection.getPoolConfigFile(), otherIndyConnection.getPoolConfigFile())
+                && Objects.equals(indyConnection.getPoolVersion(), otherIndyConnection.getPoolVersion())
+                && Objects.equals(indyConnection.isNativeDidIndy(), otherIndyConnection.isNativeDidIndy())
+                && Objects.equals(indyConnection.getNymAddSignMulti(), otherIndyConnection.getNymAddSignMulti())
+                && Objects.equals(indyConnection.getNymEditSignMulti(), otherIndyConnection.getNymEditSignMulti())
+                && Objects.equals(indyConnection.getAttribAddSignMulti(), otherIndyConnection.getAttribAddSignMulti())
+                && Objects.equals(indyConnection.getAttribEditSignMulti(), otherIndyConnection.getAttribEditSignMulti())
+                && Objects.equals(indyConnection.getWalletName(), otherIndyConnection.getWalletName())
+                && Objects.equals(indyConnection.getSubmitterDidSeed(), otherIndyConnection.getSubmitterDidSeed())
+                && Objects.equals(indyConnection.getGenesisTimestamp(), otherIndyConnection.getGenesisTimestamp())
+                && Objects.equals(indyConnection.getPoolHandleCount(), otherIndyConnection.getPoolHandleCount())
+                && Objects.equals(indyConnection.getWalletConfig(), otherIndyConnection.getWalletConfig())
+                && indyConnection.isCacheWalletKey() == otherIndyConnection.isCacheWalletKey()
+                && indyConnection.getRequestWindow().getMaxInFlight() == otherIndyConnection.getRequestWindow().getMaxInFlight()
+                && Objects.equals(indyConnection.getPoolRefreshInterval(), otherIndyConnection.getPoolRefreshInterval())
+                && Objects.equals(indyConnection.getTimeouts().getTimeouts(), otherIndyConnection.getTimeouts().getTimeouts())
+                && hasSameCircuitBreaker(indyConnection.getCircuitBreaker(), otherIndyConnection.getCircuitBreaker())
+                && hasSameLedgerReadCache(indyConnection.getLedgerReadCache(), otherIndyConnection.getLedgerReadCache());
+    }
+
+    /**
+     * Whether the genesis file of a configured Indy connection is still the one that the pool of an open Indy connection has been opened with.
+     * This detects genesis files that have been changed in place.
+     */
+    private static boolean hasSameGenesisFile(IndyConnection currentIndyConnection, IndyConnection indyConnection) {
+
+        String openGenesisFingerprint = currentIndyConnection.getOpenGenesisFingerprint();
+        return openGenesisFingerprint == null || openGenesisFingerprint.equals(indyConnection.getGenesisFingerprint());
+    }
+
+    private static boolean hasSameCircuitBreaker(IndyCircuitBreaker circuitBreaker, IndyCircuitBreaker otherCircuitBreaker) {
+
+        if (circuitBreaker == null || otherCircuitBreaker == null) return circuitBreaker == otherCircuitBreaker;
+        return circuitBreaker.getFailureThreshold() == otherCircuitBreaker.getFailureThreshold() && Objects.equals(circuitBreaker.getOpenDuration(), otherCircuitBreaker.getOpenDuration());
+    }
+
+    private static boolean hasSameLedgerReadCache(LedgerReadCache ledgerReadCache, LedgerReadCache otherLedgerReadCache) {
+
+        if (ledgerReadCache == null || otherLedgerReadCache == null) return ledgerReadCache == otherLedgerReadCache;
+        return ledgerReadCache.getMaxSize() == otherLedgerReadCache.getMaxSize() && Objects.equals(ledgerReadCache.getTtl(), otherLedgerReadCache.getTtl());
+    }
+
+    public boolean isEmpty() {
+        return this.added.isEmpty() && this.removed.isEmpty() && this.changed.isEmpty();
+    }
+
+    /*
+     * Getters
+     */
+
+    public Map<String, IndyConnection> getAdded() {
+        return this.added;
+    }
+
+    public Set<String> getRemoved() {
+        return this.removed;
+    }
+
+    public Map<String, IndyConnection> getChanged() {
+        return this.changed;
+    }
+
+    public Set<String> getUnchanged() {
+        return this.unchanged;
+    }
+
+    /*
+     * Object methods
+     */
+
+    public String toString() {
+        return "added " + this.added.keySet() + ", removed " + this.removed + ", changed " + this.changed.keySet() + ", unchanged " + this.unchanged;
+    }
+}
@@ -1,25 +1,40 @@
 package com.danubetech.libindy;
 
-import org.hyperledger.indy.sdk.IndyException;
-import org.hyperledger.indy.sdk.did.Did;
-import org.hyperledger.indy.sdk.did.DidJSONParameters;
-import org.hyperledger.indy.sdk.did.DidResults;
-import org.hyperledger.indy.sdk.ledger.Ledger;
 import org.hyperledger.indy.sdk.pool.Pool;
-import org.hyperledger.indy.sdk.pool.PoolJSONParameters;
-import org.hyperledger.indy.sdk.pool.PoolLedgerConfigExistsException;
 import org.hyperledger.indy.sdk.wallet.Wallet;
-import org.hyperledger.indy.sdk.wallet.WalletExistsException;
+import org.json.JSONArray;
+import org.json.JSONException;
 import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.concurrent.ExecutionException;
-
-public class IndyConnection {
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+public class IndyConnection implements AutoCloseable {
 
     private static final Logger log = LoggerFactory.getLogger(IndyConnection.class);
 
+    private static final String SUBMITTER_DID_SEED_HASH = "submitterDidSeedHash";
+
+    public static final Duration DEFAULT_CLOSE_TIMEOUT = Duration.ofSeconds(10);
+
     private String network;
     private String poolConfigName;
     private String poolConfigFile;
@@ -33,12 +48,37 @@ public class IndyConnection {
     private String submitterDidSeed;
     private Long genesisTimestamp;
 
-    private Pool pool;
-    private Wallet wallet;
-    private String submitterDid;
-    private Boolean randomSubmitterDid;
-    private String taa;
-    private String taaVersion;
+    private Integer poolHandleCount;
+
+    private volatile IndyPoolHandles poolHandles;
+    private volatile int poolGeneration;
+    private volatile IndyTransport.WalletHandle walletHandle;
+    private volatile String submitterDid;
+    private volatile Boolean randomSubmitterDid;
+    private volatile String taa;
+    private volatile String taaVersion;
+    private LedgerReadCache ledgerReadCache;
+    private volatile long lastUsedNanos = System.nanoTime();
+    private final IndyConnectionHealth health = new IndyConnectionHealth();
+    private final AtomicInteger inFlightRequests = new AtomicInteger();
+    private final Queue<CompletableFuture<Void>> idleFutures = new ConcurrentLinkedQueue<>();
+    private final Map<LedgerReadCache.Key, CompletableFuture<String>> inFlightReads = new ConcurrentHashMap<>();
+    private final LongAdder coalescedReadCount = new LongAdder();
+    private IndyMetrics indyMetrics = IndyMetrics.NOOP;
+    private IndyTransport transport = LibIndyTransport.getInstance();
+    private IndyWalletConfig walletConfig = new IndyWalletConfig();
+    private boolean cacheWalletKey;
+    private IndySubmitterDidIndex submitterDidIndex = new IndySubmitterDidIndex();
+    private IndyRequestWindow requestWindow = new IndyRequestWindow(IndyRequestWindow.DEFAULT_MAX_IN_FLIGHT);
+    private volatile String cachedWalletKey;
+    private Duration closeTimeout = DEFAULT_CLOSE_TIMEOUT;
+    private final IndyNativeHandles nativeHandles = IndyNativeHandles.register(this);
+    private final IndyGenesisFingerprint genesisFingerprint = new IndyGenesisFingerprint();
+    private volatile String openGenesisFingerprint;
+    private Duration poolRefreshInterval;
+    private volatile Instant lastPoolRefreshTime;
+    private IndyTimeouts timeouts = IndyTimeouts.DEFAULT;
+    private IndyCircuitBreaker circuitBreaker;
 
     public IndyConnection(String network, String poolConfigName, String poolConfigFile, Integer poolVersion, Boolean nativeDidIndy, Boolean nymAddSignMulti, Boolean nymEditSignMulti, Boolean attribAddSignMulti, Boolean attribEditSignMulti, String walletName, String submitterDidSeed, Long genesisTimestamp) {
         this.network = network;
@@ -53,6 +93,7 @@ public class IndyConnection {
         this.walletName = walletName;
         this.submitterDidSeed = submitterDidSeed;
         this.genesisTimestamp = genesisTimestamp;
+        this.nativeHandles.setNetwork(network);
     }
 
     public IndyConnection() {
@@ -60,164 +101,538 @@ public class IndyConnection {
 
     public synchronized void open(boolean createSubmitterDid, boolean retrieveTaa) throws IndyConnectionException {
 
-        this.openPool();
-        this.openWallet();
-        if (createSubmitterDid) this.createSubmitterDid();
-        if (retrieveTaa) this.retrieveTaa();
+        IndyFutures.await(this.openAsync(createSubmitterDid, retrieveTaa));
     }
 
+    /**
+     * This opens the pool and wallet, and optionally creates the submitter DID and retrieves the TAA, without blocking.
+     * @param createSubmitterDid Whether to create a local DID in the wallet that will be used for submitting queries to the ledger.
+     * @param retrieveTaa Whether to retrieve the Transaction Author Agreement from the ledger.
+     * @return A future that completes when the connection has been opened, or completes exceptionally with an IndyConnectionException.
+     */
+    public CompletableFuture<Void> openAsync(boolean createSubmitterDid, boolean retrieveTaa) {
+
+        CompletableFuture<Void> future = this.openPoolAsync().thenCompose(x -> this.openWalletAsync());
+        if (createSubmitterDid) future = future.thenCompose(x -> this.createSubmitterDidAsync());
+        if (retrieveTaa) future = future.thenCompose(x -> this.retrieveTaaAsync());
+        return future;
+    }
+
+    @Override
     public synchronized void close() throws IndyConnectionException {
 
-        // close wallet
+        IndyFutures.await(this.closeAsync());
+    }
 
-        if (this.wallet != null) {
-            if (log.isDebugEnabled()) log.debug("On connection " + this.getNetwork() + " closing wallet: " + this.wallet.getWalletHandle());
-            synchronized(this) {
-                try {
-                    this.wallet.close();
-                    if (log.isInfoEnabled()) log.info("Wallet " + this.wallet.getWalletHandle() + " successfully closed.");
-                    this.wallet = null;
-                } catch (IndyException | InterruptedException | ExecutionException ex) {
-                    throw new IndyConnectionException("Cannot close wallet " + this.wallet.getWalletHandle() + ": " + ex.getMessage(), ex);
-                }
+    /**
+     * This closes the wallet and the pool. Both are detached from this connection right away, even if closing one of them fails.
+     * Each close call is bounded by the close timeout. Handles that could not be closed stay owned by this connection (see {@link IndyNativeHandles}).
+     * @return A future that completes when the wallet and pool have been closed, or completes exceptionally with an IndyConnectionException.
+     */
+    public CompletableFuture<Void> closeAsync() {
+
+        // detach the submitter DID and TAA together with the wallet and pool, so a re-open that starts before closing has completed keeps its own
+
+        this.submitterDid = null;
+        this.taa = null;
+
+        // close
+
+        CompletableFuture<Void> closeWallet = this.closeWalletAsync();
+        CompletableFuture<Void> closePool = this.closePoolAsync();
+
+        return CompletableFuture.allOf(closeWallet, closePool).whenComplete((result, ex) -> {
+            if (ex != null) {
+                if (log.isWarnEnabled()) log.warn("On connection " + this.getNetwork() + " cannot close pool and wallet, still owning " + this.getNativeHandles() + ": " + IndyFutures.unwrap(ex).getMessage());
+            } else {
+                if (log.isDebugEnabled()) log.debug("On connection " + this.getNetwork() + " closed pool and wallet.");
             }
-        }
+        });
+    }
+
+    private CompletableFuture<Void> closeWalletAsync() {
+
+        // close wallet
+
+        IndyTransport.WalletHandle walletHandle = this.walletHandle;
+        if (walletHandle == null) return CompletableFuture.completedFuture(null);
+        this.walletHandle = null;
+
+        if (log.isDebugEnabled()) log.debug("On connection " + this.getNetwork() + " closing wallet: " + walletHandle.getHandle());
+        return this.boundedCloseAsync(() -> this.getTransport().closeWallet(walletHandle)).handle((result, ex) -> {
+            if (ex != null) throw IndyFutures.failure("Cannot close wallet " + walletHandle.getHandle(), ex);
+            this.nativeHandles.release(walletHandle);
+            if (log.isInfoEnabled()) log.info("Wallet " + walletHandle.getHandle() + " successfully closed.");
+            return null;
+        });
+    }
+
+    private CompletableFuture<Void> closePoolAsync() {
 
         // close pool
 
-        if (this.pool != null) {
-            if (log.isDebugEnabled()) log.debug("On connection " + this.getNetwork() + " closing pool: " + this.pool.getPoolHandle());
-            synchronized(this) {
-                try {
-                    this.pool.close();
-                    if (log.isInfoEnabled()) log.info("Pool " + this.pool.getPoolHandle() + " successfully closed.");
-                    this.pool = null;
-                } catch (IndyException | InterruptedException | ExecutionException ex) {
-                    throw new IndyConnectionException("Cannot close pool " + this.pool.getPoolHandle() + ": " + ex.getMessage(), ex);
-                }
-            }
-        }
+        IndyPoolHandles poolHandles = this.poolHandles;
+        if (poolHandles == null) return CompletableFuture.completedFuture(null);
+        this.poolHandles = null;
 
-        // close
+        if (log.isDebugEnabled()) log.debug("On connection " + this.getNetwork() + " closing pool: " + poolHandles);
+        return this.closePoolHandlesAsync(poolHandles);
+    }
 
-        this.submitterDid = null;
-        this.taa = null;
+    private CompletableFuture<Void> closePoolHandlesAsync(IndyPoolHandles poolHandles) {
 
-        // done
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (IndyTransport.PoolHandle poolHandle : poolHandles.getPoolHandles()) {
+            futures.add(this.boundedCloseAsync(() -> this.getTransport().closePoolLedger(poolHandle)).handle((result, ex) -> {
+                if (ex != null) throw IndyFutures.failure("Cannot close pool " + poolHandle.getHandle(), ex);
+                this.nativeHandles.release(poolHandle);
+                if (log.isInfoEnabled()) log.info("Pool " + poolHandle.getHandle() + " successfully closed.");
+                return null;
+            }));
+        }
 
-        if (log.isDebugEnabled()) log.debug("On connection " + this.getNetwork() + " closed pool and wallet.");
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
+    }
+
+    /**
+     * This bounds a close call by the close timeout, so closing never waits for a pool or wallet that does not respond.
+     */
+    private CompletableFuture<Void> boundedCloseAsync(Supplier<CompletableFuture<Void>> close) {
+
+        Duration closeTimeout = this.getCloseTimeout();
+        return supply(close).orTimeout(closeTimeout.toMillis(), TimeUnit.MILLISECONDS).exceptionally(ex -> {
+            if (IndyFutures.unwrap(ex) instanceof TimeoutException) throw new CompletionException(new TimeoutException("Timeout after " + closeTimeout));
+            throw IndyFutures.rethrow(ex);
+        });
     }
 
     public boolean isOpen() {
-        return this.getPool() != null && this.getWallet() != null;
+        return this.poolHandles != null && this.walletHandle != null;
     }
 
-    private synchronized void openPool() throws IndyConnectionException {
+    /**
+     * Whether this connection is open and has not been found to be degraded by health checks.
+     */
+    public boolean isHealthy() {
+        return this.isOpen() && ! this.getHealth().isDegraded();
+    }
 
-        // create pool config
+    private CompletableFuture<Void> openPoolAsync() {
 
-        try {
+        return this.openPoolHandlesAsync(this.poolGeneration).thenAccept(poolHandles -> this.poolHandles = poolHandles);
+    }
 
-            Pool.setProtocolVersion(this.getPoolVersion());
-            PoolJSONParameters.CreatePoolLedgerConfigJSONParameter createPoolLedgerConfigJSONParameter = new PoolJSONParameters.CreatePoolLedgerConfigJSONParameter(poolConfigFile);
-            Pool.createPoolLedgerConfig(this.getPoolConfigName(), createPoolLedgerConfigJSONParameter.toJson()).get();
-            if (log.isInfoEnabled()) log.info("Pool config \"" + this.getPoolConfigName() + "\" successfully created.");
-        } catch (IndyException | InterruptedException | ExecutionException ex) {
-
-            IndyException iex = null;
-            if (ex instanceof IndyException) iex = (IndyException) ex;
-            if (ex instanceof ExecutionException && ex.getCause() instanceof IndyException) iex = (IndyException) ex.getCause();
-            if (iex instanceof PoolLedgerConfigExistsException) {
-                if (log.isInfoEnabled()) log.info("Pool config \"" + this.getPoolConfigName() + "\" has already been created.");
-            } else {
-                throw new IndyConnectionException("Cannot create pool config \"" + this.getPoolConfigName() + "\": " + ex.getMessage(), ex);
+    private CompletableFuture<IndyPoolHandles> openPoolHandlesAsync(int poolGeneration) {
+
+        int poolHandleCount = Math.max(1, this.getPoolHandleCount());
+        List<CompletableFuture<IndyTransport.PoolHandle>> futures = new ArrayList<>();
+        for (int i=0; i<poolHandleCount; i++) futures.add(this.openPoolHandleAsync(this.getPoolConfigName(i, poolGeneration)));
+
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).thenApply(x -> {
+            List<IndyTransport.PoolHandle> pools = new ArrayList<>();
+            for (CompletableFuture<IndyTransport.PoolHandle> future : futures) if (future.join() != null) pools.add(future.join());
+            IndyPoolHandles poolHandles = pools.isEmpty() ? null : new IndyPoolHandles(pools);
+            if (pools.size() > 1 && log.isInfoEnabled()) log.info("On connection " + this.getNetwork() + " opened " + pools.size() + " pool handles: " + poolHandles);
+            return poolHandles;
+        });
+    }
+
+    /**
+     * The name of the pool config for a pool handle. The first pool handle uses the configured name,
+     * additional pool handles use separate pool configs with the same genesis file, since libindy only opens each pool config once.
+     * For the same reason, pool handles that are opened while the previous ones are still open (see {@link #reconnectPoolAsync()})
+     * alternate between two sets of pool configs.
+     */
+    private String getPoolConfigName(int poolHandleIndex, int poolGeneration) {
+        String poolConfigName = poolHandleIndex == 0 ? this.getPoolConfigName() : (this.getPoolConfigName() + "-" + poolHandleIndex);
+        return poolGeneration % 2 == 0 ? poolConfigName : (poolConfigName + "-b");
+    }
+
+    /**
+     * This opens new pool handles while the current ones stay in use, swaps them in, and then closes the previous pool handles.
+     * The wallet, submitter DID and TAA are kept.
+     * @return A future that completes when the new pool handles are in use, or completes exceptionally if they could not be opened.
+     */
+    public CompletableFuture<Void> reconnectPoolAsync() {
+
+        int poolGeneration = this.poolGeneration + 1;
+        if (log.isInfoEnabled()) log.info("On connection " + this.getNetwork() + " reconnecting pool (generation " + poolGeneration + ").");
+
+        return this.openPoolHandlesAsync(poolGeneration).thenCompose(poolHandles -> {
+            if (poolHandles == null) throw IndyFutures.failure("Cannot reconnect pool for network " + this.getNetwork(), new IndyConnectionException("No pool handle could be opened."));
+
+            IndyPoolHandles previousPoolHandles;
+            synchronized (this) {
+                previousPoolHandles = this.poolHandles;
+                this.poolHandles = poolHandles;
+                this.poolGeneration = poolGeneration;
             }
+            if (log.isInfoEnabled()) log.info("On connection " + this.getNetwork() + " reconnected pool: " + poolHandles);
+
+            return previousPoolHandles == null ? CompletableFuture.completedFuture(null) : this.closePoolHandlesAsync(previousPoolHandles).exceptionally(ex -> {
+                if (log.isWarnEnabled()) log.warn("On connection " + this.getNetwork() + " cannot close previous pool: " + IndyFutures.unwrap(ex).getMessage());
+                return null;
+            });
+        });
+    }
+
+    /**
+     * This opens this connection as the replacement of another connection for the same network, while the other connection stays in use.
+     * The pool is opened with the set of pool configs that the other connection does not use (see {@link #getPoolConfigName(int, int)}),
+     * which are created again if the genesis file has changed (see {@link #getGenesisFingerprint()}). Since libindy only opens each wallet once, the open wallet of the other
+     * connection is taken over if it has the same name and config. It must then be detached from the other connection with
+     * {@link #detachWallet()} before the other connection is closed.
+     * @param previous The connection that is replaced.
+     * @param createSubmitterDid Whether to create a local DID in the wallet that will be used for submitting queries to the ledger.
+     * @param retrieveTaa Whether to retrieve the Transaction Author Agreement from the ledger.
+     * @return A future that completes with true if the wallet of the other connection has been taken over, or completes exceptionally with an IndyConnectionException.
+     */
+    CompletableFuture<Boolean> openReplacingAsync(IndyConnection previous, boolean createSubmitterDid, boolean retrieveTaa) {
+
+        this.poolGeneration = previous.poolGeneration + 1;
+
+        IndyTransport.WalletHandle previousWalletHandle = previous.walletHandle;
+        boolean takeOverWallet = previousWalletHandle != null && previous.getTransport() == this.getTransport() && Objects.equals(previous.getWalletName(), this.getWalletName()) && Objects.equals(previous.getWalletConfig(), this.getWalletConfig());
+
+        CompletableFuture<Void> future = this.openPoolAsync().thenRun(() -> {
+            if (this.poolHandles == null) throw IndyFutures.failure("Cannot open pool for network " + this.getNetwork(), new IndyConnectionException("No pool handle could be opened."));
+        });
+        if (takeOverWallet) {
+            future = future.thenRun(() -> {
+                this.walletHandle = previousWalletHandle;
+                this.nativeHandles.acquire(previous.getTransport(), previousWalletHandle);
+                this.cachedWalletKey = previous.cachedWalletKey;
+                if (log.isInfoEnabled()) log.info("On connection " + this.getNetwork() + " took over wallet \"" + this.getWalletName() + "\" (" + previousWalletHandle.getHandle() + ").");
+            });
+        } else {
+            future = future.thenCompose(x -> this.openWalletAsync());
         }
+        if (createSubmitterDid) future = future.thenCompose(x -> this.createSubmitterDidAsync());
+        if (retrieveTaa) future = future.thenCompose(x -> this.retrieveTaaAsync());
+
+        return future.handle((result, ex) -> ex).thenCompose(ex -> {
+            if (ex == null) return CompletableFuture.completedFuture(takeOverWallet);
+            if (takeOverWallet) this.detachWallet();
+            return this.closeAsync().handle((result, closeEx) -> {
+                if (closeEx != null && log.isWarnEnabled()) log.warn("On connection " + this.getNetwork() + " cannot close replacement: " + IndyFutures.unwrap(closeEx).getMessage());
+                throw IndyFutures.failure("Cannot open replacement connection for network " + this.getNetwork(), ex);
+            });
+        });
+    }
 
-        // open pool
+    /**
+     * This detaches the wallet from this connection without closing it, after it has been taken over by a replacement connection.
+     * @return The detached wallet, or null if no wallet is open.
+     */
+    IndyTransport.WalletHandle detachWallet() {
 
-        try {
+        IndyTransport.WalletHandle walletHandle = this.walletHandle;
+        this.walletHandle = null;
+        if (walletHandle != null) this.nativeHandles.release(walletHandle);
+        return walletHandle;
+    }
 
-            Pool.setProtocolVersion(this.getPoolVersion());
+    /**
+     * This refreshes the pool, i.e. the list of pool nodes and the state of the pool ledger, so that the pool has caught up before requests need it.
+     * The pool handles stay in use while they are being refreshed.
+     * @return A future that completes when all pool handles have been refreshed, or completes exceptionally with an IndyConnectionException.
+     */
+    public CompletableFuture<Void> refreshPoolAsync() {
+
+        IndyPoolHandles poolHandles = this.poolHandles;
+        if (poolHandles == null) return CompletableFuture.failedFuture(new IndyConnectionException("Pool for network " + this.getNetwork() + " is not open."));
+
+        IndyTransport transport = this.getTransport();
+        return this.timeOperation(IndyMetrics.REFRESH_POOL, () -> {
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            for (IndyTransport.PoolHandle poolHandle : poolHandles.getPoolHandles()) {
+                futures.add(transport.refreshPoolLedger(poolHandle));
+            }
+            return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
+        }).handle((result, ex) -> {
+            if (ex != null) throw IndyFutures.failure("Cannot refresh pool for network " + this.getNetwork(), ex);
+            this.lastPoolRefreshTime = Instant.now();
+            if (log.isDebugEnabled()) log.debug("On connection " + this.getNetwork() + " refreshed pool: " + poolHandles);
+            return null;
+        });
+    }
 
-            PoolJSONParameters.OpenPoolLedgerJSONParameter openPoolLedgerJSONParameter = new PoolJSONParameters.OpenPoolLedgerJSONParameter(null, null);
-            this.pool = Pool.openPoolLedger(this.getPoolConfigName(), openPoolLedgerJSONParameter.toJson()).get();
-            if (log.isInfoEnabled()) log.info("Pool \"" + this.getPoolConfigName() + "\" (" + this.pool.getPoolHandle() + ") successfully opened.");
-        } catch (IndyException | InterruptedException | ExecutionException ex) {
+    /**
+     * This sends a cheap read request (GET_TXN for the first transaction of the pool ledger) to check that the pool responds.
+     * The probe is not held back by the circuit breaker, and its outcome is not counted by it.
+     * @return A future that completes with the response, or completes exceptionally if the pool does not respond.
+     */
+    public CompletableFuture<String> probeAsync() {
 
-            this.pool = null;
-            if (log.isWarnEnabled()) log.warn("Cannot open pool \"" + this.getPoolConfigName() + "\": " + ex.getMessage(), ex);
+        IndyTransport transport = this.getTransport();
+        return this.ledgerCall("GET_TXN", null, null, () -> this.buildRequestAsync(() -> transport.buildGetTxnRequest(null, "POOL", 1))
+                .thenCompose(request -> this.callPoolHandle(poolHandle -> transport.submitRequest(poolHandle, request))));
+    }
+
+    private CompletableFuture<IndyTransport.PoolHandle> openPoolHandleAsync(String poolConfigName) {
+
+        IndyTransport transport = this.getTransport();
+
+        // create pool config if it does not exist, or create it again if it has been created from another genesis file
+
+        String genesisFingerprint = this.getGenesisFingerprint();
+        CompletableFuture<Boolean> createPoolLedgerConfig;
+        if (genesisFingerprint == null) {
+            if (log.isWarnEnabled()) log.warn("Cannot fingerprint genesis file " + this.getPoolConfigFile() + " of pool config \"" + poolConfigName + "\".");
+            createPoolLedgerConfig = this.createPoolLedgerConfigAsync(poolConfigName).thenApply(created -> false);
+        } else {
+            createPoolLedgerConfig = transport.getPoolLedgerConfigFingerprint(poolConfigName).exceptionally(ex -> null).thenCompose(storedGenesisFingerprint -> {
+                if (genesisFingerprint.equals(storedGenesisFingerprint)) return transport.existsPoolLedgerConfig(poolConfigName).exceptionally(ex -> false).thenCompose(exists -> {
+                    if (! exists) return this.createPoolLedgerConfigAsync(poolConfigName);
+                    if (log.isDebugEnabled()) log.debug("Pool config \"" + poolConfigName + "\" has been created from the same genesis file.");
+                    return CompletableFuture.completedFuture(false);
+                });
+                return this.recreatePoolLedgerConfigAsync(poolConfigName, storedGenesisFingerprint);
+            });
         }
+
+        // open pool, and then store the genesis fingerprint of a pool config that has been created
+
+        return createPoolLedgerConfig.thenCompose(storeGenesisFingerprint -> this.timeOperation(IndyMetrics.OPEN_POOL, () -> transport.getPoolVersionDispatcher().dispatch(this.getPoolVersion(), () ->
+                transport.openPoolLedger(poolConfigName)
+        )).thenCompose(poolHandle -> ! storeGenesisFingerprint ? CompletableFuture.completedFuture(poolHandle) : transport.setPoolLedgerConfigFingerprint(poolConfigName, genesisFingerprint).handle((result, ex) -> {
+            if (ex != null && log.isWarnEnabled()) log.warn("Cannot store genesis fingerprint of pool config \"" + poolConfigName + "\": " + IndyFutures.unwrap(ex).getMessage());
+            return poolHandle;
+        }))).handle((poolHandle, ex) -> {
+            if (ex != null) {
+                if (log.isWarnEnabled()) log.warn("Cannot open pool \"" + poolConfigName + "\": " + IndyFutures.unwrap(ex).getMessage(), IndyFutures.unwrap(ex));
+                return null;
+            }
+            this.nativeHandles.acquire(transport, poolHandle);
+            this.openGenesisFingerprint = genesisFingerprint;
+            if (log.isInfoEnabled()) log.info("Pool \"" + poolConfigName + "\" (" + poolHandle.getHandle() + ") successfully opened.");
+            return poolHandle;
+        });
     }
 
-    private synchronized void openWallet() throws IndyConnectionException {
+    /**
+     * This deletes a pool config that has been created from another genesis file (or before genesis files were fingerprinted),
+     * and creates it again.
+     * @return A future that completes with whether the pool config has been created again, so the genesis fingerprint can be stored once the pool has been opened.
+     */
+    private CompletableFuture<Boolean> recreatePoolLedgerConfigAsync(String poolConfigName, String storedGenesisFingerprint) {
+
+        IndyTransport transport = this.getTransport();
+        if (storedGenesisFingerprint != null && log.isInfoEnabled()) log.info("Genesis file of pool config \"" + poolConfigName + "\" has changed, creating it again.");
+
+        return transport.deletePoolLedgerConfig(poolConfigName).handle((result, ex) -> {
+            if (ex == null && log.isInfoEnabled()) log.info("Pool config \"" + poolConfigName + "\" deleted.");
+            return null;
+        }).thenCompose(x -> this.createPoolLedgerConfigAsync(poolConfigName)).thenApply(created -> {
+            if (! created && log.isWarnEnabled()) log.warn("Pool config \"" + poolConfigName + "\" could not be deleted and keeps its previous genesis file.");
+            return created;
+        });
+    }
 
-        // create wallet
+    private CompletableFuture<Boolean> createPoolLedgerConfigAsync(String poolConfigName) {
 
-        try {
+        IndyTransport transport = this.getTransport();
+        return this.timeOperation(IndyMetrics.CREATE_POOL_CONFIG, () -> transport.getPoolVersionDispatcher().dispatch(this.getPoolVersion(), () ->
+                transport.createPoolLedgerConfig(poolConfigName, this.getPoolConfigFile())
+        ).handle((created, ex) -> {
+            if (ex != null) throw IndyFutures.failure("Cannot create pool config \"" + poolConfigName + "\"", ex);
+            if (created) {
+                if (log.isInfoEnabled()) log.info("Pool config \"" + poolConfigName + "\" successfully created.");
+            } else {
+                if (log.isInfoEnabled()) log.info("Pool config \"" + poolConfigName + "\" has already been created.");
+            }
+            return created;
+        }));
+    }
 
-            String walletConfig = "{ \"id\":\"" + this.getWalletName() + "\", \"storage_type\":\"" + "default" + "\"}";
-            String walletCredentials = "{ \"key\":\"key\" }";
-            Wallet.createWallet(walletConfig, walletCredentials).get();
-            if (log.isInfoEnabled()) log.info("Wallet \"" + this.getWalletName() + "\" successfully created.");
-        } catch (IndyException | InterruptedException | ExecutionException ex) {
+    /**
+     * The fingerprint of the genesis file and genesis timestamp, see {@link IndyGenesisFingerprint}.
+     * @return The fingerprint, or null if the genesis file cannot be read.
+     */
+    public String getGenesisFingerprint() {
+        return this.genesisFingerprint.get(this.getPoolConfigFile(), this.getGenesisTimestamp());
+    }
 
-            IndyException iex = null;
-            if (ex instanceof IndyException) iex = (IndyException) ex;
-            if (ex instanceof ExecutionException && ex.getCause() instanceof IndyException) iex = (IndyException) ex.getCause();
-            if (iex instanceof WalletExistsException) {
-                if (log.isInfoEnabled()) log.info("Wallet \"" + this.getWalletName() + "\" has already been created.");
+    /**
+     * The fingerprint of the genesis file that the pool has last been opened with, or null if the pool has not been opened or the genesis file could not be read.
+     */
+    public String getOpenGenesisFingerprint() {
+        return this.openGenesisFingerprint;
+    }
+
+    private CompletableFuture<Void> openWalletAsync() {
+
+        return this.walletKeyAsync().thenCompose(walletKey -> this.openWalletAsync(this.getWalletConfig().toConfigJson(this.getWalletName()), this.getWalletConfig().toCredentialsJson(walletKey)));
+    }
+
+    /**
+     * The wallet key to open the wallet with. For the SEED key derivation method, this is a raw key generated from the seed,
+     * which is kept for re-opening if key caching is on.
+     */
+    private CompletableFuture<String> walletKeyAsync() {
+
+        IndyWalletConfig walletConfig = this.getWalletConfig();
+        if (! walletConfig.isSeed()) return CompletableFuture.completedFuture(walletConfig.getKey());
+
+        String cachedWalletKey = this.cachedWalletKey;
+        if (cachedWalletKey != null) return CompletableFuture.completedFuture(cachedWalletKey);
+
+        return this.timeOperation(IndyMetrics.GENERATE_WALLET_KEY, () -> this.getTransport().generateWalletKey(walletConfig.getKey())).handle((walletKey, ex) -> {
+            if (ex != null) throw IndyFutures.failure("Cannot generate key for wallet \"" + this.getWalletName() + "\"", ex);
+            if (this.isCacheWalletKey()) this.cachedWalletKey = walletKey;
+            return walletKey;
+        });
+    }
+
+    private CompletableFuture<Void> openWalletAsync(String walletConfig, String walletCredentials) {
+
+        IndyTransport transport = this.getTransport();
+
+        // create wallet
+
+        CompletableFuture<Void> createWallet = this.timeOperation(IndyMetrics.CREATE_WALLET, () -> transport.createWallet(walletConfig, walletCredentials).handle((created, ex) -> {
+            if (ex != null) throw IndyFutures.failure("Cannot create wallet \"" + this.getWalletName() + "\"", ex);
+            if (created) {
+                if (log.isInfoEnabled()) log.info("Wallet \"" + this.getWalletName() + "\" successfully created.");
             } else {
-                throw new IndyConnectionException("Cannot create wallet \"" + this.getWalletName() + "\": " + ex.getMessage(), ex);
+                if (log.isInfoEnabled()) log.info("Wallet \"" + this.getWalletName() + "\" has already been created.");
             }
-        }
+            return null;
+        }));
 
         // open wallet
 
-        try {
+        return createWallet.thenCompose(x -> this.timeOperation(IndyMetrics.OPEN_WALLET, () -> transport.openWallet(walletConfig, walletCredentials))).handle((walletHandle, ex) -> {
+            if (ex != null) {
+                this.walletHandle = null;
+                throw IndyFutures.failure("Cannot open wallet \"" + this.getWalletName() + "\"", ex);
+            }
+            this.walletHandle = walletHandle;
+            this.nativeHandles.acquire(transport, walletHandle);
+            if (log.isInfoEnabled()) log.info("Wallet \"" + this.getWalletName() + "\" (" + walletHandle.getHandle() + ") successfully opened.");
+            return null;
+        });
+    }
 
-            String walletConfig = "{ \"id\":\"" + this.getWalletName() + "\", \"storage_type\":\"" + "default" + "\"}";
-            String walletCredentials = "{ \"key\":\"key\" }";
-            this.wallet = Wallet.openWallet(walletConfig, walletCredentials).get();
-            if (log.isInfoEnabled()) log.info("Wallet \"" + this.getWalletName() + "\" (" + this.wallet.getWalletHandle() + ") successfully opened.");
-        } catch (IndyException | InterruptedException | ExecutionException ex) {
+    public synchronized void createSubmitterDid() throws IndyConnectionException {
 
-            this.wallet = null;
-            throw new IndyConnectionException("Cannot open wallet \"" + this.getWalletName() + "\": " + ex.getMessage(), ex);
-        }
+        IndyFutures.await(this.createSubmitterDidAsync());
     }
 
-    public synchronized void createSubmitterDid() throws IndyConnectionException {
+    public CompletableFuture<Void> createSubmitterDidAsync() {
 
         // create submitter DID
 
-        try {
+        String submitterDidSeed = this.getSubmitterDidSeed();
+        if (submitterDidSeed != null && submitterDidSeed.isEmpty()) submitterDidSeed = null;
+        if ("_".equals(submitterDidSeed)) submitterDidSeed = null;
+        String seed = submitterDidSeed;
+        boolean randomSubmitterDid = submitterDidSeed == null;
+        String seedHash = randomSubmitterDid ? IndySubmitterDidIndex.RANDOM : IndyConnectionSnapshot.sha256(seed);
 
-            String submitterDidSeed = this.getSubmitterDidSeed();
-            if (submitterDidSeed != null && submitterDidSeed.isEmpty()) submitterDidSeed = null;
-            if ("_".equals(submitterDidSeed)) submitterDidSeed = null;
-            DidJSONParameters.CreateAndStoreMyDidJSONParameter createAndStoreMyDidJSONParameter = new DidJSONParameters.CreateAndStoreMyDidJSONParameter(null, submitterDidSeed, null, null);
-            DidResults.CreateAndStoreMyDidResult createAndStoreMyDidResult = Did.createAndStoreMyDid(this.getWallet(), createAndStoreMyDidJSONParameter.toJson()).get();
-            this.submitterDid = createAndStoreMyDidResult.getDid();
-            this.randomSubmitterDid = submitterDidSeed == null;
-            if (log.isInfoEnabled()) log.info("Submitter DID \"" + this.submitterDid + "\" (random: " + this.randomSubmitterDid + ") successfully created.");
-        } catch (IndyException | InterruptedException | ExecutionException ex) {
-
-            this.submitterDid = null;
-            throw new IndyConnectionException("Cannot create submitter DID: " + ex.getMessage(), ex);
-        }
+        // look up existing submitter DID in index, then in wallet
+
+        IndySubmitterDidIndex submitterDidIndex = this.getSubmitterDidIndex();
+        String indexedSubmitterDid = submitterDidIndex.get(this.getNetwork(), this.getWalletName(), seedHash);
+
+        CompletableFuture<String> existingSubmitterDid = this.withTimeout(IndyMetrics.CREATE_SUBMITTER_DID, this.getTimeouts().getOperationTimeout(IndyMetrics.CREATE_SUBMITTER_DID), indexedSubmitterDid == null ?
+                this.findSubmitterDidAsync(seedHash) :
+                this.hasMyDidAsync(indexedSubmitterDid).thenCompose(exists -> exists ? CompletableFuture.completedFuture(indexedSubmitterDid) : this.findSubmitterDidAsync(seedHash)));
+
+        // create submitter DID only if there is none yet
+
+        return existingSubmitterDid.thenCompose(submitterDid -> {
+            if (submitterDid != null) {
+                if (log.isInfoEnabled()) log.info("Submitter DID \"" + submitterDid + "\" (random: " + randomSubmitterDid + ") found in wallet \"" + this.getWalletName() + "\".");
+                return CompletableFuture.completedFuture(submitterDid);
+            }
+            return this.timeOperation(IndyMetrics.CREATE_SUBMITTER_DID, () -> this.getTransport().createAndStoreMyDid(this.walletHandle, seed)).thenCompose(myDid -> {
+                if (log.isInfoEnabled()) log.info("Submitter DID \"" + myDid.did() + "\" (random: " + randomSubmitterDid + ") successfully created.");
+                return this.getTransport().setDidMetadata(this.walletHandle, myDid.did(), new JSONObject().put(SUBMITTER_DID_SEED_HASH, seedHash).toString()).handle((result, ex) -> {
+                    if (ex != null && log.isWarnEnabled()) log.warn("Cannot mark submitter DID \"" + myDid.did() + "\" in wallet: " + IndyFutures.unwrap(ex).getMessage());
+                    return myDid.did();
+                });
+            });
+        }).handle((submitterDid, ex) -> {
+            if (ex != null) {
+                this.submitterDid = null;
+                submitterDidIndex.remove(this.getNetwork());
+                throw IndyFutures.failure("Cannot create submitter DID", ex);
+            }
+            this.submitterDid = submitterDid;
+            this.randomSubmitterDid = randomSubmitterDid;
+            submitterDidIndex.put(this.getNetwork(), this.getWalletName(), seedHash, submitterDid);
+            return null;
+        });
+    }
+
+    /**
+     * This looks for a submitter DID that has been created for the same seed (or a random one) in the wallet,
+     * by the metadata that is stored with the submitter DIDs created by this class.
+     * @return A future that completes with the submitter DID, or with null if there is none.
+     */
+    private CompletableFuture<String> findSubmitterDidAsync(String seedHash) {
+
+        return this.getTransport().getListMyDidsWithMeta(this.walletHandle).handle((didsWithMeta, ex) -> {
+            if (ex != null) {
+                if (log.isWarnEnabled()) log.warn("Cannot list DIDs in wallet \"" + this.getWalletName() + "\": " + IndyFutures.unwrap(ex).getMessage());
+                return null;
+            }
+            JSONArray jsonArray = new JSONArray(didsWithMeta);
+            for (int i=0; i<jsonArray.length(); i++) {
+                JSONObject jsonObject = jsonArray.optJSONObject(i);
+                String metadata = jsonObject == null ? null : jsonObject.optString("metadata", null);
+                if (metadata == null || ! metadata.startsWith("{")) continue;
+                try {
+                    if (seedHash.equals(new JSONObject(metadata).optString(SUBMITTER_DID_SEED_HASH, null))) return jsonObject.getString("did");
+                } catch (JSONException jex) {
+                    if (log.isDebugEnabled()) log.debug("Ignoring metadata of DID " + jsonObject.optString("did") + ": " + jex.getMessage());
+                }
+            }
+            return null;
+        });
+    }
+
+    private CompletableFuture<Boolean> hasMyDidAsync(String did) {
+
+        return this.getTransport().getMyDidWithMeta(this.walletHandle, did).handle((didWithMeta, ex) -> {
+            if (ex != null && log.isInfoEnabled()) log.info("DID \"" + did + "\" not found in wallet \"" + this.getWalletName() + "\": " + IndyFutures.unwrap(ex).getMessage());
+            return ex == null;
+        });
+    }
+
+    /**
+     * This checks if the current submitter DID is stored in the wallet, e.g. when it was taken from a snapshot.
+     * @return A future that completes with true if the submitter DID is stored in the wallet.
+     */
+    public CompletableFuture<Boolean> verifySubmitterDidAsync() {
+
+        String submitterDid = this.getSubmitterDid();
+        if (submitterDid == null) return CompletableFuture.completedFuture(Boolean.FALSE);
+
+        return this.hasMyDidAsync(submitterDid);
     }
 
     public synchronized void retrieveTaa() throws IndyConnectionException {
 
-        // retrieve TAA
+        IndyFutures.await(this.retrieveTaaAsync());
+    }
 
-        try {
+    public CompletableFuture<Void> retrieveTaaAsync() {
 
-            Pool.setProtocolVersion(this.getPoolVersion());
+        // retrieve TAA
 
-            String getTxnAuthorAgreementRequest = Ledger.buildGetTxnAuthorAgreementRequest(this.getSubmitterDid(), null).get();
-            String getTxnAuthorAgreementResult = Ledger.signAndSubmitRequest(this.getPool(), this.getWallet(), this.getSubmitterDid(), getTxnAuthorAgreementRequest).get();
+        IndyTransport transport = this.getTransport();
+        return this.timeOperation(IndyMetrics.RETRIEVE_TAA, () -> this.ledgerCall("GET_TXN_AUTHR_AGRMT", null, this.getCircuitBreaker(), () -> this.buildRequestAsync(() ->
+                transport.buildGetTxnAuthorAgreementRequest(this.getSubmitterDid(), null)
+        ).thenCompose(getTxnAuthorAgreementRequest ->
+                this.callPoolHandle(poolHandle -> transport.signAndSubmitRequest(poolHandle, this.walletHandle, this.getSubmitterDid(), getTxnAuthorAgreementRequest))
+        ))).handle((getTxnAuthorAgreementResult, ex) -> {
+            if (ex != null) {
+                this.taa = null;
+                this.taaVersion = null;
+                throw IndyFutures.failure("Cannot retrieve TAA", ex);
+            }
             if (log.isDebugEnabled()) log.debug("getTxnAuthorAgreementResult: (" + getTxnAuthorAgreementResult.length() + ") " + getTxnAuthorAgreementResult);
 
             JSONObject jsonObjectTAA = new JSONObject(getTxnAuthorAgreementResult);
@@ -225,11 +640,388 @@ public class IndyConnection {
             JSONObject jsonObjectTAAResultData = (jsonObjectTAAResult != null && jsonObjectTAAResult.has("data") && jsonObjectTAAResult.get("data") instanceof JSONObject) ? jsonObjectTAAResult.getJSONObject("data") : null;
             this.taa = jsonObjectTAAResultData == null ? null : jsonObjectTAAResultData.getString("text");
             this.taaVersion = jsonObjectTAAResultData == null ? null : jsonObjectTAAResultData.getString("version");
-        } catch (IndyException | InterruptedException | ExecutionException ex) {
+            return null;
+        });
+    }
+
+    public String getNym(String targetDid) throws IndyConnectionException {
+
+        return IndyFutures.await(this.getNymAsync(targetDid));
+    }
+
+    /**
+     * This reads a NYM from the ledger, using the ledger read cache if one is configured.
+     * Concurrent reads of the same NYM share a single request to the ledger.
+     * @param targetDid The DID whose NYM should be read.
+     * @return A future that completes with the GET_NYM response.
+     */
+    public CompletableFuture<String> getNymAsync(String targetDid) {
+
+        return this.getNymAsync(targetDid, null);
+    }
+
+    /**
+     * This reads a NYM from the ledger, using the ledger read cache if one is configured.
+     * @param targetDid The DID whose NYM should be read.
+     * @param deadline When the caller stops waiting for the response, or null. It shortens the GET_NYM timeout if it comes earlier.
+     * @return A future that completes with the GET_NYM response, or completes exceptionally once the deadline or timeout has passed.
+     */
+    public CompletableFuture<String> getNymAsync(String targetDid, Instant deadline) {
+
+        LedgerReadCache.Key key = new LedgerReadCache.Key(LedgerReadCache.GET_NYM, targetDid, null);
+        return this.readAsync(key, deadline, () -> this.getTransport().buildGetNymRequest(this.getSubmitterDid(), targetDid));
+    }
+
+    public String getAttrib(String targetDid, String raw, String hash, String enc) throws IndyConnectionException {
 
-            this.taa = null;
-            this.taaVersion = null;
-            throw new IndyConnectionException("Cannot retrieve TAA: " + ex.getMessage(), ex);
+        return IndyFutures.await(this.getAttribAsync(targetDid, raw, hash, enc));
+    }
+
+    /**
+     * This reads an ATTRIB from the ledger, using the ledger read cache if one is configured.
+     * Concurrent reads of the same ATTRIB share a single request to the ledger.
+     * @param targetDid The DID whose ATTRIB should be read.
+     * @param raw The name of a raw attribute, or null.
+     * @param hash The hash of an attribute, or null.
+     * @param enc The encrypted attribute, or null.
+     * @return A future that completes with the GET_ATTRIB response.
+     */
+    public CompletableFuture<String> getAttribAsync(String targetDid, String raw, String hash, String enc) {
+
+        return this.getAttribAsync(targetDid, raw, hash, enc, null);
+    }
+
+    /**
+     * This reads an ATTRIB from the ledger, using the ledger read cache if one is configured.
+     * @param deadline When the caller stops waiting for the response, or null. It shortens the GET_ATTRIB timeout if it comes earlier.
+     * @see #getAttribAsync(String, String, String, String)
+     */
+    public CompletableFuture<String> getAttribAsync(String targetDid, String raw, String hash, String enc, Instant deadline) {
+
+        LedgerReadCache.Key key = new LedgerReadCache.Key(LedgerReadCache.GET_ATTRIB, targetDid, raw + "|" + hash + "|" + enc);
+        return this.readAsync(key, deadline, () -> this.getTransport().buildGetAttribRequest(this.getSubmitterDid(), targetDid, raw, hash, enc));
+    }
+
+    private CompletableFuture<String> readAsync(LedgerReadCache.Key key, Instant deadline, Supplier<CompletableFuture<String>> buildRequest) {
+
+        this.touch();
+        LedgerReadCache ledgerReadCache = this.getLedgerReadCache();
+
+        if (ledgerReadCache != null) {
+            String cachedResult = ledgerReadCache.get(key);
+            if (cachedResult != null) {
+                if (log.isDebugEnabled()) log.debug("On connection " + this.getNetwork() + " found cached " + key.requestType() + " result for " + key.did());
+                return CompletableFuture.completedFuture(cachedResult);
+            }
+        }
+
+        if (deadline != null && ! Instant.now().isBefore(deadline)) return CompletableFuture.failedFuture(new IndyConnectionException("Deadline passed before " + key.requestType() + " on network " + this.getNetwork()));
+
+        // join an identical read that is already in flight, or start one
+
+        CompletableFuture<String> inFlightRead = new CompletableFuture<>();
+        CompletableFuture<String> existingRead = this.inFlightReads.putIfAbsent(key, inFlightRead);
+        if (existingRead != null) {
+            this.coalescedReadCount.increment();
+            if (log.isDebugEnabled()) log.debug("On connection " + this.getNetwork() + " joined in-flight " + key.requestType() + " for " + key.did());
+            return this.withDeadline(key.requestType(), deadline, existingRead);
+        }
+
+        // the read is shared, so it is only bounded by the timeout, and every caller waits until its own deadline
+        // its result is not cached if the cache is invalidated while it is in flight
+
+        long ledgerReadCacheGeneration = ledgerReadCache == null ? 0 : ledgerReadCache.getGeneration();
+        IndyTransport transport = this.getTransport();
+        this.ledgerCall(key.requestType(), null, this.getCircuitBreaker(), () -> this.buildRequestAsync(buildRequest)
+                .thenCompose(request -> this.callPoolHandle(poolHandle -> transport.submitRequest(poolHandle, request)))
+        ).whenComplete((result, ex) -> {
+            if (ex == null && ledgerReadCache != null) ledgerReadCache.put(key, result, ledgerReadCacheGeneration);
+            this.inFlightReads.remove(key, inFlightRead);
+            if (ex != null) inFlightRead.completeExceptionally(IndyFutures.failure("Cannot read " + key.requestType() + " for " + key.did(), ex).getCause());
+            else inFlightRead.complete(result);
+        });
+
+        return this.withDeadline(key.requestType(), deadline, inFlightRead);
+    }
+
+    /**
+     * This reads a transaction from a ledger with GET_TXN, without using the ledger read cache.
+     * @param ledgerType The ledger, e.g. DOMAIN, POOL or CONFIG.
+     * @param seqNo The sequence number of the transaction.
+     * @return A future that completes with the GET_TXN response, whose data is null if the ledger has no transaction with the sequence number.
+     */
+    public CompletableFuture<String> getTxnAsync(String ledgerType, int seqNo) {
+
+        IndyTransport transport = this.getTransport();
+        return this.ledgerCall("GET_TXN", null, this.getCircuitBreaker(), () -> this.buildRequestAsync(() -> transport.buildGetTxnRequest(this.getSubmitterDid(), ledgerType, seqNo))
+                .thenCompose(request -> this.callPoolHandle(poolHandle -> transport.submitRequest(poolHandle, request)))
+        ).handle((result, ex) -> {
+            if (ex != null) throw IndyFutures.failure("Cannot read GET_TXN " + seqNo + " from " + ledgerType + " ledger", ex);
+            return result;
+        });
+    }
+
+    /**
+     * This publishes the transactions of a ledger, reading up to a number of them in parallel ahead of the subscriber, see {@link IndyLedgerTxnPublisher}.
+     * To resume a scan, start a new publisher after the checkpoint of the previous one.
+     * @param ledgerType The ledger, e.g. DOMAIN, POOL or CONFIG.
+     * @param fromSeqNo The first sequence number, at least 1.
+     * @param toSeqNo The last sequence number, or null to read up to the end of the ledger.
+     * @param prefetch How many transactions are read ahead at most, e.g. {@link IndyLedgerTxnPublisher#DEFAULT_PREFETCH}.
+     * @return A publisher of the transactions, in the order of their sequence numbers.
+     */
+    public IndyLedgerTxnPublisher getTxnPublisher(String ledgerType, int fromSeqNo, Integer toSeqNo, int prefetch) {
+
+        return new IndyLedgerTxnPublisher(seqNo -> this.getTxnAsync(ledgerType, seqNo), fromSeqNo, toSeqNo, prefetch);
+    }
+
+    public String submitRequest(String request) throws IndyConnectionException {
+
+        return IndyFutures.await(this.submitRequestAsync(request));
+    }
+
+    public String signAndSubmitRequest(String request) throws IndyConnectionException {
+
+        return IndyFutures.await(this.signAndSubmitRequestAsync(request));
+    }
+
+    /**
+     * This submits a request to the ledger within the request window of this connection.
+     * While the window is full, the request is queued without blocking the calling thread, and sent when a request in flight has completed (see {@link IndyRequestWindow}).
+     * @param request The request, e.g. from one of the request builders of the Indy SDK.
+     * @return A future that completes with the response.
+     */
+    public CompletableFuture<String> submitRequestAsync(String request) {
+
+        return this.submitRequestAsync(request, null);
+    }
+
+    /**
+     * This submits a request to the ledger within the request window of this connection.
+     * @param deadline When the caller stops waiting for the response, or null. It bounds the wait for room in the window, and shortens the SUBMIT timeout if it comes earlier.
+     * @see #submitRequestAsync(String)
+     */
+    public CompletableFuture<String> submitRequestAsync(String request, Instant deadline) {
+
+        return this.submitAsync(CompletableFuture.completedFuture(request), deadline);
+    }
+
+    /**
+     * This signs a request with the submitter DID and submits it to the ledger within the request window of this connection.
+     * Signing starts before waiting for room in the window, so it overlaps with the requests in flight.
+     * @param request The request, e.g. from one of the request builders of the Indy SDK.
+     * @return A future that completes with the response.
+     */
+    public CompletableFuture<String> signAndSubmitRequestAsync(String request) {
+
+        return this.signAndSubmitRequestAsync(request, null);
+    }
+
+    /**
+     * This signs a request with the submitter DID and submits it to the ledger within the request window of this connection.
+     * @param deadline When the caller stops waiting for the response, or null. It bounds the wait for room in the window, and shortens the SUBMIT timeout if it comes earlier.
+     * @see #signAndSubmitRequestAsync(String)
+     */
+    public CompletableFuture<String> signAndSubmitRequestAsync(String request, Instant deadline) {
+
+        return this.submitAsync(this.signRequestAsync(request), deadline);
+    }
+
+    /**
+     * This submits a batch of requests to the ledger, pipelined within the request window of this connection.
+     * While the window is full, the remaining requests are queued and sent as requests in flight complete, so a large batch reaches the pool at its pace.
+     * @param requests The requests.
+     * @param sign Whether to sign the requests with the submitter DID.
+     * @return Futures that complete with the responses, in the order of the requests.
+     */
+    public List<CompletableFuture<String>> submitRequestsAsync(List<String> requests, boolean sign) {
+
+        List<CompletableFuture<String>> futures = new ArrayList<>(requests.size());
+        for (String request : requests) futures.add(sign ? this.signAndSubmitRequestAsync(request) : this.submitRequestAsync(request));
+        return futures;
+    }
+
+    private CompletableFuture<String> signRequestAsync(String request) {
+
+        String submitterDid = this.getSubmitterDid();
+        if (submitterDid == null) return CompletableFuture.failedFuture(new IndyConnectionException("No submitter DID for network " + this.getNetwork()));
+        return this.getTransport().signRequest(this.walletHandle, submitterDid, request);
+    }
+
+    private CompletableFuture<String> submitAsync(CompletableFuture<String> request, Instant deadline) {
+
+        IndyTransport transport = this.getTransport();
+        return this.ledgerCall("SUBMIT", deadline, this.getCircuitBreaker(), this.getRequestWindow(), () -> request.thenCompose(signedRequest ->
+                this.callPoolHandle(poolHandle -> transport.submitRequest(poolHandle, signedRequest))
+        )).handle((result, ex) -> {
+            if (ex != null) throw IndyFutures.failure("Cannot submit request on network " + this.getNetwork(), ex);
+            return result;
+        });
+    }
+
+    /**
+     * This builds a request with the protocol version of this connection (see {@link PoolVersionDispatcher}).
+     * Only building is dispatched, so the protocol version is released before the request is submitted.
+     */
+    private CompletableFuture<String> buildRequestAsync(Supplier<CompletableFuture<String>> buildRequest) {
+
+        return this.getTransport().getPoolVersionDispatcher().dispatch(this.getPoolVersion(), buildRequest);
+    }
+
+    /**
+     * This runs a call on the least busy pool handle of this connection.
+     * @param call The call, which is given the selected pool handle.
+     * @return A future that completes with the result of the call.
+     */
+    public <T> CompletableFuture<T> callPoolHandle(Function<IndyTransport.PoolHandle, CompletableFuture<T>> call) {
+
+        IndyPoolHandles poolHandles = this.poolHandles;
+        if (poolHandles == null) return CompletableFuture.failedFuture(new IndyConnectionException("Pool for network " + this.getNetwork() + " is not open."));
+        return poolHandles.call(call);
+    }
+
+    /**
+     * This runs a libindy call on the least busy pool handle of this connection, e.g. for ledger requests that the transport does not cover.
+     * This only works with the {@link LibIndyTransport}.
+     * @param call The call, which is given the libindy pool of the selected pool handle.
+     * @return A future that completes with the result of the call.
+     */
+    public <T> CompletableFuture<T> callPool(Function<Pool, CompletableFuture<T>> call) {
+
+        return this.callPoolHandle(poolHandle -> call.apply(LibIndyTransport.getPool(poolHandle)));
+    }
+
+    /**
+     * This records the metrics of an operation, and bounds it by its timeout.
+     */
+    private <T> CompletableFuture<T> timeOperation(String operation, Supplier<CompletableFuture<T>> call) {
+
+        long startNanos = System.nanoTime();
+        IndyOperationEvent event = new IndyOperationEvent();
+        event.begin();
+
+        return this.withTimeout(operation, this.getTimeouts().getOperationTimeout(operation), supply(call).whenComplete((result, ex) -> {
+            this.getIndyMetrics().recordOperation(this.getNetwork(), operation, System.nanoTime() - startNanos, ex == null);
+            event.end();
+            if (event.shouldCommit()) {
+                event.network = this.getNetwork();
+                event.operation = operation;
+                event.success = ex == null;
+                event.commit();
+            }
+        }));
+    }
+
+    /**
+     * This records the metrics of a ledger call, and bounds it by its timeout or by the deadline of the caller, whichever comes first.
+     * The call is not made if the deadline has passed or if the circuit breaker is open. The metrics and the number of requests in flight
+     * follow the call itself, while the circuit breaker counts a timeout as a failure.
+     * @param deadline When the caller stops waiting for the response, or null.
+     * @param circuitBreaker The circuit breaker that guards the call, or null.
+     */
+    private <T> CompletableFuture<T> ledgerCall(String requestType, Instant deadline, IndyCircuitBreaker circuitBreaker, Supplier<CompletableFuture<T>> call) {
+
+        return this.ledgerCall(requestType, deadline, circuitBreaker, null, call);
+    }
+
+    /**
+     * This makes a ledger call like {@link #ledgerCall(String, Instant, IndyCircuitBreaker, Supplier)}, within a request window.
+     * The call keeps its place in the window until the call itself has completed, also after its timeout, so the window bounds
+     * the requests that are really in flight on the pool. The wait for room in the window is bounded by the deadline.
+     * @param requestWindow The request window, or null.
+     */
+    private <T> CompletableFuture<T> ledgerCall(String requestType, Instant deadline, IndyCircuitBreaker circuitBreaker, IndyRequestWindow requestWindow, Supplier<CompletableFuture<T>> call) {
+
+        this.touch();
+
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicBoolean acquired = new AtomicBoolean();
+        Supplier<CompletableFuture<T>> startLedgerCall = () -> this.startLedgerCall(requestType, deadline, circuitBreaker, acquired, call, result);
+
+        CompletableFuture<T> future = requestWindow == null ? supply(startLedgerCall) : requestWindow.submit(startLedgerCall, deadline == null ? null : Duration.between(Instant.now(), deadline));
+        future.whenComplete((x, ex) -> {
+            this.touch();
+            completeLedgerCall(circuitBreaker, acquired, result, x, ex);
+            this.completeIdleFutures();
+        });
+        return result;
+    }
+
+    /**
+     * This starts a ledger call, and fails the result once the timeout has passed.
+     * @param acquired Set if the circuit breaker lets the call through, so its outcome is reported to the circuit breaker once.
+     * @return The future of the call itself, which only completes when the transport has completed the call.
+     */
+    private <T> CompletableFuture<T> startLedgerCall(String requestType, Instant deadline, IndyCircuitBreaker circuitBreaker, AtomicBoolean acquired, Supplier<CompletableFuture<T>> call, CompletableFuture<T> result) {
+
+        Duration timeout = this.getTimeouts().getLedgerCallTimeout(requestType);
+        if (deadline != null) {
+            Duration remaining = Duration.between(Instant.now(), deadline);
+            if (remaining.isNegative() || remaining.isZero()) return CompletableFuture.failedFuture(new IndyConnectionException("Deadline passed before " + requestType + " on network " + this.getNetwork()));
+            if (remaining.compareTo(timeout) < 0) timeout = remaining;
+        }
+        if (circuitBreaker != null) {
+            if (! circuitBreaker.tryAcquire()) return CompletableFuture.failedFuture(new IndyConnectionException("Circuit breaker for network " + this.getNetwork() + " is open, not sending " + requestType));
+            acquired.set(true);
+        }
+
+        long startNanos = System.nanoTime();
+        IndyLedgerCallEvent event = new IndyLedgerCallEvent();
+        event.begin();
+        this.inFlightRequests.incrementAndGet();
+
+        CompletableFuture<T> future = supply(call).whenComplete((x, ex) -> {
+            this.inFlightRequests.decrementAndGet();
+            this.getIndyMetrics().recordLedgerCall(this.getNetwork(), requestType, System.nanoTime() - startNanos, ex == null);
+            event.end();
+            if (event.shouldCommit()) {
+                event.network = this.getNetwork();
+                event.requestType = requestType;
+                event.success = ex == null;
+                event.commit();
+            }
+        });
+
+        this.withTimeout(requestType, timeout, future).whenComplete((x, ex) -> {
+            if (ex != null && ! future.isDone()) completeLedgerCall(circuitBreaker, acquired, result, null, ex);
+        });
+        return future;
+    }
+
+    private static <T> void completeLedgerCall(IndyCircuitBreaker circuitBreaker, AtomicBoolean acquired, CompletableFuture<T> result, T value, Throwable ex) {
+
+        if (circuitBreaker != null && acquired.getAndSet(false)) {
+            if (ex == null) circuitBreaker.onSuccess(); else circuitBreaker.onFailure();
+        }
+        if (ex == null) result.complete(value); else result.completeExceptionally(ex);
+    }
+
+    /**
+     * This gives a caller its own view of a shared future, which stops waiting at the deadline of the caller, if there is one.
+     */
+    private <T> CompletableFuture<T> withDeadline(String name, Instant deadline, CompletableFuture<T> future) {
+
+        if (deadline == null) return future.copy();
+        return this.withTimeout(name, Duration.between(Instant.now(), deadline), future.copy());
+    }
+
+    /**
+     * This stops waiting for a future after a timeout. It does not cancel the call behind the future, which libindy cannot do.
+     */
+    private <T> CompletableFuture<T> withTimeout(String name, Duration timeout, CompletableFuture<T> future) {
+
+        if (future.isDone()) return future;
+        return future.copy().orTimeout(timeout.toNanos(), TimeUnit.NANOSECONDS).exceptionally(ex -> {
+            if (IndyFutures.unwrap(ex) instanceof TimeoutException) throw new CompletionException(new IndyConnectionException("Timeout after " + timeout + " for " + name + " on network " + this.getNetwork()));
+            throw IndyFutures.rethrow(ex);
+        });
+    }
+
+    private static <T> CompletableFuture<T> supply(Supplier<CompletableFuture<T>> call) {
+        try {
+            return call.get();
+        } catch (RuntimeException ex) {
+            return CompletableFuture.failedFuture(ex);
         }
     }
 
@@ -255,6 +1047,7 @@ public class IndyConnection {
 
     public void setNetwork(String network) {
         this.network = network;
+        this.nativeHandles.setNetwork(network);
     }
 
     public String getPoolConfigName() {
@@ -345,20 +1138,44 @@ public class IndyConnection {
         this.genesisTimestamp = genesisTimestamp;
     }
 
+    public Integer getPoolHandleCount() {
+        return poolHandleCount == null ? 1 : poolHandleCount;
+    }
+
+    public void setPoolHandleCount(Integer poolHandleCount) {
+        this.poolHandleCount = poolHandleCount;
+    }
+
+    /**
+     * The libindy pool of the first pool handle, or null if the pool is not open or this connection does not use the {@link LibIndyTransport}.
+     */
     public Pool getPool() {
-        return pool;
+        IndyPoolHandles poolHandles = this.poolHandles;
+        return poolHandles == null || ! (this.transport instanceof LibIndyTransport) ? null : LibIndyTransport.getPool(poolHandles.getPoolHandle(0));
     }
 
     public void setPool(Pool pool) {
-        this.pool = pool;
+        this.poolHandles = pool == null ? null : new IndyPoolHandles(List.of(LibIndyTransport.toPoolHandle(pool)));
     }
 
+    public IndyPoolHandles getPoolHandles() {
+        return poolHandles;
+    }
+
+    /**
+     * The libindy wallet, or null if the wallet is not open or this connection does not use the {@link LibIndyTransport}.
+     */
     public Wallet getWallet() {
-        return wallet;
+        IndyTransport.WalletHandle walletHandle = this.walletHandle;
+        return walletHandle == null || ! (this.transport instanceof LibIndyTransport) ? null : LibIndyTransport.getWallet(walletHandle);
     }
 
     public void setWallet(Wallet wallet) {
-        this.wallet = wallet;
+        this.walletHandle = LibIndyTransport.toWalletHandle(wallet);
+    }
+
+    public IndyTransport.WalletHandle getWalletHandle() {
+        return walletHandle;
     }
 
     public String getSubmitterDid() {
@@ -393,11 +1210,177 @@ public class IndyConnection {
         this.taaVersion = taaVersion;
     }
 
+    public LedgerReadCache getLedgerReadCache() {
+        return ledgerReadCache;
+    }
+
+    public void setLedgerReadCache(LedgerReadCache ledgerReadCache) {
+        this.ledgerReadCache = ledgerReadCache;
+    }
+
+    /**
+     * Records that this connection has been used, when it is handed out by the connector and when a ledger call starts or completes, see {@link #getIdleNanos()}.
+     */
+    public void touch() {
+        this.lastUsedNanos = System.nanoTime();
+    }
+
+    public long getIdleNanos() {
+        return System.nanoTime() - this.lastUsedNanos;
+    }
+
+    /**
+     * Whether ledger calls are in flight on this connection, or waiting for room in its request window.
+     */
+    public boolean isBusy() {
+        IndyRequestWindow requestWindow = this.getRequestWindow();
+        return this.getInFlightRequests() > 0 || (requestWindow != null && (requestWindow.getInFlight() > 0 || requestWindow.getWaiting() > 0));
+    }
+
+    /**
+     * @return A future that completes once this connection is no longer busy, i.e. when the last ledger call in flight has completed, see {@link #isBusy()}.
+     */
+    public CompletableFuture<Void> idleAsync() {
+
+        CompletableFuture<Void> idleFuture = new CompletableFuture<>();
+        this.idleFutures.add(idleFuture);
+        this.completeIdleFutures();
+        return idleFuture;
+    }
+
+    private void completeIdleFutures() {
+
+        if (this.idleFutures.isEmpty() || this.isBusy()) return;
+        CompletableFuture<Void> idleFuture;
+        while ((idleFuture = this.idleFutures.poll()) != null) idleFuture.complete(null);
+    }
+
+    public Duration getPoolRefreshInterval() {
+        return poolRefreshInterval;
+    }
+
+    /**
+     * @param poolRefreshInterval How often to refresh the pool in the background (see {@link #refreshPoolAsync()}), or null to not refresh it.
+     */
+    public void setPoolRefreshInterval(Duration poolRefreshInterval) {
+        this.poolRefreshInterval = poolRefreshInterval;
+    }
+
+    /**
+     * The time when the pool has last been refreshed, or null if it has not been refreshed.
+     */
+    public Instant getLastPoolRefreshTime() {
+        return lastPoolRefreshTime;
+    }
+
+    public IndyConnectionHealth getHealth() {
+        return health;
+    }
+
+    public int getInFlightRequests() {
+        return inFlightRequests.get();
+    }
+
+    /**
+     * The number of reads that have joined an identical read already in flight, instead of sending their own request.
+     */
+    public long getCoalescedReadCount() {
+        return coalescedReadCount.sum();
+    }
+
+    public IndyMetrics getIndyMetrics() {
+        return indyMetrics;
+    }
+
+    /**
+     * @param indyMetrics The metrics to record to. This has no other effect, the in-flight gauge of a connection is registered
+     *                    by {@link IndyConnector#setIndyConnections(Map)} once the connection is in use.
+     */
+    public void setIndyMetrics(IndyMetrics indyMetrics) {
+        this.indyMetrics = indyMetrics == null ? IndyMetrics.NOOP : indyMetrics;
+    }
+
+    public IndyWalletConfig getWalletConfig() {
+        return walletConfig;
+    }
+
+    public void setWalletConfig(IndyWalletConfig walletConfig) {
+        this.walletConfig = walletConfig;
+        this.cachedWalletKey = null;
+    }
+
+    public boolean isCacheWalletKey() {
+        return cacheWalletKey;
+    }
+
+    public void setCacheWalletKey(boolean cacheWalletKey) {
+        this.cacheWalletKey = cacheWalletKey;
+        if (! cacheWalletKey) this.cachedWalletKey = null;
+    }
+
+    public Duration getCloseTimeout() {
+        return closeTimeout;
+    }
+
+    public void setCloseTimeout(Duration closeTimeout) {
+        this.closeTimeout = closeTimeout;
+    }
+
+    /**
+     * The pool and wallet handles that this connection has opened and not closed yet.
+     */
+    public IndyNativeHandles getNativeHandles() {
+        return nativeHandles;
+    }
+
+    public IndySubmitterDidIndex getSubmitterDidIndex() {
+        return submitterDidIndex;
+    }
+
+    public void setSubmitterDidIndex(IndySubmitterDidIndex submitterDidIndex) {
+        this.submitterDidIndex = submitterDidIndex;
+    }
+
+    public IndyRequestWindow getRequestWindow() {
+        return requestWindow;
+    }
+
+    public void setRequestWindow(IndyRequestWindow requestWindow) {
+        this.requestWindow = requestWindow;
+    }
+
+    public IndyTimeouts getTimeouts() {
+        return timeouts;
+    }
+
+    public void setTimeouts(IndyTimeouts timeouts) {
+        this.timeouts = timeouts;
+    }
+
+    public IndyCircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /**
+     * @param circuitBreaker The circuit breaker for the ledger calls of this connection, or null for none.
+     */
+    public void setCircuitBreaker(IndyCircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    public IndyTransport getTransport() {
+        return transport;
+    }
+
+    public void setTransport(IndyTransport transport) {
+        this.transport = transport;
+    }
+
     /*
      * Object methods
      */
 
     public String toString() {
-        return this.getNetwork() + " / " + this.getPoolVersion() + " / " + this.getPool();
+        return this.getNetwork() + " / " + this.getPoolVersion() + " / " + this.getPoolHandles();
     }
 }
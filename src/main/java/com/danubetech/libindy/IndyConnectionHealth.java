@@ -0,0 +1,173 @@
+package com.danubetech.libindy;
+
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The results of the health checks of an Indy connection: probe latencies, failures, and reconnection attempts.
+ */
+public class IndyConnectionHealth {
+
+    private static final double LATENCY_SMOOTHING = 0.2;
+    private static final int HISTORY_SIZE = 32;
+
+    private long probeCount;
+    private long failureCount;
+    private int consecutiveFailures;
+    private long lastLatencyNanos = -1;
+    private double averageLatencyNanos = -1;
+    private Instant lastSuccessTime;
+    private Instant lastFailureTime;
+    private String lastFailureMessage;
+    private long history;
+    private int historySize;
+
+    private int reconnectAttempts;
+    private long reconnectCount;
+    private Instant lastReconnectTime;
+    private long nextReconnectNanos;
+    private CompletableFuture<Void> reconnectFuture;
+
+    private int failureThreshold = 3;
+
+    public synchronized void recordSuccess(long latencyNanos) {
+        this.probeCount++;
+        this.consecutiveFailures = 0;
+        this.lastLatencyNanos = latencyNanos;
+        this.averageLatencyNanos = this.averageLatencyNanos < 0 ? latencyNanos : (LATENCY_SMOOTHING * latencyNanos + (1 - LATENCY_SMOOTHING) * this.averageLatencyNanos);
+        this.lastSuccessTime = Instant.now();
+        this.addHistory(true);
+    }
+
+    public synchronized void recordFailure(String message) {
+        this.probeCount++;
+        this.failureCount++;
+        this.consecutiveFailures++;
+        this.lastFailureTime = Instant.now();
+        this.lastFailureMessage = message;
+        this.addHistory(false);
+    }
+
+    private void addHistory(boolean success) {
+        this.history = (this.history << 1) | (success ? 0 : 1);
+        this.historySize = Math.min(HISTORY_SIZE, this.historySize + 1);
+    }
+
+    /**
+     * Whether the last probes failed at least as often as the failure threshold, in a row.
+     */
+    public synchronized boolean isDegraded() {
+        return this.consecutiveFailures >= this.failureThreshold;
+    }
+
+    /**
+     * The number of failed probes among the most recent ones (up to 32).
+     */
+    public synchronized int getRecentFailures() {
+        return Long.bitCount(this.history & ((1L << this.historySize) - 1));
+    }
+
+    public synchronized int getRecentProbes() {
+        return this.historySize;
+    }
+
+    /*
+     * Reconnection
+     */
+
+    synchronized boolean startReconnect(long nowNanos, CompletableFuture<Void> reconnectFuture) {
+        if (this.reconnectFuture != null) return false;
+        if (this.reconnectAttempts > 0 && nowNanos - this.nextReconnectNanos < 0) return false;
+        this.reconnectFuture = reconnectFuture;
+        return true;
+    }
+
+    /**
+     * @return The future of the running reconnection, or null if no reconnection is running.
+     */
+    synchronized CompletableFuture<Void> getReconnectFuture() {
+        return this.reconnectFuture;
+    }
+
+    synchronized void reconnected() {
+        this.reconnectAttempts = 0;
+        this.reconnectCount++;
+        this.lastReconnectTime = Instant.now();
+        this.consecutiveFailures = 0;
+        this.reconnectFuture = null;
+    }
+
+    synchronized void reconnectFailed(long nowNanos, long backoffNanos) {
+        this.reconnectAttempts++;
+        this.nextReconnectNanos = nowNanos + backoffNanos;
+        this.reconnectFuture = null;
+    }
+
+    /*
+     * Getters and setters
+     */
+
+    public synchronized long getProbeCount() {
+        return probeCount;
+    }
+
+    public synchronized long getFailureCount() {
+        return failureCount;
+    }
+
+    public synchronized int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    public synchronized long getLastLatencyNanos() {
+        return lastLatencyNanos;
+    }
+
+    public synchronized double getAverageLatencyNanos() {
+        return averageLatencyNanos;
+    }
+
+    public synchronized Instant getLastSuccessTime() {
+        return lastSuccessTime;
+    }
+
+    public synchronized Instant getLastFailureTime() {
+        return lastFailureTime;
+    }
+
+    public synchronized String getLastFailureMessage() {
+        return lastFailureMessage;
+    }
+
+    public synchronized int getReconnectAttempts() {
+        return reconnectAttempts;
+    }
+
+    public synchronized long getReconnectCount() {
+        return reconnectCount;
+    }
+
+    public synchronized Instant getLastReconnectTime() {
+        return lastReconnectTime;
+    }
+
+    public synchronized boolean isReconnecting() {
+        return reconnectFuture != null;
+    }
+
+    public synchronized int getFailureThreshold() {
+        return failureThreshold;
+    }
+
+    public synchronized void setFailureThreshold(int failureThreshold) {
+        this.failureThreshold = failureThreshold;
+    }
+
+    /*
+     * Object methods
+     */
+
+    public synchronized String toString() {
+        return "probes=" + this.probeCount + ", failures=" + this.failureCount + " (" + this.consecutiveFailures + " in a row), averageLatency=" + (this.averageLatencyNanos < 0 ? "-" : (Math.round(this.averageLatencyNanos / 1000000) + "ms")) + ", reconnects=" + this.reconnectCount + (this.reconnectAttempts > 0 ? (" (" + this.reconnectAttempts + " failed attempts)") : "");
+    }
+}
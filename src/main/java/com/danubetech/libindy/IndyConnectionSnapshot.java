@@ -0,0 +1,222 @@
+package com.danubetech.libindy;
+
+import org.json.JSONObject;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Objects;
+
+/**
+ * The submitter DID and Transaction Author Agreement of an Indy connection, as stored in a snapshot file.
+ * A snapshot only applies to a connection with the same wallet name and submitter DID seed.
+ * The seed itself is not stored, only an HMAC of it that is keyed by the wallet key, which is not stored in the snapshot file.
+ */
+public class IndyConnectionSnapshot {
+
+    private String network;
+    private String walletName;
+    private String submitterDidSeedHmac;
+    private String submitterDid;
+    private Boolean randomSubmitterDid;
+    private String taa;
+    private String taaVersion;
+    private String taaDigest;
+
+    public IndyConnectionSnapshot(String network, String walletName, String submitterDidSeedHmac, String submitterDid, Boolean randomSubmitterDid, String taa, String taaVersion, String taaDigest) {
+        this.network = network;
+        this.walletName = walletName;
+        this.submitterDidSeedHmac = submitterDidSeedHmac;
+        this.submitterDid = submitterDid;
+        this.randomSubmitterDid = randomSubmitterDid;
+        this.taa = taa;
+        this.taaVersion = taaVersion;
+        this.taaDigest = taaDigest;
+    }
+
+    public IndyConnectionSnapshot() {
+    }
+
+    public static IndyConnectionSnapshot fromIndyConnection(IndyConnection indyConnection) {
+        return new IndyConnectionSnapshot(
+                indyConnection.getNetwork(),
+                indyConnection.getWalletName(),
+                submitterDidSeedHmac(indyConnection),
+                indyConnection.getSubmitterDid(),
+                indyConnection.isRandomSubmitterDid(),
+                indyConnection.getTaa(),
+                indyConnection.getTaaVersion(),
+                taaDigest(indyConnection.getTaaVersion(), indyConnection.getTaa()));
+    }
+
+    public static IndyConnectionSnapshot fromJSONObject(String network, JSONObject jsonObject) {
+        return new IndyConnectionSnapshot(
+                network,
+                jsonObject.optString("walletName", null),
+                jsonObject.optString("submitterDidSeedHmac", null),
+                jsonObject.optString("submitterDid", null),
+                jsonObject.optBoolean("randomSubmitterDid", false),
+                jsonObject.optString("taa", null),
+                jsonObject.optString("taaVersion", null),
+                jsonObject.optString("taaDigest", null));
+    }
+
+    public JSONObject toJSONObject() {
+        JSONObject jsonObject = new JSONObject();
+        jsonObject.put("walletName", this.getWalletName());
+        jsonObject.put("submitterDidSeedHmac", this.getSubmitterDidSeedHmac());
+        jsonObject.put("submitterDid", this.getSubmitterDid());
+        jsonObject.put("randomSubmitterDid", this.isRandomSubmitterDid());
+        jsonObject.put("taa", this.getTaa());
+        jsonObject.put("taaVersion", this.getTaaVersion());
+        jsonObject.put("taaDigest", this.getTaaDigest());
+        return jsonObject;
+    }
+
+    /**
+     * Whether this snapshot can be used for an Indy connection, i.e. it has a submitter DID which was created
+     * in the same wallet from the same seed.
+     */
+    public boolean matches(IndyConnection indyConnection) {
+        return this.getSubmitterDid() != null
+                && Objects.equals(this.getWalletName(), indyConnection.getWalletName())
+                && Objects.equals(this.getSubmitterDidSeedHmac(), submitterDidSeedHmac(indyConnection));
+    }
+
+    public void applyTo(IndyConnection indyConnection, boolean submitterDid, boolean taa) {
+        if (submitterDid) {
+            indyConnection.setSubmitterDid(this.getSubmitterDid());
+            indyConnection.setRandomSubmitterDid(this.isRandomSubmitterDid());
+        }
+        if (taa) {
+            indyConnection.setTaa(this.getTaa());
+            indyConnection.setTaaVersion(this.getTaaVersion());
+        }
+    }
+
+    /**
+     * The TAA digest as defined by Indy: the SHA-256 hash of the concatenated TAA version and text.
+     */
+    public static String taaDigest(String taaVersion, String taa) {
+        if (taaVersion == null || taa == null) return null;
+        return sha256(taaVersion + taa);
+    }
+
+    /**
+     * The HMAC-SHA256 of the submitter DID seed of an Indy connection, keyed by its wallet key.
+     */
+    static String submitterDidSeedHmac(IndyConnection indyConnection) {
+        String submitterDidSeed = indyConnection.getSubmitterDidSeed();
+        String walletKey = indyConnection.getWalletConfig().getKey();
+        if (submitterDidSeed == null || walletKey == null || walletKey.isEmpty()) return null;
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(walletKey.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            return HexFormat.of().formatHex(mac.doFinal(submitterDidSeed.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException(ex.getMessage(), ex);
+        }
+    }
+
+    static String sha256(String string) {
+        if (string == null) return null;
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(string.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex.getMessage(), ex);
+        }
+    }
+
+    /*
+     * Getters and setters
+     */
+
+    public String getNetwork() {
+        return network;
+    }
+
+    public void setNetwork(String network) {
+        this.network = network;
+    }
+
+    public String getWalletName() {
+        return walletName;
+    }
+
+    public void setWalletName(String walletName) {
+        this.walletName = walletName;
+    }
+
+    public String getSubmitterDidSeedHmac() {
+        return submitterDidSeedHmac;
+    }
+
+    public void setSubmitterDidSeedHmac(String submitterDidSeedHmac) {
+        this.submitterDidSeedHmac = submitterDidSeedHmac;
+    }
+
+    public String getSubmitterDid() {
+        return submitterDid;
+    }
+
+    public void setSubmitterDid(String submitterDid) {
+        this.submitterDid = submitterDid;
+    }
+
+    public Boolean isRandomSubmitterDid() {
+        return randomSubmitterDid;
+    }
+
+    public void setRandomSubmitterDid(Boolean randomSubmitterDid) {
+        this.randomSubmitterDid = randomSubmitterDid;
+    }
+
+    public String getTaa() {
+        return taa;
+    }
+
+    public void setTaa(String taa) {
+        this.taa = taa;
+    }
+
+    public String getTaaVersion() {
+        return taaVersion;
+    }
+
+    public void setTaaVersion(String taaVersion) {
+        this.taaVersion = taaVersion;
+    }
+
+    public String getTaaDigest() {
+        return taaDigest;
+    }
+
+    public void setTaaDigest(String taaDigest) {
+        this.taaDigest = taaDigest;
+    }
+
+    /*
+     * Object methods
+     */
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        IndyConnectionSnapshot that = (IndyConnectionSnapshot) o;
+        return Objects.equals(network, that.network) && Objects.equals(walletName, that.walletName) && Objects.equals(submitterDidSeedHmac, that.submitterDidSeedHmac) && Objects.equals(submitterDid, that.submitterDid) && Objects.equals(randomSubmitterDid, that.randomSubmitterDid) && Objects.equals(taaVersion, that.taaVersion) && Objects.equals(taaDigest, that.taaDigest);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(network, walletName, submitterDidSeedHmac, submitterDid, randomSubmitterDid, taaVersion, taaDigest);
+    }
+
+    public String toString() {
+        return this.getNetwork() + " / " + this.getSubmitterDid() + " / " + this.getTaaVersion() + " / " + this.getTaaDigest();
+    }
+}
@@ -0,0 +1,90 @@
+package com.danubetech.libindy;
+
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A local file with the snapshots of all Indy connections of a connector, keyed by network.
+ */
+public class IndyConnectionSnapshotFile {
+
+    private static final Logger log = LoggerFactory.getLogger(IndyConnectionSnapshotFile.class);
+
+    private final Path path;
+    private final Map<String, IndyConnectionSnapshot> snapshots = new LinkedHashMap<>();
+
+    public IndyConnectionSnapshotFile(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * Loads the snapshots from the file. A missing or unreadable file results in no snapshots.
+     */
+    public synchronized Map<String, IndyConnectionSnapshot> load() {
+
+        this.snapshots.clear();
+        if (! Files.exists(this.path)) {
+            if (log.isInfoEnabled()) log.info("No Indy connection snapshot file at " + this.path);
+            return this.getSnapshots();
+        }
+
+        try {
+            JSONObject jsonObject = new JSONObject(Files.readString(this.path, StandardCharsets.UTF_8));
+            for (String network : jsonObject.keySet()) {
+                this.snapshots.put(network, IndyConnectionSnapshot.fromJSONObject(network, jsonObject.getJSONObject(network)));
+            }
+            if (log.isInfoEnabled()) log.info("Loaded " + this.snapshots.size() + " Indy connection snapshots from " + this.path + ": " + this.snapshots.keySet());
+        } catch (IOException | RuntimeException ex) {
+            if (log.isWarnEnabled()) log.warn("Cannot load Indy connection snapshot file " + this.path + ": " + ex.getMessage(), ex);
+            this.snapshots.clear();
+        }
+
+        return this.getSnapshots();
+    }
+
+    /**
+     * Stores the snapshot of a network and writes the file, if the snapshot has changed.
+     * @return Whether the snapshot has changed.
+     */
+    public synchronized boolean update(IndyConnectionSnapshot snapshot) {
+
+        if (snapshot.equals(this.snapshots.get(snapshot.getNetwork()))) return false;
+        this.snapshots.put(snapshot.getNetwork(), snapshot);
+
+        JSONObject jsonObject = new JSONObject();
+        for (IndyConnectionSnapshot networkSnapshot : this.snapshots.values()) jsonObject.put(networkSnapshot.getNetwork(), networkSnapshot.toJSONObject());
+
+        try {
+            Path absolutePath = this.path.toAbsolutePath();
+            if (absolutePath.getParent() != null) Files.createDirectories(absolutePath.getParent());
+            Path temporaryPath = absolutePath.resolveSibling(absolutePath.getFileName() + ".tmp");
+            Files.writeString(temporaryPath, jsonObject.toString(2), StandardCharsets.UTF_8);
+            Files.move(temporaryPath, absolutePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            if (log.isInfoEnabled()) log.info("Updated Indy connection snapshot for network " + snapshot.getNetwork() + " in " + this.path + ": " + snapshot);
+        } catch (IOException ex) {
+            if (log.isWarnEnabled()) log.warn("Cannot write Indy connection snapshot file " + this.path + ": " + ex.getMessage(), ex);
+        }
+
+        return true;
+    }
+
+    public synchronized IndyConnectionSnapshot getSnapshot(String network) {
+        return this.snapshots.get(network);
+    }
+
+    public synchronized Map<String, IndyConnectionSnapshot> getSnapshots() {
+        return Collections.unmodifiableMap(new LinkedHashMap<>(this.snapshots));
+    }
+
+    public Path getPath() {
+        return path;
+    }
+}
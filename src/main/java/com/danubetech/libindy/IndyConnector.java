@@ -3,20 +3,59 @@ package com.danubetech.libindy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.*;
-import java.util.stream.Stream;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
 
-public class IndyConnector {
+public class IndyConnector implements AutoCloseable {
 
     private static final Logger log = LoggerFactory.getLogger(IndyConnector.class);
 
+    public static final Duration DEFAULT_DRAIN_TIMEOUT = Duration.ofSeconds(30);
+
     private String poolConfigs;
     private String poolVersions;
     private String walletNames;
     private String submitterDidSeeds;
     private String genesisTimestamps;
+    private String ledgerReadCaches;
+    private String requestWindows;
+    private String walletKeys;
+    private String walletStorages;
+    private boolean cacheWalletKeys;
+    private String poolHandleCounts;
+    private String poolRefreshIntervals;
+    private String timeouts;
+    private String circuitBreakers;
+    private String snapshotFile;
+    private Executor openExecutor;
+    private int openConcurrency;
+    private Duration openTimeout;
+    private boolean lazyOpen;
+    private String prewarmNetworks;
+    private Duration idleTimeout;
+    private Duration healthCheckInterval;
+    private Duration healthCheckTimeout = Duration.ofSeconds(10);
+    private int healthCheckFailureThreshold = 3;
+    private IndyMetrics indyMetrics = IndyMetrics.NOOP;
+    private IndyTransport transport;
+    private Duration closeTimeout;
+    private final IndySubmitterDidIndex submitterDidIndex = new IndySubmitterDidIndex();
 
-    private Map<String, IndyConnection> indyConnections;
+    private volatile Map<String, IndyConnection> indyConnections;
+    private volatile IndyDidRouter indyDidRouter = IndyDidRouter.EMPTY;
+    private final Map<String, ReentrantLock> reopenLocks = new ConcurrentHashMap<>();
+    private CompletableFuture<Map<String, IndyConnection>> openingIndyConnections;
+    private volatile IndyConnectionSnapshotFile indyConnectionSnapshotFile;
+    private ExecutorService defaultOpenExecutor;
+    private ScheduledExecutorService scheduler;
+    private volatile IndyHealthChecker indyHealthChecker;
+    private volatile boolean lazyCreateSubmitterDid;
+    private volatile boolean lazyRetrieveTaa;
+    private final Set<String> refreshingNetworks = ConcurrentHashMap.newKeySet();
 
     public IndyConnector(String poolConfigs, String poolVersions, String walletNames, String submitterDidSeeds, String genesisTimestamps) {
         this.poolConfigs = poolConfigs;
@@ -34,37 +73,395 @@ public class IndyConnector {
         return this.getIndyConnections() != null;
     }
 
+    /**
+     * This closes all Indy connections concurrently. Every connection is closed even if closing another one fails,
+     * and each close call is bounded by the close timeout (see {@link IndyConnection#closeAsync()}).
+     * @throws IndyConnectionException If any pool or wallet could not be closed.
+     */
     public synchronized void closeIndyConnections() throws IndyConnectionException {
 
-        if (this.getIndyConnections() == null) {
+        Map<String, IndyConnection> indyConnections = this.getIndyConnections();
+        if (indyConnections == null) {
             if (log.isWarnEnabled()) log.warn("Indy connections have not been opened and therefore cannot be closed.");
             return;
         }
 
-        for (IndyConnection indyConnection : this.getIndyConnections().values()) {
-            indyConnection.close();
+        List<IndyConnectionException> exceptions = Collections.synchronizedList(new ArrayList<>());
+        try {
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            for (IndyConnection indyConnection : indyConnections.values()) {
+                futures.add(collectException(indyConnection.closeAsync(), exceptions));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        } finally {
+            this.setIndyConnections(null);
+            this.reopenLocks.clear();
+            this.shutdown();
+        }
+
+        if (! exceptions.isEmpty()) {
+            StringBuilder errorMessage = new StringBuilder();
+            for (IndyConnectionException e: exceptions) {
+                errorMessage.append(e.getMessage()).append("; ");
+            }
+            throw new IndyConnectionException(errorMessage.toString());
+        }
+    }
+
+    /**
+     * This closes all Indy connections if they have been opened, and stops health checks and other background tasks.
+     */
+    @Override
+    public void close() throws IndyConnectionException {
+
+        if (this.isOpened()) this.closeIndyConnections(); else this.shutdown();
+    }
+
+    private synchronized void shutdown() {
+
+        this.refreshingNetworks.clear();
+
+        if (this.indyHealthChecker != null) {
+            this.indyHealthChecker.stop();
+            this.indyHealthChecker = null;
+        }
+
+        if (this.scheduler != null) {
+            this.scheduler.shutdownNow();
+            this.scheduler = null;
+        }
+
+        if (this.defaultOpenExecutor != null) {
+            this.defaultOpenExecutor.shutdown();
+            this.defaultOpenExecutor = null;
         }
-        this.getIndyConnections().clear();
-        this.setIndyConnections(null);
-        System.gc();
     }
 
     /**
      * This opens the Indy pools and wallets for every configured network.
      * @param createSubmitterDid Whether to create a local DID in the wallet that will be used for submitting queries to the ledger.
      * @param retrieveTaa Whether to retrieve the Transaction Author Agreement from the ledger. This is needed for certain operations such as writing DIDs to the ledger.
-     * @param openParallel Whether to open pools and wallets in parallel threads. This speeds up the process if multiple networks are configured, but could also cause higher memory consumption.
+     * @param openParallel Whether to open pools and wallets of all networks concurrently. This speeds up the process if multiple networks are configured, but could also cause higher memory consumption.
      * @throws IndyConnectionException
      */
-    public synchronized void openIndyConnections(boolean createSubmitterDid, boolean retrieveTaa, boolean openParallel) throws IndyConnectionException {
+    public void openIndyConnections(boolean createSubmitterDid, boolean retrieveTaa, boolean openParallel) throws IndyConnectionException {
+
+        IndyFutures.await(this.openIndyConnectionsAsync(createSubmitterDid, retrieveTaa, openParallel));
+    }
+
+    public void openIndyConnections(boolean createSubmitterDid, boolean retrieveTaa) throws IndyConnectionException {
+
+        this.openIndyConnections(createSubmitterDid, retrieveTaa, false);
+    }
+
+    /**
+     * This opens the Indy pools and wallets for every configured network, without blocking.
+     * @param createSubmitterDid Whether to create a local DID in the wallet that will be used for submitting queries to the ledger.
+     * @param retrieveTaa Whether to retrieve the Transaction Author Agreement from the ledger. This is needed for certain operations such as writing DIDs to the ledger.
+     * @param openParallel Whether to open pools and wallets of all networks concurrently, or one network after the other.
+     * @return A future that completes with the opened Indy connections, or completes exceptionally with an IndyConnectionException.
+     */
+    public synchronized CompletableFuture<Map<String, IndyConnection>> openIndyConnectionsAsync(boolean createSubmitterDid, boolean retrieveTaa, boolean openParallel) {
 
         if (this.getPoolConfigs() == null || this.getPoolConfigs().isEmpty()) throw new IllegalStateException("No configuration found for Indy connections.");
 
         if (this.getIndyConnections() != null) {
             if (log.isWarnEnabled()) log.warn("Indy connections have already been opened.");
+            return CompletableFuture.completedFuture(this.getIndyConnections());
+        }
+
+        if (this.openingIndyConnections != null) {
+            if (log.isWarnEnabled()) log.warn("Indy connections are already being opened.");
+            return this.openingIndyConnections;
+        }
+
+        // load snapshots
+
+        if (this.getSnapshotFile() != null && ! this.getSnapshotFile().isEmpty()) {
+            this.indyConnectionSnapshotFile = new IndyConnectionSnapshotFile(Path.of(this.getSnapshotFile()));
+            this.indyConnectionSnapshotFile.load();
+        }
+
+        // create indy connections
+
+        List<IndyConnectionException> exceptions = Collections.synchronizedList(new ArrayList<>());
+        Map<String, IndyConnection> indyConnections = this.createIndyConnections(exceptions);
+
+        // in lazy mode, only open the networks to prewarm
+
+        Map<String, IndyConnection> openIndyConnections = indyConnections;
+        if (this.isLazyOpen()) {
+            this.lazyCreateSubmitterDid = createSubmitterDid;
+            this.lazyRetrieveTaa = retrieveTaa;
+            Set<String> prewarmNetworks = new LinkedHashSet<>(Arrays.asList(this.getPrewarmNetworks() == null || this.getPrewarmNetworks().isEmpty() ? new String[0] : this.getPrewarmNetworks().split(";")));
+            openIndyConnections = new LinkedHashMap<>(indyConnections);
+            openIndyConnections.keySet().retainAll(prewarmNetworks);
+            prewarmNetworks.removeAll(indyConnections.keySet());
+            for (String prewarmNetwork : prewarmNetworks) exceptions.add(new IndyConnectionException("No configuration for prewarm network: " + prewarmNetwork));
+            if (log.isInfoEnabled()) log.info("Lazily opening Indy connections " + indyConnections.keySet() + ", prewarming " + openIndyConnections.keySet());
+        }
+
+        // open indy connections, until all are open or one has failed or the open timeout has passed
+
+        int openConcurrency = openParallel ? (this.getOpenConcurrency() > 0 ? this.getOpenConcurrency() : Math.max(1, openIndyConnections.size())) : 1;
+        Executor openExecutor = this.openExecutor();
+        Iterator<IndyConnection> remainingIndyConnections = openIndyConnections.values().iterator();
+        Set<String> pendingNetworks = ConcurrentHashMap.newKeySet();
+        pendingNetworks.addAll(openIndyConnections.keySet());
+        AtomicBoolean stopped = new AtomicBoolean(! exceptions.isEmpty());
+
+        List<CompletableFuture<Void>> workers = new ArrayList<>();
+        for (int i=0; i<openConcurrency; i++) {
+            workers.add(this.openRemainingIndyConnectionsAsync(remainingIndyConnections, createSubmitterDid, retrieveTaa, exceptions, pendingNetworks, stopped, openExecutor));
+        }
+
+        CompletableFuture<Void> opened = CompletableFuture.allOf(workers.toArray(new CompletableFuture[0]));
+        CompletableFuture<Void> future = opened;
+
+        Duration openTimeout = this.getOpenTimeout();
+        if (openTimeout != null) {
+            future = opened.copy().orTimeout(openTimeout.toMillis(), TimeUnit.MILLISECONDS).exceptionally(ex -> {
+                if (IndyFutures.unwrap(ex) instanceof TimeoutException) {
+                    throw new CompletionException(new IndyConnectionException("Timeout after " + openTimeout + " while opening Indy connections for networks " + pendingNetworks));
+                }
+                throw new CompletionException(IndyFutures.unwrap(ex));
+            });
+        }
+
+        CompletableFuture<Map<String, IndyConnection>> openingIndyConnections = future.handle((x, ex) -> {
+
+            if (ex != null || ! exceptions.isEmpty()) {
+                stopped.set(true);
+                this.closeUnusedIndyConnections(indyConnections.values(), opened);
+                if (ex != null) throw new CompletionException(IndyFutures.unwrap(ex));
+                StringBuilder errorMessage = new StringBuilder();
+                for (IndyConnectionException e: exceptions) {
+                    errorMessage.append(e.getMessage()).append("; ");
+                }
+                throw new CompletionException(new IndyConnectionException(errorMessage.toString()));
+            }
+
+            if (log.isInfoEnabled()) log.info("Opened " + indyConnections.size() + " Indy connections: " + indyConnections.keySet());
+            this.setIndyConnections(indyConnections);
+            if (this.getIdleTimeout() != null) this.scheduleIdleClose(this.getIdleTimeout());
+            if (this.getHealthCheckInterval() != null) this.startHealthChecks();
+            for (IndyConnection indyConnection : indyConnections.values()) this.startPoolRefresh(indyConnection);
+            return this.getIndyConnections();
+        });
+
+        this.openingIndyConnections = openingIndyConnections;
+        openingIndyConnections.whenComplete((result, ex) -> this.openingIndyConnectionsCompleted(openingIndyConnections));
+        return openingIndyConnections;
+    }
+
+    private synchronized void openingIndyConnectionsCompleted(CompletableFuture<Map<String, IndyConnection>> openingIndyConnections) {
+        if (this.openingIndyConnections == openingIndyConnections) this.openingIndyConnections = null;
+    }
+
+    /**
+     * This opens Indy connections one after the other on the open executor, until there are no remaining ones, or until opening has been stopped.
+     * Running several of these concurrently limits the number of networks that are being opened at the same time.
+     * A network that cannot be opened stops opening the remaining ones.
+     */
+    private CompletableFuture<Void> openRemainingIndyConnectionsAsync(Iterator<IndyConnection> remainingIndyConnections, boolean createSubmitterDid, boolean retrieveTaa, List<IndyConnectionException> exceptions, Set<String> pendingNetworks, AtomicBoolean stopped, Executor openExecutor) {
+
+        IndyConnection indyConnection;
+        synchronized (remainingIndyConnections) {
+            if (stopped.get() || ! remainingIndyConnections.hasNext()) return CompletableFuture.completedFuture(null);
+            indyConnection = remainingIndyConnections.next();
+        }
+
+        return CompletableFuture.supplyAsync(() -> this.openIndyConnectionAsync(indyConnection, createSubmitterDid, retrieveTaa, exceptions), openExecutor)
+                .thenCompose(x -> x)
+                .thenComposeAsync(x -> {
+                    pendingNetworks.remove(indyConnection.getNetwork());
+                    if (! exceptions.isEmpty()) stopped.set(true);
+                    return this.openRemainingIndyConnectionsAsync(remainingIndyConnections, createSubmitterDid, retrieveTaa, exceptions, pendingNetworks, stopped, openExecutor);
+                }, openExecutor);
+    }
+
+    /**
+     * This closes the Indy connections of a failed or timed out open, once the networks that are still being opened have completed,
+     * so that no pool or wallet handles are left behind.
+     */
+    private void closeUnusedIndyConnections(Collection<IndyConnection> indyConnections, CompletableFuture<Void> opened) {
+
+        opened.whenComplete((result, ex) -> {
+            if (log.isInfoEnabled()) log.info("Closing " + indyConnections.size() + " Indy connections after failed open.");
+            for (IndyConnection indyConnection : indyConnections) {
+                indyConnection.closeAsync().whenComplete((closeResult, closeEx) -> {
+                    if (closeEx != null && log.isWarnEnabled()) log.warn("Cannot close Indy connection for network " + indyConnection.getNetwork() + " after failed open: " + IndyFutures.unwrap(closeEx).getMessage());
+                });
+            }
+        });
+    }
+
+    private synchronized ScheduledExecutorService scheduler() {
+
+        if (this.scheduler == null) this.scheduler = Executors.newSingleThreadScheduledExecutor(IndyExecutors.newDaemonThreadFactory("indy-scheduler-"));
+        return this.scheduler;
+    }
+
+    private synchronized void startHealthChecks() {
+
+        if (this.indyHealthChecker != null) return;
+        this.indyHealthChecker = new IndyHealthChecker(this::getIndyConnections, this.getHealthCheckInterval(), this.getHealthCheckTimeout(), this.getHealthCheckFailureThreshold());
+        this.indyHealthChecker.start(this.scheduler());
+    }
+
+    private void scheduleIdleClose(Duration idleTimeout) {
+
+        long periodMillis = Math.max(1000L, idleTimeout.toMillis() / 4);
+        this.scheduler().scheduleWithFixedDelay(() -> this.closeIdleIndyConnections(idleTimeout), periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * This starts refreshing the pool of a network in the background, if the Indy connection has a pool refresh interval and the
+     * pool of the network is not being refreshed yet. The first refresh is at a random time within the interval, so that
+     * networks with the same interval do not all refresh at once, and later refreshes are jittered as well.
+     */
+    private void startPoolRefresh(IndyConnection indyConnection) {
+
+        Duration poolRefreshInterval = indyConnection.getPoolRefreshInterval();
+        if (poolRefreshInterval == null || ! this.refreshingNetworks.add(indyConnection.getNetwork())) return;
+
+        long initialDelayMillis = ThreadLocalRandom.current().nextLong(Math.max(1, poolRefreshInterval.toMillis()));
+        if (log.isInfoEnabled()) log.info("Refreshing pool for network " + indyConnection.getNetwork() + " every " + poolRefreshInterval + ", starting in " + initialDelayMillis + " ms.");
+        this.schedulePoolRefresh(indyConnection.getNetwork(), initialDelayMillis);
+    }
+
+    private void schedulePoolRefresh(String network, long delayMillis) {
+
+        if (! this.refreshingNetworks.contains(network)) return;
+        try {
+            this.scheduler().schedule(() -> this.refreshPool(network), delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException ex) {
+            this.refreshingNetworks.remove(network);
+        }
+    }
+
+    /**
+     * This refreshes the pool of the current Indy connection of a network, and schedules the next refresh.
+     * Refreshing stops when the network has been removed, or its Indy connection no longer has a pool refresh interval.
+     * Indy connections that are not open (e.g. in lazy mode) are skipped.
+     */
+    private void refreshPool(String network) {
+
+        Map<String, IndyConnection> indyConnections = this.getIndyConnections();
+        IndyConnection indyConnection = indyConnections == null ? null : indyConnections.get(network);
+        Duration poolRefreshInterval = indyConnection == null ? null : indyConnection.getPoolRefreshInterval();
+        if (poolRefreshInterval == null || ! this.refreshingNetworks.contains(network)) {
+            this.refreshingNetworks.remove(network);
             return;
         }
 
+        CompletableFuture<Void> future = indyConnection.isOpen() ? indyConnection.refreshPoolAsync() : CompletableFuture.completedFuture(null);
+        future.whenComplete((result, ex) -> {
+            if (ex != null && log.isWarnEnabled()) log.warn("Cannot refresh pool for network " + network + ": " + IndyFutures.unwrap(ex).getMessage());
+            long intervalMillis = poolRefreshInterval.toMillis();
+            long jitterMillis = intervalMillis / 10;
+            this.schedulePoolRefresh(network, intervalMillis + (jitterMillis > 0 ? ThreadLocalRandom.current().nextLong(-jitterMillis, jitterMillis + 1) : 0));
+        });
+    }
+
+    /**
+     * This closes open Indy connections which have not been used for longer than the idle timeout, and have no ledger calls in flight.
+     * They are opened again on their next use, see {@link #getIndyConnection(String, boolean, boolean, boolean)}.
+     */
+    private void closeIdleIndyConnections(Duration idleTimeout) {
+
+        Map<String, IndyConnection> indyConnections = this.getIndyConnections();
+        if (indyConnections == null) return;
+
+        for (IndyConnection indyConnection : indyConnections.values()) {
+            if (indyConnection.getIdleNanos() < idleTimeout.toNanos() || indyConnection.isBusy() || ! indyConnection.isOpen()) continue;
+
+            ReentrantLock reopenLock = this.reopenLocks.computeIfAbsent(indyConnection.getNetwork(), x -> new ReentrantLock());
+            if (! reopenLock.tryLock()) continue;
+            try {
+                if (indyConnection.getIdleNanos() < idleTimeout.toNanos() || indyConnection.isBusy() || ! indyConnection.isOpen()) continue;
+                if (log.isInfoEnabled()) log.info("Closing idle Indy connection for network " + indyConnection.getNetwork() + " after " + Duration.ofNanos(indyConnection.getIdleNanos()));
+                indyConnection.close();
+            } catch (IndyConnectionException | RuntimeException ex) {
+                if (log.isWarnEnabled()) log.warn("Cannot close idle Indy connection for network " + indyConnection.getNetwork() + ": " + ex.getMessage(), ex);
+            } finally {
+                reopenLock.unlock();
+            }
+        }
+    }
+
+    private synchronized Executor openExecutor() {
+
+        if (this.getOpenExecutor() != null) return this.getOpenExecutor();
+        if (this.defaultOpenExecutor == null) this.defaultOpenExecutor = IndyExecutors.newOpenExecutor();
+        return this.defaultOpenExecutor;
+    }
+
+    private CompletableFuture<Void> openIndyConnectionAsync(IndyConnection indyConnection, boolean createSubmitterDid, boolean retrieveTaa, List<IndyConnectionException> exceptions) {
+
+        String network = indyConnection.getNetwork();
+        return this.openIndyConnectionAsync(indyConnection, createSubmitterDid, retrieveTaa).handle((result, ex) -> {
+            if (ex != null) {
+                if (log.isWarnEnabled()) log.warn("Exception while opening Indy connection for network " + network);
+                exceptions.add(IndyFutures.toIndyConnectionException(ex));
+            }
+
+            if (log.isInfoEnabled()) log.info("Adding Indy connection for network " + network + ": " + indyConnection);
+            return null;
+        });
+    }
+
+    /**
+     * This opens an Indy connection. If a snapshot file is configured and has a matching snapshot for the network,
+     * the submitter DID and TAA are taken from the snapshot, and are then revalidated against the wallet and ledger in the background.
+     */
+    private CompletableFuture<Void> openIndyConnectionAsync(IndyConnection indyConnection, boolean createSubmitterDid, boolean retrieveTaa) {
+
+        IndyConnectionSnapshotFile indyConnectionSnapshotFile = this.indyConnectionSnapshotFile;
+        if (indyConnectionSnapshotFile == null || ! createSubmitterDid) return indyConnection.openAsync(createSubmitterDid, retrieveTaa);
+
+        IndyConnectionSnapshot snapshot = indyConnectionSnapshotFile.getSnapshot(indyConnection.getNetwork());
+        if (snapshot == null || ! snapshot.matches(indyConnection)) {
+            return indyConnection.openAsync(createSubmitterDid, retrieveTaa)
+                    .thenRun(() -> indyConnectionSnapshotFile.update(IndyConnectionSnapshot.fromIndyConnection(indyConnection)));
+        }
+
+        if (log.isInfoEnabled()) log.info("Opening Indy connection for network " + indyConnection.getNetwork() + " from snapshot: " + snapshot);
+        return indyConnection.openAsync(false, false).thenRun(() -> {
+            snapshot.applyTo(indyConnection, true, retrieveTaa);
+            revalidateSnapshot(indyConnection, snapshot, retrieveTaa, indyConnectionSnapshotFile);
+        });
+    }
+
+    private static void revalidateSnapshot(IndyConnection indyConnection, IndyConnectionSnapshot snapshot, boolean retrieveTaa, IndyConnectionSnapshotFile indyConnectionSnapshotFile) {
+
+        String network = indyConnection.getNetwork();
+
+        CompletableFuture<Void> future = indyConnection.verifySubmitterDidAsync()
+                .thenCompose(verified -> verified ? CompletableFuture.completedFuture(null) : indyConnection.createSubmitterDidAsync());
+        if (retrieveTaa) future = future.thenCompose(x -> indyConnection.retrieveTaaAsync());
+
+        future.whenComplete((result, ex) -> {
+            if (ex != null) {
+                if (log.isWarnEnabled()) log.warn("Cannot revalidate snapshot for network " + network + ": " + IndyFutures.unwrap(ex).getMessage(), IndyFutures.unwrap(ex));
+                if (retrieveTaa && indyConnection.getTaa() == null) snapshot.applyTo(indyConnection, false, true);
+                return;
+            }
+            if (indyConnectionSnapshotFile.update(IndyConnectionSnapshot.fromIndyConnection(indyConnection))) {
+                if (log.isInfoEnabled()) log.info("Snapshot for network " + network + " has changed and was refreshed.");
+            } else {
+                if (log.isDebugEnabled()) log.debug("Snapshot for network " + network + " is still valid.");
+            }
+        });
+    }
+
+    /**
+     * This parses the configuration and creates (but does not open) an Indy connection for every configured network.
+     * @param exceptions A list to which problems with the configuration are added.
+     * @return The Indy connections that could be created, in the order of the pool configs.
+     */
+    Map<String, IndyConnection> createIndyConnections(List<IndyConnectionException> exceptions) {
+
         // parse pool configs
 
         String[] poolConfigStrings = this.getPoolConfigs() == null ? new String[0] : this.getPoolConfigs().split(";");
@@ -150,13 +547,56 @@ public class IndyConnector {
 
         if (log.isInfoEnabled()) log.info("Genesis timestamps: " + genesisTimestamps);
 
+        // parse ledger read caches
+
+        Map<String, String> ledgerReadCaches = parseNetworkValues(this.getLedgerReadCaches());
+
+        if (log.isInfoEnabled()) log.info("Ledger read caches: " + ledgerReadCaches);
+
+        // parse request windows
+
+        Map<String, String> requestWindows = parseNetworkValues(this.getRequestWindows());
+
+        if (log.isInfoEnabled()) log.info("Request windows: " + requestWindows);
+
+        // parse wallet keys and storages
+
+        Map<String, String> walletKeys = parseNetworkValues(this.getWalletKeys());
+        Map<String, String> walletStorages = parseNetworkValues(this.getWalletStorages());
+
+        if (log.isInfoEnabled()) log.info("Wallet keys for networks: " + walletKeys.keySet());
+        if (log.isInfoEnabled()) log.info("Wallet storages: " + walletStorages);
+
+        // parse pool handle counts
+
+        Map<String, String> poolHandleCounts = parseNetworkValues(this.getPoolHandleCounts());
+
+        if (log.isInfoEnabled()) log.info("Pool handle counts: " + poolHandleCounts);
+
+        // parse pool refresh intervals
+
+        Map<String, String> poolRefreshIntervals = parseNetworkValues(this.getPoolRefreshIntervals());
+
+        if (log.isInfoEnabled()) log.info("Pool refresh intervals: " + poolRefreshIntervals);
+
+        // parse timeouts and circuit breakers
+
+        IndyTimeouts timeouts = IndyTimeouts.DEFAULT;
+        try {
+            timeouts = IndyTimeouts.parse(this.getTimeouts());
+        } catch (IllegalArgumentException ex) {
+            exceptions.add(new IndyConnectionException("Invalid 'timeouts': " + ex.getMessage(), ex));
+        }
+        Map<String, String> circuitBreakers = parseNetworkValues(this.getCircuitBreakers());
+
+        if (log.isInfoEnabled()) log.info("Timeouts: " + timeouts);
+        if (log.isInfoEnabled()) log.info("Circuit breakers: " + circuitBreakers);
+
         // create indy connections
 
-        Map<String, IndyConnection> indyConnections = openParallel ? Collections.synchronizedMap(new LinkedHashMap<>()) : new LinkedHashMap<>();
-        List<IndyConnectionException> exceptions = openParallel ? Collections.synchronizedList(new ArrayList<>()) : new ArrayList<>();
-        Stream<String> networks = openParallel ? poolConfigFiles.keySet().parallelStream() : poolConfigFiles.keySet().stream();
+        Map<String, IndyConnection> indyConnections = new LinkedHashMap<>();
 
-        networks.forEach(network -> {
+        for (String network : poolConfigFiles.keySet()) {
             String poolConfigName = poolConfigNames.get(network);
             String poolConfigFile = poolConfigFiles.get(network);
             Integer poolVersion = poolVersions.get(network);
@@ -179,48 +619,459 @@ public class IndyConnector {
             if (attribEditSignMulti == null) exceptions.add(new IndyConnectionException("No 'attribEditSignMulti' for network: " + network));
             if (walletName == null) exceptions.add(new IndyConnectionException("No 'walletName' for network: " + network));
             if (submitterDidSeed == null) exceptions.add(new IndyConnectionException("No 'submitterDidSeed' for network: " + network));
-            if (poolVersion == null || nativeDidIndy == null || nymAddSignMulti == null || nymEditSignMulti == null || attribAddSignMulti == null || attribEditSignMulti == null || walletName == null || submitterDidSeed == null) return;
+            if (poolVersion == null || nativeDidIndy == null || nymAddSignMulti == null || nymEditSignMulti == null || attribAddSignMulti == null || attribEditSignMulti == null || walletName == null || submitterDidSeed == null) continue;
             IndyConnection indyConnection = new IndyConnection(network, poolConfigName, poolConfigFile, poolVersion, nativeDidIndy, nymAddSignMulti, nymEditSignMulti, attribAddSignMulti, attribEditSignMulti, walletName, submitterDidSeed, genesisTimestamp);
+            indyConnection.setIndyMetrics(this.getIndyMetrics());
+            if (this.getTransport() != null) indyConnection.setTransport(this.getTransport());
+            if (this.getCloseTimeout() != null) indyConnection.setCloseTimeout(this.getCloseTimeout());
+            indyConnection.setTimeouts(timeouts);
+            indyConnection.setSubmitterDidIndex(this.submitterDidIndex);
             try {
-                indyConnection.open(createSubmitterDid, retrieveTaa);
-            } catch (IndyConnectionException ex) {
-                if (log.isWarnEnabled()) log.warn("Exception while opening Indy connection for network " + network);
-                exceptions.add(ex);
+                if (ledgerReadCaches.containsKey(network)) indyConnection.setLedgerReadCache(parseLedgerReadCache(ledgerReadCaches.get(network)));
+            } catch (IllegalArgumentException ex) {
+                exceptions.add(new IndyConnectionException("Invalid 'ledgerReadCache' for network " + network + ": " + ex.getMessage(), ex));
+                continue;
             }
-
-            if (log.isInfoEnabled()) log.info("Adding Indy connection for network " + network + ": " + indyConnection);
-            indyConnections.put(network, indyConnection);
-        });
-
-        if (! exceptions.isEmpty()) {
-            StringBuilder errorMessage = new StringBuilder();
-            for (IndyConnectionException e: exceptions) {
-                errorMessage.append(e.getMessage()).append("; ");
+            try {
+                if (requestWindows.containsKey(network)) indyConnection.setRequestWindow(new IndyRequestWindow(parsePositiveInt(requestWindows.get(network))));
+            } catch (IllegalArgumentException ex) {
+                exceptions.add(new IndyConnectionException("Invalid 'requestWindow' for network " + network + ": " + ex.getMessage(), ex));
+                continue;
             }
-            throw new IndyConnectionException(errorMessage.toString());
+            try {
+                IndyWalletConfig walletConfig = new IndyWalletConfig();
+                if (walletKeys.containsKey(network)) walletConfig.parseKey(walletKeys.get(network));
+                if (walletStorages.containsKey(network)) walletConfig.parseStorage(walletStorages.get(network));
+                indyConnection.setWalletConfig(walletConfig);
+                indyConnection.setCacheWalletKey(this.isCacheWalletKeys());
+            } catch (IllegalArgumentException ex) {
+                exceptions.add(new IndyConnectionException("Invalid wallet config for network " + network + ": " + ex.getMessage(), ex));
+                continue;
+            }
+            try {
+                if (poolHandleCounts.containsKey(network)) indyConnection.setPoolHandleCount(parsePositiveInt(poolHandleCounts.get(network)));
+            } catch (IllegalArgumentException ex) {
+                exceptions.add(new IndyConnectionException("Invalid 'poolHandleCount' for network " + network + ": " + ex.getMessage(), ex));
+                continue;
+            }
+            try {
+                if (poolRefreshIntervals.containsKey(network)) indyConnection.setPoolRefreshInterval(Duration.ofSeconds(parsePositiveInt(poolRefreshIntervals.get(network))));
+            } catch (IllegalArgumentException ex) {
+                exceptions.add(new IndyConnectionException("Invalid 'poolRefreshInterval' for network " + network + ": " + ex.getMessage(), ex));
+                continue;
+            }
+            try {
+                indyConnection.setCircuitBreaker(circuitBreakers.containsKey(network) ? parseCircuitBreaker(network, circuitBreakers.get(network)) : new IndyCircuitBreaker(network));
+            } catch (IllegalArgumentException ex) {
+                exceptions.add(new IndyConnectionException("Invalid 'circuitBreaker' for network " + network + ": " + ex.getMessage(), ex));
+                continue;
+            }
+            indyConnections.put(network, indyConnection);
         }
 
-        if (log.isInfoEnabled()) log.info("Opened " + indyConnections.size() + " Indy connections: " + indyConnections.keySet());
-        this.indyConnections = new LinkedHashMap<>(indyConnections);
+        return indyConnections;
     }
 
-    public synchronized void openIndyConnections(boolean createSubmitterDid, boolean retrieveTaa) throws IndyConnectionException {
+    /**
+     * This returns the Indy connection for a network, opening it in lazy mode with the settings given to {@link #openIndyConnections(boolean, boolean, boolean)}.
+     * @param network The network of the Indy connection.
+     * @return The Indy connection, or null if no Indy connection is configured for the network.
+     * @throws IndyConnectionException
+     */
+    public IndyConnection getIndyConnection(String network) throws IndyConnectionException {
+
+        return this.getIndyConnection(network, true, this.lazyCreateSubmitterDid, this.lazyRetrieveTaa);
+    }
+
+    /**
+     * This returns the Indy connection for a network. Lookups of open connections do not take any lock.
+     * If the connection needs to be re-opened, this is done while holding a lock for that network only,
+     * so concurrent callers for the same network wait for a single re-open, and other networks are not affected.
+     * In lazy mode, a connection that has not been opened yet or has been closed after being idle is always opened.
+     * If health checks are enabled and only the pool of a connection has been lost, only the pool is reconnected (joining a reconnection
+     * already started by the health checker), and this waits for it up to the open timeout. If the pool cannot be reconnected in that time,
+     * the connection is re-opened.
+     * @param network The network of the Indy connection.
+     * @param autoReopen Whether to re-open the Indy connection if it is not open.
+     * @param createSubmitterDid Whether to create a local DID in the wallet when re-opening.
+     * @param retrieveTaa Whether to retrieve the Transaction Author Agreement when re-opening.
+     * @return The Indy connection, or null if no Indy connection is configured for the network.
+     * @throws IndyConnectionException
+     */
+    public IndyConnection getIndyConnection(String network, boolean autoReopen, boolean createSubmitterDid, boolean retrieveTaa) throws IndyConnectionException {
+
+        Map<String, IndyConnection> indyConnections = this.getIndyConnections();
+        if (indyConnections == null) return null;
+
+        IndyConnection indyConnection = indyConnections.get(network);
+        if (indyConnection == null) return null;
+
+        return this.prepareIndyConnection(indyConnection, autoReopen, createSubmitterDid, retrieveTaa);
+    }
+
+    /**
+     * This returns the Indy connection for the network of a DID, e.g. "did:sov:danube:..." or "did:indy:sovrin:staging:...",
+     * opening it in lazy mode with the settings given to {@link #openIndyConnections(boolean, boolean, boolean)}.
+     * @param did A DID with the method "sov" or "indy".
+     * @return The Indy connection, or null if no Indy connection is configured for the network of the DID.
+     * @throws IndyConnectionException
+     */
+    public IndyConnection getIndyConnectionForDid(String did) throws IndyConnectionException {
 
-        this.openIndyConnections(createSubmitterDid, createSubmitterDid, false);
+        return this.getIndyConnectionForDid(did, true, this.lazyCreateSubmitterDid, this.lazyRetrieveTaa);
     }
 
-    public synchronized IndyConnection getIndyConnection(String network, boolean autoReopen, boolean createSubmitterDid, boolean retrieveTaa) throws IndyConnectionException {
+    /**
+     * This returns the Indy connection for the network of a DID, like {@link #getIndyConnection(String, boolean, boolean, boolean)} does for a network.
+     * The network is found with an {@link IndyDidRouter}, without taking the network apart from the DID.
+     * @param did A DID with the method "sov" or "indy".
+     * @return The Indy connection, or null if no Indy connection is configured for the network of the DID.
+     * @throws IndyConnectionException
+     */
+    public IndyConnection getIndyConnectionForDid(String did, boolean autoReopen, boolean createSubmitterDid, boolean retrieveTaa) throws IndyConnectionException {
 
-        IndyConnection indyConnection = this.getIndyConnections().get(network);
+        IndyConnection indyConnection = this.indyDidRouter.route(did);
         if (indyConnection == null) return null;
 
-        if (autoReopen && (! indyConnection.isOpen())) {
+        return this.prepareIndyConnection(indyConnection, autoReopen, createSubmitterDid, retrieveTaa);
+    }
+
+    private IndyConnection prepareIndyConnection(IndyConnection indyConnection, boolean autoReopen, boolean createSubmitterDid, boolean retrieveTaa) throws IndyConnectionException {
+
+        if (this.getIdleTimeout() != null) indyConnection.touch();
+        if ((autoReopen || this.isLazyOpen()) && (! indyConnection.isOpen())) {
+
+            // with an open wallet, only the pool is reconnected (or the reconnection already started by the health checker is joined)
+
+            IndyHealthChecker indyHealthChecker = this.indyHealthChecker;
+            if (indyHealthChecker != null && indyConnection.getWalletHandle() != null) {
+                Duration reconnectTimeout = this.getOpenTimeout() != null ? this.getOpenTimeout() : indyConnection.getTimeouts().getOperationTimeout(IndyMetrics.OPEN_POOL);
+                try {
+                    indyHealthChecker.reconnectAsync(indyConnection).get(reconnectTimeout.toMillis(), TimeUnit.MILLISECONDS);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new IndyConnectionException("Interrupted while reconnecting Indy connection for network " + indyConnection.getNetwork(), ex);
+                } catch (ExecutionException | TimeoutException ex) {
+                    if (log.isWarnEnabled()) log.warn("Cannot reconnect Indy connection for network " + indyConnection.getNetwork() + " within " + reconnectTimeout + ": " + IndyFutures.unwrap(ex));
+                }
+            }
+
+            // otherwise (or if the pool could not be reconnected), the whole connection is re-opened
+
+            if (! indyConnection.isOpen()) this.reopenIndyConnection(indyConnection, createSubmitterDid, retrieveTaa);
+        }
+
+        return indyConnection;
+    }
+
+    private void reopenIndyConnection(IndyConnection indyConnection, boolean createSubmitterDid, boolean retrieveTaa) throws IndyConnectionException {
+
+        String network = indyConnection.getNetwork();
+        ReentrantLock reopenLock = this.reopenLocks.computeIfAbsent(network, x -> new ReentrantLock());
+
+        reopenLock.lock();
+        try {
+            if (indyConnection.isOpen()) {
+                if (log.isDebugEnabled()) log.debug("Indy connection for network " + network + " has already been re-opened: " + indyConnection);
+                return;
+            }
+            Map<String, IndyConnection> indyConnections = this.getIndyConnections();
+            if (indyConnections == null || indyConnections.get(network) != indyConnection) {
+                if (log.isDebugEnabled()) log.debug("Indy connection for network " + network + " has been replaced or removed and is not re-opened: " + indyConnection);
+                return;
+            }
             if (log.isInfoEnabled()) log.info("Auto re-opening Indy connection for network " + network + ": " + indyConnection);
+            IndyReopenEvent event = new IndyReopenEvent();
+            event.network = network;
+            event.commit();
+            this.getIndyMetrics().recordReopen(network, false);
             indyConnection.close();
-            indyConnection.open(createSubmitterDid, retrieveTaa);
+            IndyFutures.await(this.openIndyConnectionAsync(indyConnection, createSubmitterDid, retrieveTaa));
+        } finally {
+            reopenLock.unlock();
         }
+    }
 
-        return indyConnection;
+    /**
+     * This removes all cached ledger reads for a DID on a network, e.g. after the DID has been updated on the ledger.
+     * @param network The network of the Indy connection.
+     * @param did The DID to invalidate, or null to invalidate all cached ledger reads of the network.
+     */
+    public void invalidateLedgerReadCache(String network, String did) {
+
+        Map<String, IndyConnection> indyConnections = this.getIndyConnections();
+        IndyConnection indyConnection = indyConnections == null ? null : indyConnections.get(network);
+        LedgerReadCache ledgerReadCache = indyConnection == null ? null : indyConnection.getLedgerReadCache();
+        if (ledgerReadCache == null) return;
+
+        if (log.isDebugEnabled()) log.debug("Invalidating ledger read cache for network " + network + ": " + (did == null ? "all" : did));
+        if (did == null) ledgerReadCache.invalidateAll(); else ledgerReadCache.invalidate(did);
+    }
+
+    /**
+     * This compares the open Indy connections with the current configuration, e.g. after the pool configs have been changed with
+     * {@link #setPoolConfigs(String)}. Networks are changed if any of their settings differ, see {@link IndyConfigDiff#hasSameConfig(IndyConnection, IndyConnection)}.
+     * The Indy connections that are created from the configuration for the comparison are not opened and not registered anywhere.
+     * @return The added, removed and changed networks.
+     * @throws IndyConnectionException If the current configuration is invalid.
+     */
+    public IndyConfigDiff diffConfiguration() throws IndyConnectionException {
+
+        Map<String, IndyConnection> indyConnections = this.getIndyConnections();
+        if (indyConnections == null) throw new IllegalStateException("Indy connections have not been opened.");
+
+        List<IndyConnectionException> exceptions = new ArrayList<>();
+        Map<String, IndyConnection> configuredIndyConnections = this.createIndyConnections(exceptions);
+        if (! exceptions.isEmpty()) throw new IndyConnectionException("Invalid configuration: " + exceptions.stream().map(Throwable::getMessage).toList());
+
+        return IndyConfigDiff.diff(indyConnections, configuredIndyConnections);
+    }
+
+    public IndyConfigDiff applyConfiguration(boolean createSubmitterDid, boolean retrieveTaa, Duration drainTimeout) throws IndyConnectionException {
+
+        return IndyFutures.await(this.applyConfigurationAsync(createSubmitterDid, retrieveTaa, drainTimeout));
+    }
+
+    /**
+     * This applies the difference between the open Indy connections and the current configuration (see {@link #diffConfiguration()}),
+     * by adding, removing and replacing networks. Unchanged networks keep their Indy connections.
+     * @param createSubmitterDid Whether to create a local DID in the wallets of added and replaced networks.
+     * @param retrieveTaa Whether to retrieve the Transaction Author Agreement for added and replaced networks.
+     * @param drainTimeout How long to wait for requests on removed and replaced Indy connections before closing them.
+     * @return A future that completes with the applied difference, or completes exceptionally with an IndyConnectionException if any network could not be added, removed or replaced.
+     */
+    public CompletableFuture<IndyConfigDiff> applyConfigurationAsync(boolean createSubmitterDid, boolean retrieveTaa, Duration drainTimeout) {
+
+        IndyConfigDiff indyConfigDiff;
+        try {
+            indyConfigDiff = this.diffConfiguration();
+        } catch (IndyConnectionException ex) {
+            return CompletableFuture.failedFuture(ex);
+        }
+        if (log.isInfoEnabled()) log.info("Applying configuration: " + indyConfigDiff);
+
+        List<IndyConnectionException> exceptions = Collections.synchronizedList(new ArrayList<>());
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (String network : indyConfigDiff.getRemoved()) futures.add(collectException(this.removeNetworkAsync(network, drainTimeout), exceptions));
+        for (IndyConnection indyConnection : indyConfigDiff.getChanged().values()) futures.add(collectException(this.replaceNetworkAsync(indyConnection, createSubmitterDid, retrieveTaa, drainTimeout), exceptions));
+        for (IndyConnection indyConnection : indyConfigDiff.getAdded().values()) futures.add(collectException(this.addNetworkAsync(indyConnection, createSubmitterDid, retrieveTaa), exceptions));
+
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).thenApply(x -> {
+            if (! exceptions.isEmpty()) {
+                StringBuilder errorMessage = new StringBuilder();
+                for (IndyConnectionException e: exceptions) {
+                    errorMessage.append(e.getMessage()).append("; ");
+                }
+                throw new CompletionException(new IndyConnectionException(errorMessage.toString()));
+            }
+            return indyConfigDiff;
+        });
+    }
+
+    private static CompletableFuture<Void> collectException(CompletableFuture<Void> future, List<IndyConnectionException> exceptions) {
+        return future.exceptionally(ex -> {
+            exceptions.add(IndyFutures.toIndyConnectionException(ex));
+            return null;
+        });
+    }
+
+    public void addNetwork(IndyConnection indyConnection, boolean createSubmitterDid, boolean retrieveTaa) throws IndyConnectionException {
+
+        IndyFutures.await(this.addNetworkAsync(indyConnection, createSubmitterDid, retrieveTaa));
+    }
+
+    /**
+     * This opens an Indy connection for a network that is not open yet, and then adds it to the open Indy connections.
+     * In lazy mode, the Indy connection is added without opening it. Other networks are not affected.
+     * @param indyConnection The Indy connection, e.g. from {@link IndyConfigDiff#getAdded()}.
+     * @param createSubmitterDid Whether to create a local DID in the wallet that will be used for submitting queries to the ledger.
+     * @param retrieveTaa Whether to retrieve the Transaction Author Agreement from the ledger.
+     * @return A future that completes when the Indy connection has been added, or completes exceptionally with an IndyConnectionException.
+     */
+    public CompletableFuture<Void> addNetworkAsync(IndyConnection indyConnection, boolean createSubmitterDid, boolean retrieveTaa) {
+
+        String network = indyConnection.getNetwork();
+        Map<String, IndyConnection> indyConnections = this.getIndyConnections();
+        if (indyConnections == null) throw new IllegalStateException("Indy connections have not been opened.");
+        if (indyConnections.containsKey(network)) return CompletableFuture.failedFuture(new IndyConnectionException("Indy connection for network " + network + " already exists."));
+
+        if (log.isInfoEnabled()) log.info("Adding network " + network + ": " + indyConnection);
+        CompletableFuture<Void> future = this.isLazyOpen() ? CompletableFuture.completedFuture(null) : this.openIndyConnectionAsync(indyConnection, createSubmitterDid, retrieveTaa);
+
+        return future.handle((result, ex) -> ex).thenCompose(ex -> {
+            if (ex == null) return CompletableFuture.<Void>completedFuture(null);
+            return indyConnection.closeAsync().handle((result, closeEx) -> {
+                throw IndyFutures.failure("Cannot add network " + network, ex);
+            });
+        }).thenCompose(x -> {
+            if (this.swapIndyConnection(network, null, indyConnection)) {
+                if (log.isInfoEnabled()) log.info("Added Indy connection for network " + network + ": " + indyConnection);
+                this.startPoolRefresh(indyConnection);
+                return CompletableFuture.completedFuture(null);
+            }
+            return indyConnection.closeAsync().handle((result, ex) -> {
+                throw new CompletionException(new IndyConnectionException("Indy connection for network " + network + " has been added concurrently."));
+            });
+        });
+    }
+
+    public void removeNetwork(String network, Duration drainTimeout) throws IndyConnectionException {
+
+        IndyFutures.await(this.removeNetworkAsync(network, drainTimeout));
+    }
+
+    /**
+     * This removes the Indy connection for a network from the open Indy connections, so new callers no longer get it,
+     * and closes it once its requests in flight have completed. Other networks are not affected.
+     * @param network The network of the Indy connection.
+     * @param drainTimeout How long to wait for requests in flight before closing the Indy connection anyway, or null for the default.
+     * @return A future that completes when the Indy connection has been closed, or completes exceptionally with an IndyConnectionException if there is none for the network.
+     */
+    public CompletableFuture<Void> removeNetworkAsync(String network, Duration drainTimeout) {
+
+        Map<String, IndyConnection> indyConnections = this.getIndyConnections();
+        if (indyConnections == null) throw new IllegalStateException("Indy connections have not been opened.");
+        IndyConnection indyConnection = indyConnections.get(network);
+        if (indyConnection == null || ! this.swapIndyConnection(network, indyConnection, null)) return CompletableFuture.failedFuture(new IndyConnectionException("No Indy connection for network " + network));
+
+        if (log.isInfoEnabled()) log.info("Removed Indy connection for network " + network + ", closing it: " + indyConnection);
+        this.reopenLocks.remove(network);
+        return this.drainAndCloseAsync(indyConnection, false, drainTimeout);
+    }
+
+    public void replaceNetwork(IndyConnection indyConnection, boolean createSubmitterDid, boolean retrieveTaa, Duration drainTimeout) throws IndyConnectionException {
+
+        IndyFutures.await(this.replaceNetworkAsync(indyConnection, createSubmitterDid, retrieveTaa, drainTimeout));
+    }
+
+    /**
+     * This replaces the Indy connection for a network, e.g. with another genesis file. The new Indy connection is opened while
+     * the previous one keeps serving requests (see {@link IndyConnection#openReplacingAsync(IndyConnection, boolean, boolean)}),
+     * then swapped in, and the previous one is closed once its requests in flight have completed. Other networks are not affected.
+     * If the new Indy connection cannot be opened, the previous one stays in use.
+     * @param indyConnection The new Indy connection, e.g. from {@link IndyConfigDiff#getChanged()}.
+     * @param createSubmitterDid Whether to create a local DID in the wallet that will be used for submitting queries to the ledger.
+     * @param retrieveTaa Whether to retrieve the Transaction Author Agreement from the ledger.
+     * @param drainTimeout How long to wait for requests in flight before closing the previous Indy connection anyway, or null for the default.
+     * @return A future that completes when the new Indy connection is in use, or completes exceptionally with an IndyConnectionException.
+     */
+    public CompletableFuture<Void> replaceNetworkAsync(IndyConnection indyConnection, boolean createSubmitterDid, boolean retrieveTaa, Duration drainTimeout) {
+
+        String network = indyConnection.getNetwork();
+        Map<String, IndyConnection> indyConnections = this.getIndyConnections();
+        if (indyConnections == null) throw new IllegalStateException("Indy connections have not been opened.");
+        IndyConnection previousIndyConnection = indyConnections.get(network);
+        if (previousIndyConnection == null) return CompletableFuture.failedFuture(new IndyConnectionException("No Indy connection for network " + network));
+
+        if (log.isInfoEnabled()) log.info("Replacing Indy connection for network " + network + ": " + previousIndyConnection + " -> " + indyConnection);
+        CompletableFuture<Boolean> future = this.isLazyOpen() && ! previousIndyConnection.isOpen() ? CompletableFuture.completedFuture(false) : indyConnection.openReplacingAsync(previousIndyConnection, createSubmitterDid, retrieveTaa);
+
+        return future.thenCompose(walletTakenOver -> {
+            if (! this.swapIndyConnection(network, previousIndyConnection, indyConnection)) {
+                if (walletTakenOver) indyConnection.detachWallet();
+                return indyConnection.closeAsync().handle((result, ex) -> {
+                    throw new CompletionException(new IndyConnectionException("Indy connection for network " + network + " has been replaced or removed concurrently."));
+                });
+            }
+            if (log.isInfoEnabled()) log.info("Replaced Indy connection for network " + network + ", closing previous one: " + previousIndyConnection);
+            this.startPoolRefresh(indyConnection);
+            IndyConnectionSnapshotFile indyConnectionSnapshotFile = this.indyConnectionSnapshotFile;
+            if (indyConnectionSnapshotFile != null && indyConnection.getSubmitterDid() != null) indyConnectionSnapshotFile.update(IndyConnectionSnapshot.fromIndyConnection(indyConnection));
+            return this.drainAndCloseAsync(previousIndyConnection, walletTakenOver, drainTimeout);
+        });
+    }
+
+    /**
+     * This atomically replaces the Indy connection for a network in the open Indy connections, if it is still the expected one.
+     * @param expectedIndyConnection The expected Indy connection, or null if none is expected.
+     * @param indyConnection The new Indy connection, or null to remove the network.
+     * @return Whether the Indy connection has been replaced.
+     */
+    private synchronized boolean swapIndyConnection(String network, IndyConnection expectedIndyConnection, IndyConnection indyConnection) {
+
+        Map<String, IndyConnection> indyConnections = this.getIndyConnections();
+        if (indyConnections == null || indyConnections.get(network) != expectedIndyConnection) return false;
+
+        Map<String, IndyConnection> swappedIndyConnections = new LinkedHashMap<>(indyConnections);
+        if (indyConnection == null) swappedIndyConnections.remove(network); else swappedIndyConnections.put(network, indyConnection);
+        this.setIndyConnections(swappedIndyConnections);
+        return true;
+    }
+
+    /**
+     * This waits until an Indy connection that is no longer in the open Indy connections has no requests in flight, or until the drain timeout,
+     * and then closes it.
+     * @param walletTakenOver Whether the wallet has been taken over by a replacement, and must not be closed.
+     */
+    private CompletableFuture<Void> drainAndCloseAsync(IndyConnection indyConnection, boolean walletTakenOver, Duration drainTimeout) {
+
+        CompletableFuture<Void> drained = indyConnection.idleAsync();
+        if (! drained.isDone()) {
+            try {
+                ScheduledFuture<?> timeout = this.scheduler().schedule(() -> {
+                    if (drained.complete(null) && log.isWarnEnabled()) log.warn("Closing Indy connection for network " + indyConnection.getNetwork() + " with " + indyConnection.getInFlightRequests() + " requests still in flight.");
+                }, (drainTimeout == null ? DEFAULT_DRAIN_TIMEOUT : drainTimeout).toNanos(), TimeUnit.NANOSECONDS);
+                drained.whenComplete((result, ex) -> timeout.cancel(false));
+            } catch (RejectedExecutionException ex) {
+                drained.complete(null);
+            }
+        }
+
+        return drained.thenCompose(x -> {
+            if (walletTakenOver) indyConnection.detachWallet();
+            return indyConnection.closeAsync();
+        }).exceptionally(ex -> {
+            if (log.isWarnEnabled()) log.warn("Cannot close Indy connection for network " + indyConnection.getNetwork() + ": " + IndyFutures.unwrap(ex).getMessage(), IndyFutures.unwrap(ex));
+            return null;
+        });
+    }
+
+    /*
+     * Helper methods
+     */
+
+    private static Map<String, String> parseNetworkValues(String networkValues) {
+
+        String[] networkValueStrings = networkValues == null || networkValues.isEmpty() ? new String[0] : networkValues.split(";");
+        Map<String, String> parsedNetworkValues = new LinkedHashMap<>();
+        for (int i=0; i<networkValueStrings.length; i+=2) {
+            String network = networkValueStrings[i];
+            String networkValue = networkValueStrings[i+1];
+            parsedNetworkValues.put(network, networkValue);
+        }
+        return parsedNetworkValues;
+    }
+
+    private static int parsePositiveInt(String string) {
+
+        int value = Integer.parseInt(string.trim());
+        if (value < 1) throw new IllegalArgumentException("Expected a positive number: " + string);
+        return value;
+    }
+
+    /**
+     * Parses a ledger read cache configuration of the form "maxSize,ttlSeconds", e.g. "1000,300".
+     */
+    private static LedgerReadCache parseLedgerReadCache(String ledgerReadCache) {
+
+        String[] ledgerReadCacheStrings = ledgerReadCache.split(",");
+        if (ledgerReadCacheStrings.length != 2) throw new IllegalArgumentException("Expected 'maxSize,ttlSeconds': " + ledgerReadCache);
+        int maxSize = Integer.parseInt(ledgerReadCacheStrings[0].trim());
+        Duration ttl = Duration.ofSeconds(Long.parseLong(ledgerReadCacheStrings[1].trim()));
+        return new LedgerReadCache(maxSize, ttl);
+    }
+
+    /**
+     * Parses a circuit breaker configuration of the form "failureThreshold,openSeconds", e.g. "5,30", or "off" for no circuit breaker.
+     */
+    private static IndyCircuitBreaker parseCircuitBreaker(String network, String circuitBreaker) {
+
+        if ("off".equals(circuitBreaker.trim())) return null;
+        String[] circuitBreakerStrings = circuitBreaker.split(",");
+        if (circuitBreakerStrings.length != 2) throw new IllegalArgumentException("Expected 'failureThreshold,openSeconds': " + circuitBreaker);
+        int failureThreshold = parsePositiveInt(circuitBreakerStrings[0]);
+        Duration openDuration = Duration.ofSeconds(parsePositiveInt(circuitBreakerStrings[1]));
+        return new IndyCircuitBreaker(network, failureThreshold, openDuration);
     }
 
     /*
@@ -267,11 +1118,275 @@ public class IndyConnector {
         this.genesisTimestamps = genesisTimestamps;
     }
 
+    public String getLedgerReadCaches() {
+        return ledgerReadCaches;
+    }
+
+    /**
+     * @param ledgerReadCaches Per-network ledger read cache configurations, e.g. "_;1000,300;danube;100,60" for a maximum size and a time to live in seconds.
+     */
+    public void setLedgerReadCaches(String ledgerReadCaches) {
+        this.ledgerReadCaches = ledgerReadCaches;
+    }
+
+    public String getPoolRefreshIntervals() {
+        return poolRefreshIntervals;
+    }
+
+    /**
+     * @param poolRefreshIntervals Per-network intervals in seconds for refreshing open pools in the background, e.g. "_;3600;danube;1800".
+     * By default, pools are not refreshed.
+     */
+    public void setPoolRefreshIntervals(String poolRefreshIntervals) {
+        this.poolRefreshIntervals = poolRefreshIntervals;
+    }
+
+    public String getTimeouts() {
+        return timeouts;
+    }
+
+    /**
+     * @param timeouts Timeouts in seconds for the operations of opening connections and for ledger calls, e.g. "operation;120;ledgerCall;20;GET_NYM;5".
+     * The defaults are {@link IndyTimeouts#DEFAULT_OPERATION_TIMEOUT} and {@link IndyTimeouts#DEFAULT_LEDGER_CALL_TIMEOUT}.
+     */
+    public void setTimeouts(String timeouts) {
+        this.timeouts = timeouts;
+    }
+
+    public String getCircuitBreakers() {
+        return circuitBreakers;
+    }
+
+    /**
+     * @param circuitBreakers Per-network circuit breaker configurations, e.g. "_;5,30;danube;off" for a number of consecutive failures and
+     * how many seconds the circuit stays open. By default, every network has a circuit breaker with 5 failures and 30 seconds.
+     */
+    public void setCircuitBreakers(String circuitBreakers) {
+        this.circuitBreakers = circuitBreakers;
+    }
+
+    public String getPoolHandleCounts() {
+        return poolHandleCounts;
+    }
+
+    /**
+     * @param poolHandleCounts Per-network numbers of pool handles to open, e.g. "_;4;danube;2". Ledger reads are spread over the pool handles of a network. The default is one pool handle.
+     */
+    public void setPoolHandleCounts(String poolHandleCounts) {
+        this.poolHandleCounts = poolHandleCounts;
+    }
+
+    public String getSnapshotFile() {
+        return snapshotFile;
+    }
+
+    /**
+     * @param snapshotFile A local file in which the submitter DID and TAA of every network are kept, so that they do not have to be created and retrieved before a connection can be used.
+     */
+    public void setSnapshotFile(String snapshotFile) {
+        this.snapshotFile = snapshotFile;
+    }
+
+    public Executor getOpenExecutor() {
+        return openExecutor;
+    }
+
+    /**
+     * @param openExecutor The executor on which Indy connections are opened and re-opened. If not set, a default executor is used, see {@link IndyExecutors#newOpenExecutor()}.
+     */
+    public void setOpenExecutor(Executor openExecutor) {
+        this.openExecutor = openExecutor;
+    }
+
+    public int getOpenConcurrency() {
+        return openConcurrency;
+    }
+
+    /**
+     * @param openConcurrency The maximum number of networks that are opened at the same time when opening in parallel. 0 means no limit.
+     */
+    public void setOpenConcurrency(int openConcurrency) {
+        this.openConcurrency = openConcurrency;
+    }
+
+    public Duration getOpenTimeout() {
+        return openTimeout;
+    }
+
+    /**
+     * @param openTimeout The maximum time for opening all Indy connections. If not set, there is no limit.
+     */
+    public void setOpenTimeout(Duration openTimeout) {
+        this.openTimeout = openTimeout;
+    }
+
+    public boolean isLazyOpen() {
+        return lazyOpen;
+    }
+
+    /**
+     * @param lazyOpen Whether to only parse and validate the configuration when opening the Indy connections, and to open each network on its first use.
+     */
+    public void setLazyOpen(boolean lazyOpen) {
+        this.lazyOpen = lazyOpen;
+    }
+
+    public String getPrewarmNetworks() {
+        return prewarmNetworks;
+    }
+
+    /**
+     * @param prewarmNetworks Networks which are opened right away in lazy mode, e.g. "_;danube".
+     */
+    public void setPrewarmNetworks(String prewarmNetworks) {
+        this.prewarmNetworks = prewarmNetworks;
+    }
+
+    public Duration getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    /**
+     * @param idleTimeout The time after which an unused Indy connection is closed. It is opened again on its next use, in lazy mode or with auto re-open. If not set, connections are never closed for being idle.
+     */
+    public void setIdleTimeout(Duration idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    public Duration getHealthCheckInterval() {
+        return healthCheckInterval;
+    }
+
+    /**
+     * @param healthCheckInterval The interval in which every open Indy connection is probed. If not set, there are no health checks.
+     */
+    public void setHealthCheckInterval(Duration healthCheckInterval) {
+        this.healthCheckInterval = healthCheckInterval;
+    }
+
+    public Duration getHealthCheckTimeout() {
+        return healthCheckTimeout;
+    }
+
+    public void setHealthCheckTimeout(Duration healthCheckTimeout) {
+        this.healthCheckTimeout = healthCheckTimeout;
+    }
+
+    public int getHealthCheckFailureThreshold() {
+        return healthCheckFailureThreshold;
+    }
+
+    /**
+     * @param healthCheckFailureThreshold The number of failed probes in a row after which the pool of an Indy connection is reconnected.
+     */
+    public void setHealthCheckFailureThreshold(int healthCheckFailureThreshold) {
+        this.healthCheckFailureThreshold = healthCheckFailureThreshold;
+    }
+
+    public String getRequestWindows() {
+        return requestWindows;
+    }
+
+    /**
+     * @param requestWindows Per-network maximum numbers of submitted requests in flight, e.g. "_;64;danube;16". The default is 32.
+     */
+    public void setRequestWindows(String requestWindows) {
+        this.requestWindows = requestWindows;
+    }
+
+    public String getWalletKeys() {
+        return walletKeys;
+    }
+
+    /**
+     * @param walletKeys Per-network wallet keys of the form "[method:]key", e.g. "_;ARGON2I_INT:passphrase;danube;SEED:000000000000000000000000Steward1".
+     *                   The methods are ARGON2I_MOD (the default), ARGON2I_INT, RAW and SEED, see {@link IndyWalletConfig}.
+     */
+    public void setWalletKeys(String walletKeys) {
+        this.walletKeys = walletKeys;
+    }
+
+    public String getWalletStorages() {
+        return walletStorages;
+    }
+
+    /**
+     * @param walletStorages Per-network wallet storages of the form "type[:path]", e.g. "_;default:/var/lib/indy/wallets".
+     */
+    public void setWalletStorages(String walletStorages) {
+        this.walletStorages = walletStorages;
+    }
+
+    public boolean isCacheWalletKeys() {
+        return cacheWalletKeys;
+    }
+
+    /**
+     * @param cacheWalletKeys Whether to keep wallet keys that have been generated from a seed in memory, so they are not generated again when re-opening.
+     */
+    public void setCacheWalletKeys(boolean cacheWalletKeys) {
+        this.cacheWalletKeys = cacheWalletKeys;
+    }
+
+    public IndyMetrics getIndyMetrics() {
+        return indyMetrics;
+    }
+
+    /**
+     * @param indyMetrics The metrics to record timings of opening Indy connections and of ledger calls to, e.g. {@link SimpleIndyMetrics}.
+     */
+    public void setIndyMetrics(IndyMetrics indyMetrics) {
+        this.indyMetrics = indyMetrics == null ? IndyMetrics.NOOP : indyMetrics;
+    }
+
+    public IndyTransport getTransport() {
+        return transport;
+    }
+
+    /**
+     * @param transport The transport of all Indy connections, e.g. {@link InMemoryIndyTransport} for load tests. The default is {@link LibIndyTransport}.
+     */
+    public void setTransport(IndyTransport transport) {
+        this.transport = transport;
+    }
+
+    public Duration getCloseTimeout() {
+        return closeTimeout;
+    }
+
+    /**
+     * @param closeTimeout How long to wait for each pool and wallet to close. The default is {@link IndyConnection#DEFAULT_CLOSE_TIMEOUT}.
+     */
+    public void setCloseTimeout(Duration closeTimeout) {
+        this.closeTimeout = closeTimeout;
+    }
+
+    /**
+     * The submitter DIDs of all networks, which are kept when the Indy connections are closed, so they can be reused when opening them again.
+     */
+    public IndySubmitterDidIndex getSubmitterDidIndex() {
+        return submitterDidIndex;
+    }
+
+    public IndyHealthChecker getIndyHealthChecker() {
+        return indyHealthChecker;
+    }
+
+    public IndyDidRouter getIndyDidRouter() {
+        return indyDidRouter;
+    }
+
     public Map<String, IndyConnection> getIndyConnections() {
         return indyConnections;
     }
 
+    /**
+     * @param indyConnections The Indy connections in use. Their in-flight gauges are registered with their metrics, so connections that are
+     *                        only created for comparison (see {@link #diffConfiguration()}) never replace the gauges of the ones in use.
+     */
     public void setIndyConnections(Map<String, IndyConnection> indyConnections) {
-        this.indyConnections = indyConnections;
+        this.indyConnections = indyConnections == null ? null : Collections.unmodifiableMap(new LinkedHashMap<>(indyConnections));
+        this.indyDidRouter = indyConnections == null ? IndyDidRouter.EMPTY : new IndyDidRouter(indyConnections);
+        if (indyConnections != null) for (IndyConnection indyConnection : indyConnections.values()) indyConnection.getIndyMetrics().registerInFlightGauge(indyConnection.getNetwork(), indyConnection::getInFlightRequests);
     }
 }
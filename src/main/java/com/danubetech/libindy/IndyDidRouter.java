@@ -0,0 +1,122 @@
+package com.danubetech.libindy;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Routes a DID such as "did:sov:danube:..." or "did:indy:sovrin:staging:..." to the Indy connection of its network.
+ *
+ * The DID network prefixes of the networks (see {@link IndyConnection#getDidNetworkPrefix(String)}) are kept in a radix trie,
+ * which is walked over the characters of the DID, so routing does not allocate any strings. The default network "_"
+ * has the empty prefix, and multi-segment networks such as "dummy:test" are matched as a whole.
+ *
+ * A router is immutable. It is built again whenever the Indy connections of an {@link IndyConnector} change.
+ */
+public class IndyDidRouter {
+
+    public static final String DID_SOV_PREFIX = "did:sov:";
+    public static final String DID_INDY_PREFIX = "did:indy:";
+
+    public static final IndyDidRouter EMPTY = new IndyDidRouter(Map.of());
+
+    private final Node root;
+
+    public IndyDidRouter(Map<String, IndyConnection> indyConnections) {
+
+        Builder rootBuilder = new Builder();
+        for (Map.Entry<String, IndyConnection> entry : indyConnections.entrySet()) {
+            String didNetworkPrefix = IndyConnection.getDidNetworkPrefix(entry.getKey());
+            Builder builder = rootBuilder;
+            for (int i=0; i<didNetworkPrefix.length(); i++) builder = builder.children.computeIfAbsent(didNetworkPrefix.charAt(i), x -> new Builder());
+            builder.indyConnection = entry.getValue();
+        }
+        this.root = rootBuilder.build("");
+    }
+
+    /**
+     * @param did A DID with the method "sov" or "indy".
+     * @return The Indy connection of the network of the DID, or null if the DID has another method or no network is configured for it.
+     */
+    public IndyConnection route(String did) {
+
+        if (did == null) return null;
+
+        int start;
+        if (did.startsWith(DID_SOV_PREFIX)) start = DID_SOV_PREFIX.length();
+        else if (did.startsWith(DID_INDY_PREFIX)) start = DID_INDY_PREFIX.length();
+        else return null;
+
+        // the DID network prefix ends with the last ':', the method-specific identifier after it must not be empty
+
+        int end = did.lastIndexOf(':') + 1;
+        if (end == did.length()) return null;
+        if (end <= start) return this.root.indyConnection;
+
+        Node node = this.root;
+        int i = start;
+        while (i < end) {
+            node = node.child(did.charAt(i));
+            if (node == null || ! did.regionMatches(i, node.label, 0, node.label.length())) return null;
+            i += node.label.length();
+        }
+        return i == end ? node.indyConnection : null;
+    }
+
+    /*
+     * Helper classes
+     */
+
+    private static final class Node {
+
+        private final String label;
+        private final char[] chars;
+        private final Node[] children;
+        private final IndyConnection indyConnection;
+
+        private Node(String label, char[] chars, Node[] children, IndyConnection indyConnection) {
+            this.label = label;
+            this.chars = chars;
+            this.children = children;
+            this.indyConnection = indyConnection;
+        }
+
+        private Node child(char c) {
+            int i = this.chars.length < 8 ? indexOf(this.chars, c) : Arrays.binarySearch(this.chars, c);
+            return i < 0 ? null : this.children[i];
+        }
+
+        private static int indexOf(char[] chars, char c) {
+            for (int i=0; i<chars.length; i++) if (chars[i] == c) return i;
+            return -1;
+        }
+    }
+
+    private static final class Builder {
+
+        private final TreeMap<Character, Builder> children = new TreeMap<>();
+        private IndyConnection indyConnection;
+
+        /**
+         * Builds the node, merging chains of nodes that have a single child and no Indy connection into the label of the node.
+         */
+        private Node build(String label) {
+            Builder builder = this;
+            StringBuilder labelBuilder = new StringBuilder(label);
+            while (! label.isEmpty() && builder.indyConnection == null && builder.children.size() == 1) {
+                Map.Entry<Character, Builder> entry = builder.children.firstEntry();
+                labelBuilder.append(entry.getKey().charValue());
+                builder = entry.getValue();
+            }
+            char[] chars = new char[builder.children.size()];
+            Node[] nodes = new Node[builder.children.size()];
+            int i = 0;
+            for (Map.Entry<Character, Builder> entry : builder.children.entrySet()) {
+                chars[i] = entry.getKey();
+                nodes[i] = entry.getValue().build(String.valueOf(entry.getKey().charValue()));
+                i++;
+            }
+            return new Node(labelBuilder.toString(), chars, nodes, builder.indyConnection);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.danubetech.libindy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Factory methods for the executors used by the Indy connector.
+ */
+public class IndyExecutors {
+
+    private static final Logger log = LoggerFactory.getLogger(IndyExecutors.class);
+
+    private static final int DEFAULT_MAX_THREADS = 16;
+
+    private IndyExecutors() {
+    }
+
+    /**
+     * This creates the default executor for opening and re-opening Indy connections.
+     * On runtimes that support virtual threads, this is a virtual-thread-per-task executor.
+     * Otherwise, this is a dedicated, bounded pool of daemon threads.
+     */
+    public static ExecutorService newOpenExecutor() {
+
+        try {
+            Method newVirtualThreadPerTaskExecutor = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            ExecutorService executorService = (ExecutorService) newVirtualThreadPerTaskExecutor.invoke(null);
+            if (log.isDebugEnabled()) log.debug("Using virtual threads for opening Indy connections.");
+            return executorService;
+        } catch (ReflectiveOperationException | RuntimeException ex) {
+            int threads = Math.min(DEFAULT_MAX_THREADS, Math.max(2, Runtime.getRuntime().availableProcessors()));
+            if (log.isDebugEnabled()) log.debug("Virtual threads not available, using " + threads + " threads for opening Indy connections.");
+            return Executors.newFixedThreadPool(threads, newDaemonThreadFactory("indy-open-"));
+        }
+    }
+
+    static ThreadFactory newDaemonThreadFactory(String prefix) {
+
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
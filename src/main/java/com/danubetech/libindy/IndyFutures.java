@@ -0,0 +1,72 @@
+package com.danubetech.libindy;
+
+import org.hyperledger.indy.sdk.IndyException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+final class IndyFutures {
+
+    private IndyFutures() {
+    }
+
+    @FunctionalInterface
+    interface IndyCall<T> {
+        CompletableFuture<T> call() throws IndyException;
+    }
+
+    /**
+     * Invokes a libindy call, turning a synchronously thrown IndyException into a failed future.
+     */
+    static <T> CompletableFuture<T> indyCall(IndyCall<T> indyCall) {
+        try {
+            return indyCall.call();
+        } catch (IndyException ex) {
+            return CompletableFuture.failedFuture(ex);
+        }
+    }
+
+    /**
+     * Strips CompletionException and ExecutionException wrappers from a failure of a future.
+     */
+    static Throwable unwrap(Throwable ex) {
+        while ((ex instanceof CompletionException || ex instanceof ExecutionException) && ex.getCause() != null) ex = ex.getCause();
+        return ex;
+    }
+
+    static IndyConnectionException toIndyConnectionException(Throwable ex) {
+        Throwable cause = unwrap(ex);
+        if (cause instanceof IndyConnectionException) return (IndyConnectionException) cause;
+        return new IndyConnectionException(cause.getMessage(), cause);
+    }
+
+    static CompletionException failure(String message, Throwable ex) {
+        Throwable cause = unwrap(ex);
+        return new CompletionException(new IndyConnectionException(message + ": " + cause.getMessage(), cause));
+    }
+
+    /**
+     * Passes on a failure of a future unchanged, for use in handle() stages that only recover from some failures.
+     */
+    static CompletionException rethrow(Throwable ex) {
+        return ex instanceof CompletionException ? (CompletionException) ex : new CompletionException(ex);
+    }
+
+    /**
+     * Waits for a future, for use by the blocking methods that wrap the asynchronous API.
+     */
+    static <T> T await(CompletableFuture<T> future) throws IndyConnectionException {
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IndyConnectionException("Interrupted: " + ex.getMessage(), ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = unwrap(ex);
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw toIndyConnectionException(cause);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.danubetech.libindy;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Objects;
+
+/**
+ * The fingerprint of a genesis file, i.e. the SHA-256 hash of its content, plus the genesis timestamp if there is one.
+ * It is stored with a pool config when the pool config is created, so the pool config is only created again if the genesis file has changed.
+ *
+ * An instance keeps the last fingerprint, and only reads the genesis file again if its size or modification time have changed.
+ */
+public class IndyGenesisFingerprint {
+
+    private record Cached(String poolConfigFile, long size, FileTime lastModifiedTime, Long genesisTimestamp, String fingerprint) {
+    }
+
+    private volatile Cached cached;
+
+    /**
+     * @return The fingerprint, or null if the genesis file cannot be read.
+     */
+    public String get(String poolConfigFile, Long genesisTimestamp) {
+
+        if (poolConfigFile == null) return null;
+
+        try {
+            Path path = Path.of(poolConfigFile);
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+
+            Cached cached = this.cached;
+            if (cached != null && cached.poolConfigFile().equals(poolConfigFile) && cached.size() == attributes.size() && cached.lastModifiedTime().equals(attributes.lastModifiedTime()) && Objects.equals(cached.genesisTimestamp(), genesisTimestamp)) return cached.fingerprint();
+
+            String fingerprint = compute(path, genesisTimestamp);
+            this.cached = new Cached(poolConfigFile, attributes.size(), attributes.lastModifiedTime(), genesisTimestamp, fingerprint);
+            return fingerprint;
+        } catch (IOException | InvalidPathException ex) {
+            return null;
+        }
+    }
+
+    public static String compute(Path genesisFile, Long genesisTimestamp) throws IOException {
+
+        try {
+            String hash = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(Files.readAllBytes(genesisFile)));
+            return genesisTimestamp == null ? hash : (hash + ":" + genesisTimestamp);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex.getMessage(), ex);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.danubetech.libindy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * This periodically probes every open Indy connection of a connector, and reconnects the pools of degraded connections
+ * in the background, with exponential backoff between failed attempts. New pool handles are swapped in atomically,
+ * so threads using a connection never wait for a reconnection.
+ */
+public class IndyHealthChecker {
+
+    private static final Logger log = LoggerFactory.getLogger(IndyHealthChecker.class);
+
+    private static final int MAX_BACKOFF_FACTOR = 32;
+
+    private final Supplier<Map<String, IndyConnection>> indyConnections;
+    private final Duration interval;
+    private final Duration timeout;
+    private final int failureThreshold;
+
+    private ScheduledFuture<?> scheduledFuture;
+
+    public IndyHealthChecker(Supplier<Map<String, IndyConnection>> indyConnections, Duration interval, Duration timeout, int failureThreshold) {
+        this.indyConnections = indyConnections;
+        this.interval = interval;
+        this.timeout = timeout;
+        this.failureThreshold = failureThreshold;
+    }
+
+    public synchronized void start(ScheduledExecutorService scheduler) {
+        if (this.scheduledFuture != null) return;
+        if (log.isInfoEnabled()) log.info("Starting health checks every " + this.interval + " (timeout " + this.timeout + ", failure threshold " + this.failureThreshold + ")");
+        this.scheduledFuture = scheduler.scheduleWithFixedDelay(this::checkAll, this.interval.toMillis(), this.interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (this.scheduledFuture == null) return;
+        this.scheduledFuture.cancel(false);
+        this.scheduledFuture = null;
+    }
+
+    private void checkAll() {
+
+        Map<String, IndyConnection> indyConnections = this.indyConnections.get();
+        if (indyConnections == null) return;
+
+        for (IndyConnection indyConnection : indyConnections.values()) {
+            try {
+                this.check(indyConnection);
+            } catch (RuntimeException ex) {
+                if (log.isWarnEnabled()) log.warn("Cannot check health of Indy connection for network " + indyConnection.getNetwork() + ": " + ex.getMessage(), ex);
+            }
+        }
+    }
+
+    /**
+     * This probes an Indy connection once, and starts a reconnection if it has become degraded.
+     * Connections whose wallet is not open (because they have not been opened yet, or have been closed) are skipped.
+     * @return A future that completes when the probe has completed.
+     */
+    public CompletableFuture<Void> check(IndyConnection indyConnection) {
+
+        if (indyConnection.getWalletHandle() == null) return CompletableFuture.completedFuture(null);
+
+        IndyConnectionHealth health = indyConnection.getHealth();
+        health.setFailureThreshold(this.failureThreshold);
+
+        if (indyConnection.getPoolHandles() == null) {
+            health.recordFailure("Pool is not open.");
+            this.reconnectIfDegraded(indyConnection);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        long startNanos = System.nanoTime();
+        return indyConnection.probeAsync().orTimeout(this.timeout.toMillis(), TimeUnit.MILLISECONDS).handle((result, ex) -> {
+            if (ex == null) {
+                health.recordSuccess(System.nanoTime() - startNanos);
+                if (log.isDebugEnabled()) log.debug("Health check for network " + indyConnection.getNetwork() + " succeeded: " + health);
+            } else {
+                health.recordFailure(String.valueOf(IndyFutures.unwrap(ex)));
+                if (log.isWarnEnabled()) log.warn("Health check for network " + indyConnection.getNetwork() + " failed: " + IndyFutures.unwrap(ex) + " (" + health + ")");
+                this.reconnectIfDegraded(indyConnection);
+            }
+            return null;
+        });
+    }
+
+    private void reconnectIfDegraded(IndyConnection indyConnection) {
+        if (indyConnection.getHealth().isDegraded()) this.reconnectAsync(indyConnection);
+    }
+
+    /**
+     * This reconnects the pool of an Indy connection in the background, unless the backoff after the last failed reconnection has not yet passed.
+     * If a reconnection is already running, no other one is started.
+     * @return A future that completes when the reconnection (the new one or the one already running) has completed, or right away if it was skipped.
+     */
+    public CompletableFuture<Void> reconnectAsync(IndyConnection indyConnection) {
+
+        IndyConnectionHealth health = indyConnection.getHealth();
+        CompletableFuture<Void> reconnectFuture = new CompletableFuture<>();
+        if (! health.startReconnect(System.nanoTime(), reconnectFuture)) {
+            CompletableFuture<Void> runningReconnectFuture = health.getReconnectFuture();
+            return runningReconnectFuture != null ? runningReconnectFuture.copy() : CompletableFuture.completedFuture(null);
+        }
+
+        indyConnection.reconnectPoolAsync().handle((result, ex) -> {
+            if (ex == null) {
+                health.reconnected();
+                IndyReopenEvent event = new IndyReopenEvent();
+                event.network = indyConnection.getNetwork();
+                event.background = true;
+                event.commit();
+                indyConnection.getIndyMetrics().recordReopen(indyConnection.getNetwork(), true);
+                if (log.isInfoEnabled()) log.info("Reconnected Indy connection for network " + indyConnection.getNetwork() + ": " + health);
+            } else {
+                int factor = Math.min(MAX_BACKOFF_FACTOR, 1 << Math.min(health.getReconnectAttempts(), 30));
+                long backoffNanos = this.interval.toNanos() * factor;
+                health.reconnectFailed(System.nanoTime(), backoffNanos);
+                if (log.isWarnEnabled()) log.warn("Cannot reconnect Indy connection for network " + indyConnection.getNetwork() + ", next attempt in " + Duration.ofNanos(backoffNanos) + ": " + IndyFutures.unwrap(ex).getMessage());
+            }
+            return null;
+        }).whenComplete((result, ex) -> reconnectFuture.complete(null));
+
+        return reconnectFuture.copy();
+    }
+
+    /*
+     * Getters
+     */
+
+    public Duration getInterval() {
+        return interval;
+    }
+
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    public int getFailureThreshold() {
+        return failureThreshold;
+    }
+}
@@ -0,0 +1,20 @@
+package com.danubetech.libindy;
+
+import jdk.jfr.*;
+
+@Name("com.danubetech.libindy.LedgerCall")
+@Label("Indy Ledger Call")
+@Description("A request to an Indy ledger")
+@Category({"Indy"})
+@StackTrace(false)
+class IndyLedgerCallEvent extends Event {
+
+    @Label("Network")
+    String network;
+
+    @Label("Request Type")
+    String requestType;
+
+    @Label("Success")
+    boolean success;
+}
@@ -0,0 +1,18 @@
+package com.danubetech.libindy;
+
+import org.json.JSONObject;
+
+/**
+ * A transaction read from a ledger with GET_TXN.
+ * @param seqNo The sequence number of the transaction.
+ * @param response The GET_TXN response.
+ */
+public record IndyLedgerTxn(int seqNo, String response) {
+
+    /**
+     * @return The transaction and its metadata, i.e. the data of the result of the GET_TXN response.
+     */
+    public JSONObject getData() {
+        return new JSONObject(this.response).getJSONObject("result").getJSONObject("data");
+    }
+}
@@ -0,0 +1,287 @@
+package com.danubetech.libindy;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Publishes the transactions of a ledger for a range of sequence numbers, e.g. to index or audit a whole ledger.
+ *
+ * Up to a number of transactions (the prefetch) are read with GET_TXN in parallel ahead of the subscriber, and they are
+ * always delivered in the order of their sequence numbers. Reads never get further ahead than the prefetch, so a subscriber
+ * that does not request more transactions holds back the reads.
+ * Without an upper bound, publishing completes at the first sequence number that the ledger has no transaction for.
+ *
+ * A failed read fails the subscription when its turn comes. The checkpoint is the sequence number of the last transaction
+ * that has been delivered (or taken from the stream), so a scan can be resumed with a new publisher that starts after the checkpoint.
+ *
+ * A publisher can be subscribed to only once.
+ */
+public class IndyLedgerTxnPublisher implements Flow.Publisher<IndyLedgerTxn> {
+
+    public static final int DEFAULT_PREFETCH = 16;
+
+    private final IntFunction<CompletableFuture<String>> getTxn;
+    private final int fromSeqNo;
+    private final int toSeqNo;
+    private final int prefetch;
+
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+    private volatile int checkpoint;
+
+    /**
+     * @param getTxn The GET_TXN call for a sequence number.
+     * @param fromSeqNo The first sequence number, at least 1.
+     * @param toSeqNo The last sequence number, or null to read up to the end of the ledger.
+     * @param prefetch How many transactions are read ahead of the subscriber at most.
+     */
+    public IndyLedgerTxnPublisher(IntFunction<CompletableFuture<String>> getTxn, int fromSeqNo, Integer toSeqNo, int prefetch) {
+        if (fromSeqNo < 1) throw new IllegalArgumentException("Expected a positive sequence number: " + fromSeqNo);
+        if (prefetch < 1) throw new IllegalArgumentException("Expected a positive prefetch: " + prefetch);
+        this.getTxn = getTxn;
+        this.fromSeqNo = fromSeqNo;
+        this.toSeqNo = toSeqNo == null ? Integer.MAX_VALUE : toSeqNo;
+        this.prefetch = prefetch;
+        this.checkpoint = fromSeqNo - 1;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super IndyLedgerTxn> subscriber) {
+
+        if (! this.subscribed.compareAndSet(false, true)) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override public void request(long n) { }
+                @Override public void cancel() { }
+            });
+            subscriber.onError(new IllegalStateException("Already subscribed"));
+            return;
+        }
+
+        Subscription subscription = new Subscription(subscriber);
+        subscriber.onSubscribe(subscription);
+        subscription.drain();
+    }
+
+    /**
+     * This subscribes to this publisher with a blocking iterator, which reads ahead up to the prefetch.
+     * Closing the stream cancels the subscription.
+     * @return A sequential stream of the transactions. A failed read is thrown as an IllegalStateException by the stream.
+     */
+    public Stream<IndyLedgerTxn> stream() {
+
+        BlockingIterator blockingIterator = new BlockingIterator();
+        this.subscribe(blockingIterator);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(blockingIterator, Spliterator.ORDERED | Spliterator.NONNULL), false).onClose(blockingIterator::cancel);
+    }
+
+    /*
+     * Getters
+     */
+
+    /**
+     * The sequence number of the last transaction that has been delivered (or taken from the stream), or the sequence number before the first one if none has been delivered yet.
+     */
+    public int getCheckpoint() {
+        return this.checkpoint;
+    }
+
+    public int getFromSeqNo() {
+        return this.fromSeqNo;
+    }
+
+    public int getPrefetch() {
+        return this.prefetch;
+    }
+
+    /*
+     * Helper classes
+     */
+
+    private class Subscription implements Flow.Subscription {
+
+        private final Flow.Subscriber<? super IndyLedgerTxn> subscriber;
+        private final Map<Long, Object> results = new ConcurrentHashMap<>();
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private final AtomicLong endSeqNo = new AtomicLong(Long.MAX_VALUE);
+        private volatile boolean cancelled;
+        private long nextFetchSeqNo = IndyLedgerTxnPublisher.this.fromSeqNo;
+        private long nextDeliverSeqNo = IndyLedgerTxnPublisher.this.fromSeqNo;
+
+        private Subscription(Flow.Subscriber<? super IndyLedgerTxn> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+
+            if (n <= 0) {
+                this.cancelled = true;
+                this.subscriber.onError(new IllegalArgumentException("Expected a positive number of transactions: " + n));
+                return;
+            }
+            this.demand.accumulateAndGet(n, (a, b) -> a + b < 0 ? Long.MAX_VALUE : a + b);
+            this.drain();
+        }
+
+        @Override
+        public void cancel() {
+            this.cancelled = true;
+            this.results.clear();
+        }
+
+        /**
+         * Delivers the transactions that are due and starts reads up to the prefetch. Only one thread drains at a time.
+         */
+        private void drain() {
+
+            if (this.wip.getAndIncrement() != 0) return;
+
+            do {
+                // deliver in order
+
+                while (! this.cancelled) {
+                    if (this.nextDeliverSeqNo > IndyLedgerTxnPublisher.this.toSeqNo || this.nextDeliverSeqNo >= this.endSeqNo.get()) {
+                        this.cancelled = true;
+                        this.subscriber.onComplete();
+                        break;
+                    }
+                    if (this.demand.get() == 0) break;
+                    Object result = this.results.remove(this.nextDeliverSeqNo);
+                    if (result == null) break;
+                    if (result instanceof Throwable ex) {
+                        this.cancel();
+                        this.subscriber.onError(ex);
+                        break;
+                    }
+                    IndyLedgerTxn indyLedgerTxn = new IndyLedgerTxn((int) this.nextDeliverSeqNo, (String) result);
+                    this.nextDeliverSeqNo++;
+                    this.demand.decrementAndGet();
+                    if (! (this.subscriber instanceof IndyLedgerTxnPublisher.BlockingIterator)) IndyLedgerTxnPublisher.this.checkpoint = indyLedgerTxn.seqNo();
+                    try {
+                        this.subscriber.onNext(indyLedgerTxn);
+                    } catch (RuntimeException ex) {
+                        this.cancel();
+                    }
+                }
+
+                // read ahead
+
+                while (! this.cancelled && this.nextFetchSeqNo - this.nextDeliverSeqNo < IndyLedgerTxnPublisher.this.prefetch && this.nextFetchSeqNo <= IndyLedgerTxnPublisher.this.toSeqNo && this.nextFetchSeqNo < this.endSeqNo.get()) {
+                    long seqNo = this.nextFetchSeqNo++;
+                    CompletableFuture<String> future;
+                    try {
+                        future = IndyLedgerTxnPublisher.this.getTxn.apply((int) seqNo);
+                    } catch (RuntimeException ex) {
+                        future = CompletableFuture.failedFuture(ex);
+                    }
+                    future.whenComplete((response, ex) -> {
+                        if (this.cancelled) return;
+                        this.complete(seqNo, response, ex);
+                        this.drain();
+                    });
+                }
+            } while (this.wip.decrementAndGet() != 0);
+        }
+
+        private void complete(long seqNo, String response, Throwable ex) {
+
+            if (ex != null) {
+                this.results.put(seqNo, IndyFutures.toIndyConnectionException(ex));
+                return;
+            }
+            try {
+                JSONObject jsonObject = new JSONObject(response);
+                JSONObject result = jsonObject.optJSONObject("result");
+                if (! "REPLY".equals(jsonObject.optString("op")) || result == null) {
+                    this.results.put(seqNo, new IndyConnectionException("GET_TXN for " + seqNo + " failed: " + jsonObject.optString("reason", response)));
+                } else if (result.isNull("data")) {
+                    this.endSeqNo.accumulateAndGet(seqNo, Math::min);
+                } else {
+                    this.results.put(seqNo, response);
+                }
+            } catch (JSONException jex) {
+                this.results.put(seqNo, new IndyConnectionException("Invalid GET_TXN response for " + seqNo + ": " + jex.getMessage(), jex));
+            }
+        }
+    }
+
+    /**
+     * A subscriber that hands the transactions to an iterator, requesting one more for each one taken.
+     */
+    private class BlockingIterator implements Flow.Subscriber<IndyLedgerTxn>, Iterator<IndyLedgerTxn> {
+
+        private static final Object COMPLETE = new Object();
+
+        private final BlockingQueue<Object> queue = new ArrayBlockingQueue<>(IndyLedgerTxnPublisher.this.prefetch + 1);
+        private volatile Flow.Subscription subscription;
+        private Object next;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(IndyLedgerTxnPublisher.this.prefetch);
+        }
+
+        @Override
+        public void onNext(IndyLedgerTxn item) {
+            this.queue.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            this.queue.add(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            this.queue.add(COMPLETE);
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (this.next == null) {
+                try {
+                    this.next = this.queue.take();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    this.cancel();
+                    throw new IllegalStateException("Interrupted while waiting for a transaction: " + ex.getMessage(), ex);
+                }
+            }
+            if (this.next instanceof Throwable ex) throw new IllegalStateException("Cannot read transactions after " + IndyLedgerTxnPublisher.this.getCheckpoint() + ": " + ex.getMessage(), ex);
+            return this.next != COMPLETE;
+        }
+
+        @Override
+        public IndyLedgerTxn next() {
+            if (! this.hasNext()) throw new NoSuchElementException();
+            IndyLedgerTxn indyLedgerTxn = (IndyLedgerTxn) this.next;
+            this.next = null;
+            IndyLedgerTxnPublisher.this.checkpoint = indyLedgerTxn.seqNo();
+            this.subscription.request(1);
+            return indyLedgerTxn;
+        }
+
+        private void cancel() {
+            Flow.Subscription subscription = this.subscription;
+            if (subscription != null) subscription.cancel();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.danubetech.libindy;
+
+import java.util.function.IntSupplier;
+
+/**
+ * An interface for recording metrics of Indy connections, e.g. to bridge to a metrics library.
+ * All methods have empty default implementations, so implementations only need to override what they record.
+ * Implementations must be thread-safe and should return quickly, since they are called on the paths of ledger calls.
+ */
+public interface IndyMetrics {
+
+    String CREATE_POOL_CONFIG = "createPoolConfig";
+    String OPEN_POOL = "openPool";
+    String GENERATE_WALLET_KEY = "generateWalletKey";
+    String CREATE_WALLET = "createWallet";
+    String OPEN_WALLET = "openWallet";
+    String CREATE_SUBMITTER_DID = "createSubmitterDid";
+    String RETRIEVE_TAA = "retrieveTaa";
+    String REFRESH_POOL = "refreshPool";
+
+    IndyMetrics NOOP = new IndyMetrics() {
+    };
+
+    /**
+     * Records the duration of a step of opening or maintaining an Indy connection, see the constants of this interface.
+     */
+    default void recordOperation(String network, String operation, long durationNanos, boolean success) {
+    }
+
+    /**
+     * Records the duration of a request to the ledger, e.g. GET_NYM.
+     */
+    default void recordLedgerCall(String network, String requestType, long durationNanos, boolean success) {
+    }
+
+    /**
+     * Records that an Indy connection has been re-opened, or that its pool has been reconnected in the background.
+     */
+    default void recordReopen(String network, boolean background) {
+    }
+
+    /**
+     * Registers a gauge with the number of ledger requests in flight on a network.
+     */
+    default void registerInFlightGauge(String network, IntSupplier inFlight) {
+    }
+}
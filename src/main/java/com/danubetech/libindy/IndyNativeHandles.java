@@ -0,0 +1,121 @@
+package com.danubetech.libindy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.ref.Cleaner;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The pool and wallet handles that an Indy connection owns, i.e. that it has opened (or taken over) and has to close.
+ *
+ * Handles are released explicitly when they are closed, so closing does not depend on garbage collection. As a safety net,
+ * an Indy connection that becomes unreachable while it still owns handles is reported as a leak, and its handles are closed then.
+ */
+public class IndyNativeHandles {
+
+    private static final Logger log = LoggerFactory.getLogger(IndyNativeHandles.class);
+
+    private static final Cleaner cleaner = Cleaner.create(IndyExecutors.newDaemonThreadFactory("indy-cleaner-"));
+    private static final LongAdder leakedHandleCount = new LongAdder();
+
+    private final State state;
+
+    /**
+     * The state is kept apart from the Indy connection, so that it is still there when the Indy connection has become unreachable.
+     */
+    private static class State implements Runnable {
+
+        private volatile String network;
+        private final Map<IndyTransport.PoolHandle, IndyTransport> poolHandles = new ConcurrentHashMap<>();
+        private final Map<IndyTransport.WalletHandle, IndyTransport> walletHandles = new ConcurrentHashMap<>();
+
+        private State(String network) {
+            this.network = network;
+        }
+
+        @Override
+        public void run() {
+
+            int leaked = this.poolHandles.size() + this.walletHandles.size();
+            if (leaked == 0) return;
+
+            leakedHandleCount.add(leaked);
+            if (log.isWarnEnabled()) log.warn("Indy connection for network " + this.network + " was not closed, closing " + this.poolHandles.size() + " leaked pool handles and " + this.walletHandles.size() + " leaked wallet handles.");
+
+            this.walletHandles.forEach((walletHandle, transport) -> transport.closeWallet(walletHandle).exceptionally(ex -> {
+                if (log.isWarnEnabled()) log.warn("Cannot close leaked wallet " + walletHandle.getHandle() + ": " + IndyFutures.unwrap(ex).getMessage());
+                return null;
+            }));
+            this.poolHandles.forEach((poolHandle, transport) -> transport.closePoolLedger(poolHandle).exceptionally(ex -> {
+                if (log.isWarnEnabled()) log.warn("Cannot close leaked pool " + poolHandle.getHandle() + ": " + IndyFutures.unwrap(ex).getMessage());
+                return null;
+            }));
+            this.walletHandles.clear();
+            this.poolHandles.clear();
+        }
+    }
+
+    private IndyNativeHandles(String network) {
+        this.state = new State(network);
+    }
+
+    void setNetwork(String network) {
+        this.state.network = network;
+    }
+
+    /**
+     * @param owner The Indy connection that owns the handles. It must not be referenced by the transports of the handles.
+     */
+    static IndyNativeHandles register(IndyConnection owner) {
+
+        IndyNativeHandles indyNativeHandles = new IndyNativeHandles(owner.getNetwork());
+        cleaner.register(owner, indyNativeHandles.state);
+        return indyNativeHandles;
+    }
+
+    void acquire(IndyTransport transport, IndyTransport.PoolHandle poolHandle) {
+        this.state.poolHandles.put(poolHandle, transport);
+    }
+
+    void release(IndyTransport.PoolHandle poolHandle) {
+        this.state.poolHandles.remove(poolHandle);
+    }
+
+    void acquire(IndyTransport transport, IndyTransport.WalletHandle walletHandle) {
+        this.state.walletHandles.put(walletHandle, transport);
+    }
+
+    void release(IndyTransport.WalletHandle walletHandle) {
+        this.state.walletHandles.remove(walletHandle);
+    }
+
+    /*
+     * Getters
+     */
+
+    public int getPoolHandleCount() {
+        return this.state.poolHandles.size();
+    }
+
+    public int getWalletHandleCount() {
+        return this.state.walletHandles.size();
+    }
+
+    /**
+     * The number of handles that have been closed because their Indy connection became unreachable without being closed.
+     */
+    public static long getLeakedHandleCount() {
+        return leakedHandleCount.sum();
+    }
+
+    /*
+     * Object methods
+     */
+
+    public String toString() {
+        return this.getPoolHandleCount() + " pool handles, " + this.getWalletHandleCount() + " wallet handles";
+    }
+}
@@ -0,0 +1,20 @@
+package com.danubetech.libindy;
+
+import jdk.jfr.*;
+
+@Name("com.danubetech.libindy.Operation")
+@Label("Indy Operation")
+@Description("A step of opening an Indy connection")
+@Category({"Indy"})
+@StackTrace(false)
+class IndyOperationEvent extends Event {
+
+    @Label("Network")
+    String network;
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Success")
+    boolean success;
+}
@@ -0,0 +1,103 @@
+package com.danubetech.libindy;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.Function;
+
+/**
+ * The open pool handles of a network. Every call is run on the handle with the fewest calls in flight,
+ * starting the search at the next handle in round-robin order so that equally loaded handles take turns.
+ */
+public class IndyPoolHandles {
+
+    private final List<IndyTransport.PoolHandle> pools;
+    private final AtomicIntegerArray inFlight;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public IndyPoolHandles(List<IndyTransport.PoolHandle> pools) {
+        if (pools == null || pools.isEmpty()) throw new IllegalArgumentException("No pool handles.");
+        this.pools = List.copyOf(pools);
+        this.inFlight = new AtomicIntegerArray(pools.size());
+    }
+
+    /**
+     * Runs a call on the least busy pool handle.
+     * @param call The call, which is given the selected pool handle.
+     * @return A future that completes with the result of the call.
+     */
+    public <T> CompletableFuture<T> call(Function<IndyTransport.PoolHandle, CompletableFuture<T>> call) {
+
+        int index = this.select();
+        this.inFlight.incrementAndGet(index);
+
+        CompletableFuture<T> future;
+        try {
+            future = call.apply(this.pools.get(index));
+        } catch (RuntimeException ex) {
+            future = CompletableFuture.failedFuture(ex);
+        }
+
+        return future.whenComplete((result, ex) -> this.inFlight.decrementAndGet(index));
+    }
+
+    private int select() {
+
+        int size = this.pools.size();
+        if (size == 1) return 0;
+
+        int start = Math.floorMod(this.next.getAndIncrement(), size);
+        int selected = start;
+        int selectedInFlight = this.inFlight.get(start);
+        for (int i=1; i<size && selectedInFlight > 0; i++) {
+            int index = (start + i) % size;
+            int indexInFlight = this.inFlight.get(index);
+            if (indexInFlight < selectedInFlight) {
+                selected = index;
+                selectedInFlight = indexInFlight;
+            }
+        }
+        return selected;
+    }
+
+    /*
+     * Getters
+     */
+
+    public int size() {
+        return this.pools.size();
+    }
+
+    public IndyTransport.PoolHandle getPoolHandle(int index) {
+        return this.pools.get(index);
+    }
+
+    public List<IndyTransport.PoolHandle> getPoolHandles() {
+        return Collections.unmodifiableList(this.pools);
+    }
+
+    public int getInFlight(int index) {
+        return this.inFlight.get(index);
+    }
+
+    public int getInFlight() {
+        int inFlight = 0;
+        for (int i=0; i<this.inFlight.length(); i++) inFlight += this.inFlight.get(i);
+        return inFlight;
+    }
+
+    /*
+     * Object methods
+     */
+
+    public String toString() {
+        StringBuilder string = new StringBuilder();
+        for (int i=0; i<this.pools.size(); i++) {
+            if (i > 0) string.append(", ");
+            string.append(this.pools.get(i).getHandle()).append(" (").append(this.inFlight.get(i)).append(")");
+        }
+        return string.toString();
+    }
+}
@@ -0,0 +1,17 @@
+package com.danubetech.libindy;
+
+import jdk.jfr.*;
+
+@Name("com.danubetech.libindy.Reopen")
+@Label("Indy Reopen")
+@Description("An Indy connection was re-opened, or its pool was reconnected in the background")
+@Category({"Indy"})
+@StackTrace(false)
+class IndyReopenEvent extends Event {
+
+    @Label("Network")
+    String network;
+
+    @Label("Background")
+    boolean background;
+}
@@ -0,0 +1,177 @@
+package com.danubetech.libindy;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Limits the number of requests that are in flight on a network. Submitting a request while the window is full
+ * never blocks the calling thread: the call is queued, and started in submission order from the completion of a request in flight.
+ * Bulk jobs are paced by waiting for the futures of their requests (see {@link #getWaiting()}), instead of sending requests without bound.
+ */
+public class IndyRequestWindow {
+
+    public static final int DEFAULT_MAX_IN_FLIGHT = 32;
+
+    private final int maxInFlight;
+    private final Deque<Waiter<?>> waiters = new ArrayDeque<>();
+    private final AtomicInteger draining = new AtomicInteger();
+    private final LongAdder submitCount = new LongAdder();
+    private final LongAdder queuedCount = new LongAdder();
+
+    private int inFlight;
+
+    public IndyRequestWindow(int maxInFlight) {
+        if (maxInFlight < 1) throw new IllegalArgumentException("Expected a positive number: " + maxInFlight);
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Runs a call once there is room in the window, and keeps its place in the window until the future returned by the call has completed.
+     * @param call The call.
+     * @return A future that completes with the result of the call.
+     */
+    public <T> CompletableFuture<T> submit(Supplier<CompletableFuture<T>> call) {
+
+        return this.submit(call, null);
+    }
+
+    /**
+     * Runs a call once there is room in the window, and keeps its place in the window until the future returned by the call has completed.
+     * @param call The call.
+     * @param maxWait How long to wait at most for room in the window, or null to wait as long as it takes.
+     * @return A future that completes with the result of the call, or completes exceptionally if there is no room in the window within the maximum wait.
+     */
+    public <T> CompletableFuture<T> submit(Supplier<CompletableFuture<T>> call, Duration maxWait) {
+
+        this.submitCount.increment();
+        Waiter<T> waiter = new Waiter<>(call);
+
+        boolean start;
+        synchronized (this) {
+            start = this.inFlight < this.maxInFlight && this.waiters.isEmpty();
+            if (start) this.inFlight++; else this.waiters.add(waiter);
+        }
+
+        if (start) {
+            waiter.start();
+        } else {
+            this.queuedCount.increment();
+            if (maxWait != null) waiter.started.orTimeout(Math.max(0, maxWait.toNanos()), TimeUnit.NANOSECONDS).whenComplete((result, ex) -> {
+                if (ex == null) return;
+                boolean removed;
+                synchronized (this) {
+                    removed = this.waiters.remove(waiter);
+                }
+                if (removed) waiter.result.completeExceptionally(new IndyConnectionException("Timeout after " + maxWait + " waiting for the request window"));
+            });
+        }
+
+        return waiter.result;
+    }
+
+    private void release() {
+
+        synchronized (this) {
+            this.inFlight--;
+        }
+        this.drain();
+    }
+
+    /**
+     * This starts queued calls while there is room in the window. Calls that complete right away release their place
+     * while this is running, so only the first thread loops, and the others only make it loop again.
+     */
+    private void drain() {
+
+        if (this.draining.getAndIncrement() != 0) return;
+        do {
+            while (true) {
+                Waiter<?> waiter;
+                synchronized (this) {
+                    if (this.inFlight >= this.maxInFlight) break;
+                    waiter = this.waiters.poll();
+                    if (waiter == null) break;
+                    if (waiter.result.isDone()) continue;
+                    this.inFlight++;
+                }
+                waiter.start();
+            }
+        } while (this.draining.decrementAndGet() != 0);
+    }
+
+    /*
+     * Getters
+     */
+
+    public int getMaxInFlight() {
+        return this.maxInFlight;
+    }
+
+    public synchronized int getInFlight() {
+        return this.inFlight;
+    }
+
+    /**
+     * The number of calls that are queued for room in the window.
+     */
+    public synchronized int getWaiting() {
+        return this.waiters.size();
+    }
+
+    public long getSubmitCount() {
+        return this.submitCount.sum();
+    }
+
+    /**
+     * The number of submissions that were queued because the window was full.
+     */
+    public long getQueuedCount() {
+        return this.queuedCount.sum();
+    }
+
+    /*
+     * Object methods
+     */
+
+    public String toString() {
+        return this.getInFlight() + "/" + this.getMaxInFlight() + " in flight, " + this.getWaiting() + " waiting";
+    }
+
+    /*
+     * Helper classes
+     */
+
+    private class Waiter<T> {
+
+        private final Supplier<CompletableFuture<T>> call;
+        private final CompletableFuture<Void> started = new CompletableFuture<>();
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+
+        private Waiter(Supplier<CompletableFuture<T>> call) {
+            this.call = call;
+        }
+
+        private void start() {
+
+            this.started.complete(null);
+
+            CompletableFuture<T> future;
+            try {
+                future = this.call.get();
+            } catch (RuntimeException ex) {
+                future = CompletableFuture.failedFuture(ex);
+            }
+
+            future.whenComplete((result, ex) -> {
+                IndyRequestWindow.this.release();
+                if (ex == null) this.result.complete(result); else this.result.completeExceptionally(ex);
+            });
+        }
+    }
+}
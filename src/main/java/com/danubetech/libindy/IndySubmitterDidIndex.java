@@ -0,0 +1,48 @@
+package com.danubetech.libindy;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An in-memory index of the submitter DIDs in the wallets of Indy connections, by network.
+ * An entry is only used if the wallet name and the hash of the submitter DID seed are still the same.
+ */
+public class IndySubmitterDidIndex {
+
+    /**
+     * The seed hash that is used for random submitter DIDs.
+     */
+    public static final String RANDOM = "random";
+
+    public record Entry(String walletName, String seedHash, String did) {
+    }
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * @return The indexed submitter DID, or null if there is none for the network, wallet name and seed hash.
+     */
+    public String get(String network, String walletName, String seedHash) {
+
+        Entry entry = this.entries.get(network);
+        if (entry == null || ! Objects.equals(entry.walletName(), walletName) || ! Objects.equals(entry.seedHash(), seedHash)) return null;
+        return entry.did();
+    }
+
+    public void put(String network, String walletName, String seedHash, String did) {
+        this.entries.put(network, new Entry(walletName, seedHash, did));
+    }
+
+    public void remove(String network) {
+        this.entries.remove(network);
+    }
+
+    public int size() {
+        return this.entries.size();
+    }
+
+    public Map<String, Entry> getEntries() {
+        return Map.copyOf(this.entries);
+    }
+}
@@ -0,0 +1,80 @@
+package com.danubetech.libindy;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The timeouts of the operations of opening an Indy connection (see the constants of {@link IndyMetrics}) and of ledger calls (e.g. GET_NYM or SUBMIT).
+ * Operations and ledger calls without a timeout of their own use the default timeout for operations or ledger calls.
+ *
+ * A timeout only stops waiting for a call. libindy has no way to cancel a call, so the call keeps running and still counts as in flight until it completes.
+ */
+public class IndyTimeouts {
+
+    public static final String OPERATION = "operation";
+    public static final String LEDGER_CALL = "ledgerCall";
+
+    public static final Duration DEFAULT_OPERATION_TIMEOUT = Duration.ofSeconds(60);
+    public static final Duration DEFAULT_LEDGER_CALL_TIMEOUT = Duration.ofSeconds(30);
+
+    public static final IndyTimeouts DEFAULT = new IndyTimeouts(Map.of());
+
+    private final Map<String, Duration> timeouts;
+
+    public IndyTimeouts(Map<String, Duration> timeouts) {
+        this.timeouts = Collections.unmodifiableMap(new LinkedHashMap<>(timeouts));
+    }
+
+    /**
+     * Parses timeouts of the form "name;seconds;name;seconds", e.g. "operation;120;ledgerCall;20;GET_NYM;5".
+     * The names "operation" and "ledgerCall" set the default timeouts. Seconds can have a fraction, e.g. "0.5".
+     */
+    public static IndyTimeouts parse(String string) {
+
+        String[] timeoutStrings = string == null || string.isEmpty() ? new String[0] : string.split(";");
+        if (timeoutStrings.length % 2 != 0) throw new IllegalArgumentException("Expected 'name;seconds' pairs: " + string);
+
+        Map<String, Duration> timeouts = new LinkedHashMap<>();
+        for (int i=0; i<timeoutStrings.length; i+=2) {
+            double seconds = Double.parseDouble(timeoutStrings[i+1].trim());
+            if (! (seconds > 0)) throw new IllegalArgumentException("Expected a positive number of seconds for " + timeoutStrings[i] + ": " + timeoutStrings[i+1]);
+            timeouts.put(timeoutStrings[i].trim(), Duration.ofNanos((long) (seconds * 1_000_000_000L)));
+        }
+
+        return new IndyTimeouts(timeouts);
+    }
+
+    /**
+     * @param operation An operation, see the constants of {@link IndyMetrics}.
+     */
+    public Duration getOperationTimeout(String operation) {
+        Duration timeout = this.timeouts.get(operation);
+        return timeout != null ? timeout : this.timeouts.getOrDefault(OPERATION, DEFAULT_OPERATION_TIMEOUT);
+    }
+
+    /**
+     * @param requestType A request type, e.g. GET_NYM or SUBMIT.
+     */
+    public Duration getLedgerCallTimeout(String requestType) {
+        Duration timeout = this.timeouts.get(requestType);
+        return timeout != null ? timeout : this.timeouts.getOrDefault(LEDGER_CALL, DEFAULT_LEDGER_CALL_TIMEOUT);
+    }
+
+    /*
+     * Getters
+     */
+
+    public Map<String, Duration> getTimeouts() {
+        return this.timeouts;
+    }
+
+    /*
+     * Object methods
+     */
+
+    public String toString() {
+        return this.timeouts.toString();
+    }
+}
@@ -0,0 +1,124 @@
+package com.danubetech.libindy;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The calls that an Indy connection makes to open pools and wallets, create DIDs, and build and submit ledger requests.
+ * The default is {@link LibIndyTransport}, which calls libindy. {@link InMemoryIndyTransport} simulates a ledger without
+ * libindy, e.g. for load tests.
+ *
+ * All calls return futures that complete exceptionally on failure, instead of throwing.
+ */
+public interface IndyTransport {
+
+    /**
+     * An open pool of a transport.
+     */
+    interface PoolHandle {
+        int getHandle();
+    }
+
+    /**
+     * An open wallet of a transport.
+     */
+    interface WalletHandle {
+        int getHandle();
+    }
+
+    record MyDid(String did, String verkey) {
+    }
+
+    /**
+     * The dispatcher for calls that depend on the protocol version of a network.
+     */
+    PoolVersionDispatcher getPoolVersionDispatcher();
+
+    /*
+     * Pools
+     */
+
+    /**
+     * @return A future that completes with true if the pool config has been created, or false if it already exists.
+     */
+    CompletableFuture<Boolean> createPoolLedgerConfig(String poolConfigName, String poolConfigFile);
+
+    /**
+     * @return A future that completes with true if the pool config exists.
+     */
+    CompletableFuture<Boolean> existsPoolLedgerConfig(String poolConfigName);
+
+    /**
+     * Deletes a pool config that is not open, so that it can be created again with another genesis file.
+     */
+    CompletableFuture<Void> deletePoolLedgerConfig(String poolConfigName);
+
+    /**
+     * @return A future that completes with the genesis fingerprint that has been stored with a pool config (see {@link IndyGenesisFingerprint}), or null if there is none.
+     */
+    CompletableFuture<String> getPoolLedgerConfigFingerprint(String poolConfigName);
+
+    CompletableFuture<Void> setPoolLedgerConfigFingerprint(String poolConfigName, String fingerprint);
+
+    CompletableFuture<PoolHandle> openPoolLedger(String poolConfigName);
+
+    CompletableFuture<Void> closePoolLedger(PoolHandle poolHandle);
+
+    /**
+     * Refreshes the list of pool nodes and catches up with the pool ledger.
+     */
+    CompletableFuture<Void> refreshPoolLedger(PoolHandle poolHandle);
+
+    /*
+     * Wallets
+     */
+
+    /**
+     * @return A future that completes with true if the wallet has been created, or false if it already exists.
+     */
+    CompletableFuture<Boolean> createWallet(String walletConfig, String walletCredentials);
+
+    CompletableFuture<WalletHandle> openWallet(String walletConfig, String walletCredentials);
+
+    CompletableFuture<Void> closeWallet(WalletHandle walletHandle);
+
+    /**
+     * @return A future that completes with a raw wallet key (for the RAW key derivation method) generated from a seed.
+     */
+    CompletableFuture<String> generateWalletKey(String seed);
+
+    /*
+     * DIDs
+     */
+
+    /**
+     * @param seed The seed of the DID, or null for a random DID.
+     */
+    CompletableFuture<MyDid> createAndStoreMyDid(WalletHandle walletHandle, String seed);
+
+    CompletableFuture<String> getMyDidWithMeta(WalletHandle walletHandle, String did);
+
+    /**
+     * @return A future that completes with a JSON array of the DIDs in the wallet, with "did", "verkey" and "metadata".
+     */
+    CompletableFuture<String> getListMyDidsWithMeta(WalletHandle walletHandle);
+
+    CompletableFuture<Void> setDidMetadata(WalletHandle walletHandle, String did, String metadata);
+
+    /*
+     * Ledger
+     */
+
+    CompletableFuture<String> buildGetNymRequest(String submitterDid, String targetDid);
+
+    CompletableFuture<String> buildGetAttribRequest(String submitterDid, String targetDid, String raw, String hash, String enc);
+
+    CompletableFuture<String> buildGetTxnRequest(String submitterDid, String ledgerType, int seqNo);
+
+    CompletableFuture<String> buildGetTxnAuthorAgreementRequest(String submitterDid, String data);
+
+    CompletableFuture<String> signRequest(WalletHandle walletHandle, String submitterDid, String request);
+
+    CompletableFuture<String> submitRequest(PoolHandle poolHandle, String request);
+
+    CompletableFuture<String> signAndSubmitRequest(PoolHandle poolHandle, WalletHandle walletHandle, String submitterDid, String request);
+}
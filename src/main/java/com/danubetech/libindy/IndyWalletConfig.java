@@ -0,0 +1,154 @@
+package com.danubetech.libindy;
+
+import org.json.JSONObject;
+
+import java.util.Objects;
+
+/**
+ * The storage and key of the wallet of an Indy connection.
+ *
+ * With the default key derivation method ARGON2I_MOD, libindy derives the wallet key from the passphrase on every
+ * open, which is one of the slowest steps of opening a connection. ARGON2I_INT is a cheaper variant of the same KDF.
+ * RAW skips the KDF and uses the key as is (a base58-encoded 32-byte key), and SEED generates such a raw key from a
+ * seed, which is cheap, and can be kept for re-opening (see {@link IndyConnector#setCacheWalletKeys(boolean)}).
+ *
+ * Wallets can only be opened with the key derivation method and key they were created with, so changing these for an
+ * existing wallet requires re-keying it, or a new wallet name.
+ */
+public class IndyWalletConfig {
+
+    public static final String ARGON2I_MOD = "ARGON2I_MOD";
+    public static final String ARGON2I_INT = "ARGON2I_INT";
+    public static final String RAW = "RAW";
+    public static final String SEED = "SEED";
+
+    public static final String DEFAULT_KEY = "key";
+    public static final String DEFAULT_STORAGE_TYPE = "default";
+
+    private String keyDerivationMethod = ARGON2I_MOD;
+    private String key = DEFAULT_KEY;
+    private String storageType = DEFAULT_STORAGE_TYPE;
+    private String storagePath;
+
+    public IndyWalletConfig() {
+    }
+
+    public IndyWalletConfig(String keyDerivationMethod, String key, String storageType, String storagePath) {
+        this.keyDerivationMethod = keyDerivationMethod;
+        this.key = key;
+        this.storageType = storageType;
+        this.storagePath = storagePath;
+    }
+
+    /**
+     * Parses a wallet key of the form "[method:]key", e.g. "RAW:8dvfYSt5d1taSd6yJdpjq4emkwsPDDLYxkNFysFD2cZY".
+     * Without a method, ARGON2I_MOD is used.
+     */
+    public void parseKey(String string) {
+
+        int index = string.indexOf(':');
+        String method = index == -1 ? null : string.substring(0, index);
+        if (method != null && (method.equals(ARGON2I_MOD) || method.equals(ARGON2I_INT) || method.equals(RAW) || method.equals(SEED))) {
+            this.keyDerivationMethod = method;
+            this.key = string.substring(index + 1);
+        } else {
+            this.keyDerivationMethod = ARGON2I_MOD;
+            this.key = string;
+        }
+        if (this.key.isEmpty()) throw new IllegalArgumentException("Empty wallet key: " + string);
+    }
+
+    /**
+     * Parses a wallet storage of the form "type[:path]", e.g. "default:/var/lib/indy/wallets".
+     */
+    public void parseStorage(String string) {
+
+        int index = string.indexOf(':');
+        this.storageType = index == -1 ? string : string.substring(0, index);
+        this.storagePath = index == -1 ? null : string.substring(index + 1);
+        if (this.storageType.isEmpty()) throw new IllegalArgumentException("Empty wallet storage type: " + string);
+    }
+
+    /**
+     * Whether a raw key has to be generated from the key (which is then a seed) before opening the wallet.
+     */
+    public boolean isSeed() {
+        return SEED.equals(this.keyDerivationMethod);
+    }
+
+    public String toConfigJson(String walletName) {
+
+        JSONObject jsonObject = new JSONObject();
+        jsonObject.put("id", walletName);
+        jsonObject.put("storage_type", this.getStorageType());
+        if (this.getStoragePath() != null) jsonObject.put("storage_config", new JSONObject().put("path", this.getStoragePath()));
+        return jsonObject.toString();
+    }
+
+    /**
+     * @param key The key, or for SEED the raw key that has been generated from the seed.
+     */
+    public String toCredentialsJson(String key) {
+
+        JSONObject jsonObject = new JSONObject();
+        jsonObject.put("key", key);
+        if (! ARGON2I_MOD.equals(this.getKeyDerivationMethod())) jsonObject.put("key_derivation_method", this.isSeed() ? RAW : this.getKeyDerivationMethod());
+        return jsonObject.toString();
+    }
+
+    /*
+     * Getters and setters
+     */
+
+    public String getKeyDerivationMethod() {
+        return keyDerivationMethod;
+    }
+
+    public void setKeyDerivationMethod(String keyDerivationMethod) {
+        this.keyDerivationMethod = keyDerivationMethod;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public void setKey(String key) {
+        this.key = key;
+    }
+
+    public String getStorageType() {
+        return storageType;
+    }
+
+    public void setStorageType(String storageType) {
+        this.storageType = storageType;
+    }
+
+    public String getStoragePath() {
+        return storagePath;
+    }
+
+    public void setStoragePath(String storagePath) {
+        this.storagePath = storagePath;
+    }
+
+    /*
+     * Object methods
+     */
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (! (o instanceof IndyWalletConfig that)) return false;
+        return Objects.equals(this.keyDerivationMethod, that.keyDerivationMethod) && Objects.equals(this.key, that.key) && Objects.equals(this.storageType, that.storageType) && Objects.equals(this.storagePath, that.storagePath);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(this.keyDerivationMethod, this.key, this.storageType, this.storagePath);
+    }
+
+    public String toString() {
+        return this.getKeyDerivationMethod() + " / " + this.getStorageType() + (this.getStoragePath() == null ? "" : (" / " + this.getStoragePath()));
+    }
+}
@@ -0,0 +1,173 @@
+package com.danubetech.libindy;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded cache for results of ledger reads such as GET_NYM and GET_ATTRIB.
+ * Entries expire after a fixed time to live, and the least recently used entries are evicted when the cache is full.
+ */
+public class LedgerReadCache {
+
+    public static final String GET_NYM = "GET_NYM";
+    public static final String GET_ATTRIB = "GET_ATTRIB";
+
+    private final int maxSize;
+    private final Duration ttl;
+
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+    private final LongAdder expirationCount = new LongAdder();
+
+    private long generation;
+
+    public LedgerReadCache(int maxSize, Duration ttl) {
+        if (maxSize < 1) throw new IllegalArgumentException("Invalid maximum size: " + maxSize);
+        if (ttl == null || ttl.isNegative()) throw new IllegalArgumentException("Invalid time to live: " + ttl);
+        this.maxSize = maxSize;
+        this.ttl = ttl;
+    }
+
+    public String get(Key key) {
+
+        synchronized (this.entries) {
+            Entry entry = this.entries.get(key);
+            if (entry != null && entry.isExpired(System.nanoTime(), this.ttl.toNanos())) {
+                this.entries.remove(key);
+                this.expirationCount.increment();
+                entry = null;
+            }
+            if (entry == null) {
+                this.missCount.increment();
+                return null;
+            }
+            this.hitCount.increment();
+            return entry.value;
+        }
+    }
+
+    public void put(Key key, String value) {
+
+        synchronized (this.entries) {
+            this.putEntry(key, value);
+        }
+    }
+
+    /**
+     * Stores the result of a read, unless the cache has been invalidated since the read was started.
+     * @param generation The generation of the cache when the read was started, see {@link #getGeneration()}.
+     * @return Whether the result has been stored.
+     */
+    public boolean put(Key key, String value, long generation) {
+
+        synchronized (this.entries) {
+            if (this.generation != generation) return false;
+            this.putEntry(key, value);
+            return true;
+        }
+    }
+
+    private void putEntry(Key key, String value) {
+
+        this.entries.put(key, new Entry(value, System.nanoTime()));
+        Iterator<Map.Entry<Key, Entry>> iterator = this.entries.entrySet().iterator();
+        while (this.entries.size() > this.maxSize && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            this.evictionCount.increment();
+        }
+    }
+
+    /**
+     * Removes all entries for a DID, e.g. after the DID has been updated on the ledger.
+     */
+    public void invalidate(String did) {
+
+        synchronized (this.entries) {
+            this.entries.keySet().removeIf(key -> Objects.equals(key.did(), did));
+            this.generation++;
+        }
+    }
+
+    public void invalidateAll() {
+
+        synchronized (this.entries) {
+            this.entries.clear();
+            this.generation++;
+        }
+    }
+
+    public int size() {
+
+        synchronized (this.entries) {
+            return this.entries.size();
+        }
+    }
+
+    /**
+     * The generation of this cache, which changes on every invalidation.
+     */
+    public long getGeneration() {
+
+        synchronized (this.entries) {
+            return this.generation;
+        }
+    }
+
+    /*
+     * Getters
+     */
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    public long getExpirationCount() {
+        return expirationCount.sum();
+    }
+
+    /*
+     * Object methods
+     */
+
+    public String toString() {
+        return "size=" + this.size() + "/" + this.getMaxSize() + ", ttl=" + this.getTtl() + ", hits=" + this.getHitCount() + ", misses=" + this.getMissCount() + ", evictions=" + this.getEvictionCount() + ", expirations=" + this.getExpirationCount();
+    }
+
+    /*
+     * Helper classes
+     */
+
+    public record Key(String requestType, String did, String parameters) {
+    }
+
+    private record Entry(String value, long createdNanos) {
+
+        private boolean isExpired(long nowNanos, long ttlNanos) {
+            return nowNanos - this.createdNanos >= ttlNanos;
+        }
+    }
+}
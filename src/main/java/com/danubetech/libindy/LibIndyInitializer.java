@@ -1,26 +1,64 @@
 package com.danubetech.libindy;
 
 import org.hyperledger.indy.sdk.LibIndy;
+import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Loads libindy and applies its runtime configuration (the size of its crypto thread pool and whether it collects backtraces).
+ *
+ * Optionally, a number of warm-up rounds of cheap native calls that need neither a pool nor a wallet are made before
+ * the initializer reports to be initialized, so that the first real calls do not pay for loading the JNA callbacks and starting
+ * the native threads. The duration of each phase of the initialization is logged and available with {@link #getPhaseTimings()}.
+ */
 public class LibIndyInitializer {
 
     private static final Logger log = LoggerFactory.getLogger(LibIndyInitializer.class);
 
+    public static final String PHASE_LOAD = "load";
+    public static final String PHASE_RUNTIME_CONFIG = "runtimeConfig";
+    public static final String PHASE_WARM_UP = "warmUp";
+
+    public static final Duration WARM_UP_CALL_TIMEOUT = Duration.ofSeconds(30);
+
+    private static final String WARM_UP_DID = "WRfXPg8dantKVubE3HX8pw";
+
     private String libIndyPath;
+    private Integer cryptoThreadPoolSize;
+    private Boolean collectBacktrace;
+    private int warmUpRounds;
+
+    private final Map<String, Duration> phaseTimings = Collections.synchronizedMap(new LinkedHashMap<>());
+    private volatile boolean warmedUp;
 
     public LibIndyInitializer(String libIndyPath) {
         this.libIndyPath = libIndyPath;
     }
 
+    /**
+     * Whether libindy has been loaded, and warmed up if warm-up rounds are set. If the warm-up has failed, libindy can still be used,
+     * but it is not reported as initialized until it has been initialized again.
+     */
     public boolean isInitialized() {
-        return LibIndy.isInitialized();
+        return LibIndy.isInitialized() && (this.getWarmUpRounds() <= 0 || this.warmedUp);
     }
 
     public void initializeLibIndy() {
+
+        this.phaseTimings.clear();
+        this.warmedUp = false;
+
+        // load
+
+        long startNanos = System.nanoTime();
         if (this.getLibIndyPath() != null && ! this.getLibIndyPath().isEmpty()) {
             if (log.isInfoEnabled()) log.info("Initializing libindy: " + this.getLibIndyPath() + " (" + new File(this.getLibIndyPath()).getAbsolutePath() + ")");
             LibIndy.init(new File(this.getLibIndyPath()));
@@ -28,6 +66,68 @@ public class LibIndyInitializer {
             if (log.isInfoEnabled()) log.info("Initializing libindy.");
             if (!LibIndy.isInitialized()) LibIndy.init();
         }
+        this.recordPhase(PHASE_LOAD, startNanos);
+
+        // runtime config
+
+        String runtimeConfig = this.getRuntimeConfig();
+        if (runtimeConfig != null) {
+            startNanos = System.nanoTime();
+            if (log.isInfoEnabled()) log.info("Setting libindy runtime config: " + runtimeConfig);
+            LibIndy.setRuntimeConfig(runtimeConfig);
+            this.recordPhase(PHASE_RUNTIME_CONFIG, startNanos);
+        }
+
+        // warm-up
+
+        if (this.getWarmUpRounds() > 0) {
+            startNanos = System.nanoTime();
+            if (log.isInfoEnabled()) log.info("Warming up libindy with " + this.getWarmUpRounds() + " rounds.");
+            try {
+                for (int i=0; i<this.getWarmUpRounds(); i++) warmUp(LibIndyTransport.getInstance());
+                this.warmedUp = true;
+            } catch (Exception ex) {
+                if (log.isWarnEnabled()) log.warn("Cannot warm up libindy: " + ex.getMessage(), ex);
+            }
+            this.recordPhase(PHASE_WARM_UP, startNanos);
+        }
+
+        if (log.isInfoEnabled()) log.info("Initialized libindy: " + this.getPhaseTimings());
+    }
+
+    /**
+     * @return The libindy runtime config JSON, or null if neither the crypto thread pool size nor the backtrace collection is set.
+     */
+    public String getRuntimeConfig() {
+
+        if (this.getCryptoThreadPoolSize() == null && this.getCollectBacktrace() == null) return null;
+
+        JSONObject runtimeConfig = new JSONObject();
+        if (this.getCryptoThreadPoolSize() != null) {
+            if (this.getCryptoThreadPoolSize() < 1) throw new IllegalArgumentException("Expected a positive crypto thread pool size: " + this.getCryptoThreadPoolSize());
+            runtimeConfig.put("crypto_thread_pool_size", this.getCryptoThreadPoolSize().intValue());
+        }
+        if (this.getCollectBacktrace() != null) runtimeConfig.put("collect_backtrace", this.getCollectBacktrace().booleanValue());
+        return runtimeConfig.toString();
+    }
+
+    /*
+     * Helper methods
+     */
+
+    private static void warmUp(IndyTransport indyTransport) throws Exception {
+
+        long timeoutMillis = WARM_UP_CALL_TIMEOUT.toMillis();
+        indyTransport.generateWalletKey(null).get(timeoutMillis, TimeUnit.MILLISECONDS);
+        indyTransport.buildGetNymRequest(null, WARM_UP_DID).get(timeoutMillis, TimeUnit.MILLISECONDS);
+        indyTransport.buildGetTxnRequest(null, "DOMAIN", 1).get(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void recordPhase(String phase, long startNanos) {
+
+        Duration duration = Duration.ofNanos(System.nanoTime() - startNanos);
+        this.phaseTimings.put(phase, duration);
+        if (log.isInfoEnabled()) log.info("libindy " + phase + " took " + duration.toMillis() + " ms.");
     }
 
     /*
@@ -41,4 +141,37 @@ public class LibIndyInitializer {
     public void setLibIndyPath(String libIndyPath) {
         this.libIndyPath = libIndyPath;
     }
+
+    public Integer getCryptoThreadPoolSize() {
+        return cryptoThreadPoolSize;
+    }
+
+    public void setCryptoThreadPoolSize(Integer cryptoThreadPoolSize) {
+        this.cryptoThreadPoolSize = cryptoThreadPoolSize;
+    }
+
+    public Boolean getCollectBacktrace() {
+        return collectBacktrace;
+    }
+
+    public void setCollectBacktrace(Boolean collectBacktrace) {
+        this.collectBacktrace = collectBacktrace;
+    }
+
+    public int getWarmUpRounds() {
+        return warmUpRounds;
+    }
+
+    public void setWarmUpRounds(int warmUpRounds) {
+        this.warmUpRounds = warmUpRounds;
+    }
+
+    /**
+     * The durations of the phases of the last initialization ("load", "runtimeConfig", "warmUp"), in the order in which they ran.
+     */
+    public Map<String, Duration> getPhaseTimings() {
+        synchronized (this.phaseTimings) {
+            return Collections.unmodifiableMap(new LinkedHashMap<>(this.phaseTimings));
+        }
+    }
 }
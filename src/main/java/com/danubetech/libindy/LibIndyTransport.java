@@ -0,0 +1,298 @@
+package com.danubetech.libindy;
+
+import org.hyperledger.indy.sdk.did.Did;
+import org.hyperledger.indy.sdk.did.DidJSONParameters;
+import org.hyperledger.indy.sdk.ledger.Ledger;
+import org.hyperledger.indy.sdk.pool.Pool;
+import org.hyperledger.indy.sdk.pool.PoolJSONParameters;
+import org.hyperledger.indy.sdk.pool.PoolLedgerConfigExistsException;
+import org.hyperledger.indy.sdk.wallet.Wallet;
+import org.hyperledger.indy.sdk.wallet.WalletExistsException;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The transport that calls libindy through the Indy SDK.
+ */
+public class LibIndyTransport implements IndyTransport {
+
+    private static final LibIndyTransport instance = new LibIndyTransport();
+
+    private static final String GENESIS_FINGERPRINT_FILE_SUFFIX = ".fingerprint";
+
+    private volatile Path genesisFingerprintDirectory = Path.of(System.getProperty("user.home"), ".libindy-common-java", "genesis-fingerprints");
+
+    record LibIndyPoolHandle(Pool pool) implements PoolHandle {
+        @Override
+        public int getHandle() {
+            return this.pool.getPoolHandle();
+        }
+    }
+
+    record LibIndyWalletHandle(Wallet wallet) implements WalletHandle {
+        @Override
+        public int getHandle() {
+            return this.wallet.getWalletHandle();
+        }
+    }
+
+    private LibIndyTransport() {
+    }
+
+    public static LibIndyTransport getInstance() {
+        return instance;
+    }
+
+    @Override
+    public PoolVersionDispatcher getPoolVersionDispatcher() {
+        return PoolVersionDispatcher.getInstance();
+    }
+
+    /*
+     * Pools
+     */
+
+    @Override
+    public CompletableFuture<Boolean> createPoolLedgerConfig(String poolConfigName, String poolConfigFile) {
+
+        return IndyFutures.indyCall(() -> {
+            PoolJSONParameters.CreatePoolLedgerConfigJSONParameter createPoolLedgerConfigJSONParameter = new PoolJSONParameters.CreatePoolLedgerConfigJSONParameter(poolConfigFile);
+            return Pool.createPoolLedgerConfig(poolConfigName, createPoolLedgerConfigJSONParameter.toJson());
+        }).handle((result, ex) -> {
+            if (ex == null) return Boolean.TRUE;
+            if (IndyFutures.unwrap(ex) instanceof PoolLedgerConfigExistsException) return Boolean.FALSE;
+            throw IndyFutures.rethrow(ex);
+        });
+    }
+
+    @Override
+    public CompletableFuture<Boolean> existsPoolLedgerConfig(String poolConfigName) {
+
+        return IndyFutures.indyCall(Pool::listPools).thenApply(pools -> {
+            JSONArray poolsJsonArray = new JSONArray(pools);
+            for (int i=0; i<poolsJsonArray.length(); i++) if (poolConfigName.equals(poolsJsonArray.getJSONObject(i).optString("pool", null))) return Boolean.TRUE;
+            return Boolean.FALSE;
+        });
+    }
+
+    /**
+     * This also deletes the genesis fingerprint that has been stored with the pool config.
+     */
+    @Override
+    public CompletableFuture<Void> deletePoolLedgerConfig(String poolConfigName) {
+
+        return IndyFutures.indyCall(() -> Pool.deletePoolLedgerConfig(poolConfigName)).thenCompose(x -> {
+            try {
+                Files.deleteIfExists(this.getGenesisFingerprintFile(poolConfigName));
+                return CompletableFuture.completedFuture(null);
+            } catch (IOException ex) {
+                return CompletableFuture.failedFuture(ex);
+            }
+        });
+    }
+
+    /**
+     * The fingerprint is kept in a file of its own in the genesis fingerprint directory, outside of the directories of libindy.
+     */
+    @Override
+    public CompletableFuture<String> getPoolLedgerConfigFingerprint(String poolConfigName) {
+
+        Path fingerprintFile = this.getGenesisFingerprintFile(poolConfigName);
+        try {
+            return CompletableFuture.completedFuture(Files.exists(fingerprintFile) ? Files.readString(fingerprintFile, StandardCharsets.UTF_8).trim() : null);
+        } catch (IOException ex) {
+            return CompletableFuture.failedFuture(ex);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> setPoolLedgerConfigFingerprint(String poolConfigName, String fingerprint) {
+
+        Path fingerprintFile = this.getGenesisFingerprintFile(poolConfigName);
+        try {
+            Files.createDirectories(fingerprintFile.getParent());
+            Path tempFile = Files.createTempFile(fingerprintFile.getParent(), fingerprintFile.getFileName().toString(), ".tmp");
+            Files.writeString(tempFile, fingerprint, StandardCharsets.UTF_8);
+            Files.move(tempFile, fingerprintFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return CompletableFuture.completedFuture(null);
+        } catch (IOException ex) {
+            return CompletableFuture.failedFuture(ex);
+        }
+    }
+
+    private Path getGenesisFingerprintFile(String poolConfigName) {
+        return this.getGenesisFingerprintDirectory().resolve(URLEncoder.encode(poolConfigName, StandardCharsets.UTF_8) + GENESIS_FINGERPRINT_FILE_SUFFIX);
+    }
+
+    @Override
+    public CompletableFuture<PoolHandle> openPoolLedger(String poolConfigName) {
+
+        return IndyFutures.indyCall(() -> {
+            PoolJSONParameters.OpenPoolLedgerJSONParameter openPoolLedgerJSONParameter = new PoolJSONParameters.OpenPoolLedgerJSONParameter(null, null);
+            return Pool.openPoolLedger(poolConfigName, openPoolLedgerJSONParameter.toJson());
+        }).thenApply(LibIndyPoolHandle::new);
+    }
+
+    @Override
+    public CompletableFuture<Void> closePoolLedger(PoolHandle poolHandle) {
+        return IndyFutures.indyCall(() -> getPool(poolHandle).closePoolLedger());
+    }
+
+    @Override
+    public CompletableFuture<Void> refreshPoolLedger(PoolHandle poolHandle) {
+        return IndyFutures.indyCall(() -> Pool.refreshPoolLedger(getPool(poolHandle)));
+    }
+
+    /*
+     * Wallets
+     */
+
+    @Override
+    public CompletableFuture<Boolean> createWallet(String walletConfig, String walletCredentials) {
+
+        return IndyFutures.indyCall(() -> Wallet.createWallet(walletConfig, walletCredentials)).handle((result, ex) -> {
+            if (ex == null) return Boolean.TRUE;
+            if (IndyFutures.unwrap(ex) instanceof WalletExistsException) return Boolean.FALSE;
+            throw IndyFutures.rethrow(ex);
+        });
+    }
+
+    @Override
+    public CompletableFuture<WalletHandle> openWallet(String walletConfig, String walletCredentials) {
+        return IndyFutures.indyCall(() -> Wallet.openWallet(walletConfig, walletCredentials)).thenApply(LibIndyWalletHandle::new);
+    }
+
+    @Override
+    public CompletableFuture<Void> closeWallet(WalletHandle walletHandle) {
+        return IndyFutures.indyCall(() -> getWallet(walletHandle).closeWallet());
+    }
+
+    @Override
+    public CompletableFuture<String> generateWalletKey(String seed) {
+
+        String config = new JSONObject().put("seed", seed).toString();
+        return IndyFutures.indyCall(() -> Wallet.generateWalletKey(config));
+    }
+
+    /*
+     * DIDs
+     */
+
+    @Override
+    public CompletableFuture<MyDid> createAndStoreMyDid(WalletHandle walletHandle, String seed) {
+
+        DidJSONParameters.CreateAndStoreMyDidJSONParameter createAndStoreMyDidJSONParameter = new DidJSONParameters.CreateAndStoreMyDidJSONParameter(null, seed, null, null);
+        return IndyFutures.indyCall(() -> Did.createAndStoreMyDid(getWallet(walletHandle), createAndStoreMyDidJSONParameter.toJson()))
+                .thenApply(createAndStoreMyDidResult -> new MyDid(createAndStoreMyDidResult.getDid(), createAndStoreMyDidResult.getVerkey()));
+    }
+
+    @Override
+    public CompletableFuture<String> getMyDidWithMeta(WalletHandle walletHandle, String did) {
+        return IndyFutures.indyCall(() -> Did.getMyDidWithMeta(getWallet(walletHandle), did));
+    }
+
+    @Override
+    public CompletableFuture<String> getListMyDidsWithMeta(WalletHandle walletHandle) {
+        return IndyFutures.indyCall(() -> Did.getListMyDidsWithMeta(getWallet(walletHandle)));
+    }
+
+    @Override
+    public CompletableFuture<Void> setDidMetadata(WalletHandle walletHandle, String did, String metadata) {
+        return IndyFutures.indyCall(() -> Did.setDidMetadata(getWallet(walletHandle), did, metadata));
+    }
+
+    /*
+     * Ledger
+     */
+
+    @Override
+    public CompletableFuture<String> buildGetNymRequest(String submitterDid, String targetDid) {
+        return IndyFutures.indyCall(() -> Ledger.buildGetNymRequest(submitterDid, targetDid));
+    }
+
+    @Override
+    public CompletableFuture<String> buildGetAttribRequest(String submitterDid, String targetDid, String raw, String hash, String enc) {
+        return IndyFutures.indyCall(() -> Ledger.buildGetAttribRequest(submitterDid, targetDid, raw, hash, enc));
+    }
+
+    @Override
+    public CompletableFuture<String> buildGetTxnRequest(String submitterDid, String ledgerType, int seqNo) {
+        return IndyFutures.indyCall(() -> Ledger.buildGetTxnRequest(submitterDid, ledgerType, seqNo));
+    }
+
+    @Override
+    public CompletableFuture<String> buildGetTxnAuthorAgreementRequest(String submitterDid, String data) {
+        return IndyFutures.indyCall(() -> Ledger.buildGetTxnAuthorAgreementRequest(submitterDid, data));
+    }
+
+    @Override
+    public CompletableFuture<String> signRequest(WalletHandle walletHandle, String submitterDid, String request) {
+        return IndyFutures.indyCall(() -> Ledger.signRequest(getWallet(walletHandle), submitterDid, request));
+    }
+
+    @Override
+    public CompletableFuture<String> submitRequest(PoolHandle poolHandle, String request) {
+        return IndyFutures.indyCall(() -> Ledger.submitRequest(getPool(poolHandle), request));
+    }
+
+    @Override
+    public CompletableFuture<String> signAndSubmitRequest(PoolHandle poolHandle, WalletHandle walletHandle, String submitterDid, String request) {
+        return IndyFutures.indyCall(() -> Ledger.signAndSubmitRequest(getPool(poolHandle), getWallet(walletHandle), submitterDid, request));
+    }
+
+    /*
+     * Getters and setters
+     */
+
+    public Path getGenesisFingerprintDirectory() {
+        return genesisFingerprintDirectory;
+    }
+
+    /**
+     * @param genesisFingerprintDirectory The directory where the genesis fingerprints of pool configs are kept (see {@link IndyGenesisFingerprint}).
+     *                                    It is created when the first fingerprint is stored. The default is ~/.libindy-common-java/genesis-fingerprints.
+     */
+    public void setGenesisFingerprintDirectory(Path genesisFingerprintDirectory) {
+        this.genesisFingerprintDirectory = genesisFingerprintDirectory;
+    }
+
+    /*
+     * Helper methods
+     */
+
+    /**
+     * @return The libindy pool of a pool handle, or null if the pool handle is null.
+     * @throws IllegalArgumentException If the pool handle is not from this transport.
+     */
+    public static Pool getPool(PoolHandle poolHandle) {
+        if (poolHandle == null) return null;
+        if (poolHandle instanceof LibIndyPoolHandle libIndyPoolHandle) return libIndyPoolHandle.pool();
+        throw new IllegalArgumentException("Not a libindy pool handle: " + poolHandle);
+    }
+
+    /**
+     * @return The libindy wallet of a wallet handle, or null if the wallet handle is null.
+     * @throws IllegalArgumentException If the wallet handle is not from this transport.
+     */
+    public static Wallet getWallet(WalletHandle walletHandle) {
+        if (walletHandle == null) return null;
+        if (walletHandle instanceof LibIndyWalletHandle libIndyWalletHandle) return libIndyWalletHandle.wallet();
+        throw new IllegalArgumentException("Not a libindy wallet handle: " + walletHandle);
+    }
+
+    public static PoolHandle toPoolHandle(Pool pool) {
+        return pool == null ? null : new LibIndyPoolHandle(pool);
+    }
+
+    public static WalletHandle toWalletHandle(Wallet wallet) {
+        return wallet == null ? null : new LibIndyWalletHandle(wallet);
+    }
+}
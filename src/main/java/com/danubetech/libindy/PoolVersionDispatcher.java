@@ -0,0 +1,207 @@
+package com.danubetech.libindy;
+
+import org.hyperledger.indy.sdk.IndyException;
+import org.hyperledger.indy.sdk.pool.Pool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * The protocol version in libindy is a process-global setting, which is read when pool configs are created, pools are opened
+ * and requests are built. This dispatcher owns that setting: every call that reads the protocol version is dispatched with
+ * the version it needs. Calls with the same version run concurrently; calls with a different version wait until all running
+ * calls have completed, after which the version is switched once for all calls waiting for it.
+ *
+ * Only the steps that read the protocol version should be dispatched, not the network round trips that follow them
+ * (e.g. submitting a request that has been built), since a slow ledger would otherwise hold back all networks with another
+ * version. As a safety net, a dispatched call keeps the version for at most the dispatch timeout.
+ *
+ * To avoid starving networks with a different version, a call is only started right away if no calls for other
+ * versions are waiting. Waiting versions are served in the order in which they started waiting.
+ */
+public class PoolVersionDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(PoolVersionDispatcher.class);
+
+    public static final Duration DEFAULT_DISPATCH_TIMEOUT = Duration.ofSeconds(60);
+
+    private static final PoolVersionDispatcher instance = new PoolVersionDispatcher(Pool::setProtocolVersion);
+
+    @FunctionalInterface
+    public interface ProtocolVersionSetter {
+        CompletableFuture<Void> setProtocolVersion(int poolVersion) throws IndyException;
+    }
+
+    private final ProtocolVersionSetter protocolVersionSetter;
+    private volatile Duration dispatchTimeout = DEFAULT_DISPATCH_TIMEOUT;
+
+    private final Map<Integer, List<PendingCall<?>>> pendingCalls = new LinkedHashMap<>();
+    private Integer currentPoolVersion;
+    private int runningCalls;
+    private boolean switching;
+    private long switchCount;
+
+    public PoolVersionDispatcher(ProtocolVersionSetter protocolVersionSetter) {
+        this.protocolVersionSetter = protocolVersionSetter;
+    }
+
+    public static PoolVersionDispatcher getInstance() {
+        return instance;
+    }
+
+    /**
+     * Runs a call once the global protocol version has been set to the given version.
+     * The version is kept until the future returned by the call has completed, or until the dispatch timeout has passed.
+     * @param poolVersion The protocol version the call depends on.
+     * @param call The call to run, e.g. building a request or opening a pool.
+     * @return A future that completes with the result of the call, or completes exceptionally with an IndyConnectionException after the dispatch timeout.
+     */
+    public <T> CompletableFuture<T> dispatch(int poolVersion, Supplier<CompletableFuture<T>> call) {
+
+        PendingCall<T> pendingCall = new PendingCall<>(poolVersion, call);
+        boolean start = false;
+        boolean switchVersion = false;
+
+        synchronized (this) {
+            if ((! this.switching) && Objects.equals(this.currentPoolVersion, poolVersion) && this.pendingCalls.isEmpty()) {
+                this.runningCalls++;
+                start = true;
+            } else {
+                this.pendingCalls.computeIfAbsent(poolVersion, x -> new ArrayList<>()).add(pendingCall);
+                if ((! this.switching) && this.runningCalls == 0) this.switching = switchVersion = true;
+            }
+        }
+
+        if (start) this.start(pendingCall);
+        if (switchVersion) this.switchVersion();
+
+        return pendingCall.result;
+    }
+
+    private <T> void start(PendingCall<T> pendingCall) {
+
+        CompletableFuture<T> future;
+        try {
+            future = pendingCall.call.get();
+        } catch (RuntimeException ex) {
+            future = CompletableFuture.failedFuture(ex);
+        }
+
+        // the version is released when the call completes or times out, whichever comes first
+
+        Duration dispatchTimeout = this.dispatchTimeout;
+        future.copy().orTimeout(dispatchTimeout.toNanos(), TimeUnit.NANOSECONDS).whenComplete((result, ex) -> {
+            this.completed();
+            if (ex != null && IndyFutures.unwrap(ex) instanceof TimeoutException) {
+                if (log.isWarnEnabled()) log.warn("Call with protocol version " + pendingCall.poolVersion + " did not complete within " + dispatchTimeout + ", releasing the protocol version.");
+                ex = new CompletionException(new IndyConnectionException("Timeout after " + dispatchTimeout + " for a call with protocol version " + pendingCall.poolVersion));
+            }
+            if (ex != null) pendingCall.result.completeExceptionally(ex); else pendingCall.result.complete(result);
+        });
+    }
+
+    private void completed() {
+
+        boolean switchVersion = false;
+
+        synchronized (this) {
+            this.runningCalls--;
+            if (this.runningCalls == 0 && ! this.pendingCalls.isEmpty()) this.switching = switchVersion = true;
+        }
+
+        if (switchVersion) this.switchVersion();
+    }
+
+    private void switchVersion() {
+
+        int poolVersion;
+        Integer previousPoolVersion;
+        synchronized (this) {
+            poolVersion = this.pendingCalls.keySet().iterator().next();
+            previousPoolVersion = this.currentPoolVersion;
+        }
+
+        if (Objects.equals(previousPoolVersion, poolVersion)) {
+            this.switched(poolVersion, null);
+            return;
+        }
+
+        if (log.isDebugEnabled()) log.debug("Switching protocol version from " + previousPoolVersion + " to " + poolVersion);
+        IndyFutures.indyCall(() -> this.protocolVersionSetter.setProtocolVersion(poolVersion)).whenComplete((result, ex) -> this.switched(poolVersion, ex));
+    }
+
+    private void switched(int poolVersion, Throwable ex) {
+
+        List<PendingCall<?>> calls;
+        boolean switchVersion = false;
+
+        synchronized (this) {
+            calls = this.pendingCalls.remove(poolVersion);
+            if (ex == null) {
+                if (! Objects.equals(this.currentPoolVersion, poolVersion)) this.switchCount++;
+                this.currentPoolVersion = poolVersion;
+                this.runningCalls += calls.size();
+                this.switching = false;
+            } else {
+                this.currentPoolVersion = null;
+                if (this.pendingCalls.isEmpty()) this.switching = false; else switchVersion = true;
+            }
+        }
+
+        if (ex == null) {
+            for (PendingCall<?> call : calls) this.start(call);
+        } else {
+            if (log.isWarnEnabled()) log.warn("Cannot set protocol version " + poolVersion + ": " + IndyFutures.unwrap(ex).getMessage(), IndyFutures.unwrap(ex));
+            for (PendingCall<?> call : calls) call.result.completeExceptionally(IndyFutures.failure("Cannot set protocol version " + poolVersion, ex).getCause());
+            if (switchVersion) this.switchVersion();
+        }
+    }
+
+    public synchronized Integer getCurrentPoolVersion() {
+        return this.currentPoolVersion;
+    }
+
+    public synchronized int getRunningCalls() {
+        return this.runningCalls;
+    }
+
+    public synchronized int getPendingCalls() {
+        int pendingCalls = 0;
+        for (List<PendingCall<?>> calls : this.pendingCalls.values()) pendingCalls += calls.size();
+        return pendingCalls;
+    }
+
+    public synchronized long getSwitchCount() {
+        return this.switchCount;
+    }
+
+    public Duration getDispatchTimeout() {
+        return this.dispatchTimeout;
+    }
+
+    /**
+     * @param dispatchTimeout How long a dispatched call keeps the protocol version at most. The default is {@link #DEFAULT_DISPATCH_TIMEOUT}.
+     */
+    public void setDispatchTimeout(Duration dispatchTimeout) {
+        this.dispatchTimeout = dispatchTimeout;
+    }
+
+    private static class PendingCall<T> {
+
+        private final int poolVersion;
+        private final Supplier<CompletableFuture<T>> call;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+
+        private PendingCall(int poolVersion, Supplier<CompletableFuture<T>> call) {
+            this.poolVersion = poolVersion;
+            this.call = call;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.danubetech.libindy;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * An in-memory implementation of {@link IndyMetrics}, for services that do not use a metrics library.
+ * Durations are kept in histograms with power-of-two buckets in microseconds, which is precise enough to compare networks and releases.
+ */
+public class SimpleIndyMetrics implements IndyMetrics {
+
+    private final Map<String, Timer> operationTimers = new ConcurrentHashMap<>();
+    private final Map<String, Timer> ledgerCallTimers = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> reopenCounts = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> reconnectCounts = new ConcurrentHashMap<>();
+    private final Map<String, IntSupplier> inFlightGauges = new ConcurrentHashMap<>();
+
+    @Override
+    public void recordOperation(String network, String operation, long durationNanos, boolean success) {
+        this.operationTimers.computeIfAbsent(network + "/" + operation, x -> new Timer()).record(durationNanos, success);
+    }
+
+    @Override
+    public void recordLedgerCall(String network, String requestType, long durationNanos, boolean success) {
+        this.ledgerCallTimers.computeIfAbsent(network + "/" + requestType, x -> new Timer()).record(durationNanos, success);
+    }
+
+    @Override
+    public void recordReopen(String network, boolean background) {
+        (background ? this.reconnectCounts : this.reopenCounts).computeIfAbsent(network, x -> new LongAdder()).increment();
+    }
+
+    @Override
+    public void registerInFlightGauge(String network, IntSupplier inFlight) {
+        this.inFlightGauges.put(network, inFlight);
+    }
+
+    /*
+     * Getters
+     */
+
+    public Timer getOperationTimer(String network, String operation) {
+        return this.operationTimers.get(network + "/" + operation);
+    }
+
+    public Timer getLedgerCallTimer(String network, String requestType) {
+        return this.ledgerCallTimers.get(network + "/" + requestType);
+    }
+
+    public Map<String, Timer> getOperationTimers() {
+        return Collections.unmodifiableMap(new TreeMap<>(this.operationTimers));
+    }
+
+    public Map<String, Timer> getLedgerCallTimers() {
+        return Collections.unmodifiableMap(new TreeMap<>(this.ledgerCallTimers));
+    }
+
+    public long getReopenCount(String network) {
+        LongAdder reopenCount = this.reopenCounts.get(network);
+        return reopenCount == null ? 0 : reopenCount.sum();
+    }
+
+    public long getReconnectCount(String network) {
+        LongAdder reconnectCount = this.reconnectCounts.get(network);
+        return reconnectCount == null ? 0 : reconnectCount.sum();
+    }
+
+    public int getInFlight(String network) {
+        IntSupplier inFlight = this.inFlightGauges.get(network);
+        return inFlight == null ? 0 : inFlight.getAsInt();
+    }
+
+    /*
+     * Object methods
+     */
+
+    public String toString() {
+        StringBuilder string = new StringBuilder();
+        for (Map.Entry<String, Timer> entry : this.getOperationTimers().entrySet()) string.append(entry.getKey()).append(": ").append(entry.getValue()).append('\n');
+        for (Map.Entry<String, Timer> entry : this.getLedgerCallTimers().entrySet()) string.append(entry.getKey()).append(": ").append(entry.getValue()).append('\n');
+        return string.toString();
+    }
+
+    /*
+     * Helper classes
+     */
+
+    public static class Timer {
+
+        private static final int BUCKETS = 40;
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder failureCount = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+        private void record(long durationNanos, boolean success) {
+            this.count.increment();
+            if (! success) this.failureCount.increment();
+            this.totalNanos.add(durationNanos);
+            long micros = Math.max(1, durationNanos / 1000);
+            this.buckets.incrementAndGet(Math.min(BUCKETS - 1, 63 - Long.numberOfLeadingZeros(micros)));
+        }
+
+        public long getCount() {
+            return this.count.sum();
+        }
+
+        public long getFailureCount() {
+            return this.failureCount.sum();
+        }
+
+        public double getMeanMillis() {
+            long count = this.getCount();
+            return count == 0 ? 0 : (this.totalNanos.sum() / 1000000.0 / count);
+        }
+
+        /**
+         * An upper bound for a percentile of the recorded durations, e.g. 0.99 for p99.
+         */
+        public double getPercentileMillis(double percentile) {
+            long[] buckets = new long[BUCKETS];
+            long count = 0;
+            for (int i=0; i<BUCKETS; i++) count += (buckets[i] = this.buckets.get(i));
+            if (count == 0) return 0;
+            long rank = (long) Math.ceil(percentile * count);
+            long seen = 0;
+            for (int i=0; i<BUCKETS; i++) {
+                seen += buckets[i];
+                if (seen >= rank) return (1L << (i + 1)) / 1000.0;
+            }
+            return (1L << BUCKETS) / 1000.0;
+        }
+
+        public String toString() {
+            return "count=" + this.getCount() + ", failures=" + this.getFailureCount() + ", mean=" + String.format("%.2f", this.getMeanMillis()) + "ms, p50<=" + this.getPercentileMillis(0.5) + "ms, p99<=" + this.getPercentileMillis(0.99) + "ms";
+        }
+    }
+}
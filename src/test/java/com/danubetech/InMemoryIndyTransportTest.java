@@ -0,0 +1,484 @@
+package com.danubetech;
+
+import com.danubetech.libindy.InMemoryIndyTransport;
+import com.danubetech.libindy.IndyCircuitBreaker;
+import com.danubetech.libindy.IndyConfigDiff;
+import com.danubetech.libindy.IndyConnection;
+import com.danubetech.libindy.IndyConnectionException;
+import com.danubetech.libindy.IndyConnector;
+import com.danubetech.libindy.IndyLedgerTxn;
+import com.danubetech.libindy.IndyLedgerTxnPublisher;
+import com.danubetech.libindy.IndyMetrics;
+import com.danubetech.libindy.IndyWalletConfig;
+import com.danubetech.libindy.SimpleIndyMetrics;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InMemoryIndyTransportTest {
+
+    private static IndyConnector indyConnector(InMemoryIndyTransport transport) {
+
+        IndyConnector indyConnector = new IndyConnector();
+        indyConnector.setTransport(transport);
+        indyConnector.setPoolConfigs("_;./sovrin/mainnet.txn;test;./sovrin/test.txn");
+        indyConnector.setPoolVersions("_;2;test;1");
+        indyConnector.setWalletNames("_;w1;test;w2");
+        indyConnector.setSubmitterDidSeeds("_;_;test;00000000000000000000000000000001");
+        return indyConnector;
+    }
+
+    @Test
+    public void testInMemoryIndyTransportOpenClose() throws Exception {
+
+        InMemoryIndyTransport transport = new InMemoryIndyTransport(Duration.ofMillis(1), Duration.ZERO, 0);
+        transport.setTaa("taa text", "1.0");
+        IndyConnector indyConnector = indyConnector(transport);
+
+        indyConnector.openIndyConnections(true, true, true);
+        IndyConnection indyConnection = indyConnector.getIndyConnection("test");
+
+        assertTrue(indyConnection.isOpen());
+        assertNotNull(indyConnection.getSubmitterDid());
+        assertEquals("taa text", indyConnection.getTaa());
+        assertEquals("1.0", indyConnection.getTaaVersion());
+        assertNull(indyConnection.getPool());
+        assertEquals(2, transport.getOpenPoolCount());
+        assertEquals(2, transport.getOpenWalletCount());
+
+        indyConnector.closeIndyConnections();
+        assertEquals(0, transport.getOpenPoolCount());
+        assertEquals(0, transport.getOpenWalletCount());
+    }
+
+    @Test
+    public void testInMemoryIndyTransportReads() throws Exception {
+
+        InMemoryIndyTransport transport = new InMemoryIndyTransport(Duration.ofMillis(2), Duration.ofMillis(1), 0);
+        for (int i=0; i<200; i++) transport.addNym("did" + i, "verkey" + i);
+        transport.addAttrib("did1", "endpoint", "{\"endpoint\":\"https://example.com\"}");
+        IndyConnector indyConnector = indyConnector(transport);
+
+        indyConnector.openIndyConnections(true, false, true);
+        IndyConnection indyConnection = indyConnector.getIndyConnection("_");
+
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        for (int i=0; i<200; i++) futures.add(indyConnection.getNymAsync("did" + i));
+        for (int i=0; i<200; i++) {
+            JSONObject result = new JSONObject(futures.get(i).get()).getJSONObject("result");
+            assertEquals("verkey" + i, new JSONObject(result.getString("data")).getString("verkey"));
+        }
+        assertTrue(transport.getMaxInFlight() > 1);
+
+        String attrib = indyConnection.getAttrib("did1", "endpoint", null, null);
+        String data = new JSONObject(attrib).getJSONObject("result").getString("data");
+        assertEquals("https://example.com", new JSONObject(data).getJSONObject("endpoint").getString("endpoint"));
+
+        indyConnector.closeIndyConnections();
+    }
+
+    @Test
+    public void testInMemoryIndyTransportFailures() throws Exception {
+
+        InMemoryIndyTransport transport = new InMemoryIndyTransport(Duration.ZERO, Duration.ZERO, 1);
+        IndyConnector indyConnector = indyConnector(transport);
+
+        indyConnector.openIndyConnections(true, false, true);
+        IndyConnection indyConnection = indyConnector.getIndyConnection("_", false, false, false);
+
+        assertFalse(indyConnection.isOpen());
+        assertTrue(transport.getFailureCount() > 0);
+
+        indyConnector.closeIndyConnections();
+    }
+
+    @Test
+    public void testInMemoryIndyTransportWalletKeys() throws Exception {
+
+        InMemoryIndyTransport transport = new InMemoryIndyTransport(Duration.ZERO, Duration.ZERO, 0);
+        SimpleIndyMetrics indyMetrics = new SimpleIndyMetrics();
+        IndyConnector indyConnector = indyConnector(transport);
+        indyConnector.setIndyMetrics(indyMetrics);
+        indyConnector.setWalletKeys("_;SEED:walletseed;test;ARGON2I_INT:passphrase");
+        indyConnector.setWalletStorages("_;default:/tmp/wallets");
+        indyConnector.setCacheWalletKeys(true);
+
+        indyConnector.openIndyConnections(true, false, true);
+        IndyConnection indyConnection = indyConnector.getIndyConnection("_");
+        assertTrue(indyConnection.isOpen());
+        assertEquals(IndyWalletConfig.SEED, indyConnection.getWalletConfig().getKeyDerivationMethod());
+        assertEquals("/tmp/wallets", indyConnection.getWalletConfig().getStoragePath());
+
+        indyConnection.close();
+        indyConnection.open(true, false);
+        assertTrue(indyConnection.isOpen());
+        assertEquals(1, indyMetrics.getOperationTimer("_", IndyMetrics.GENERATE_WALLET_KEY).getCount());
+
+        indyConnector.closeIndyConnections();
+    }
+
+    @Test
+    public void testInMemoryIndyTransportRequestWindow() throws Exception {
+
+        InMemoryIndyTransport transport = new InMemoryIndyTransport(Duration.ofMillis(2), Duration.ZERO, 0);
+        IndyConnector indyConnector = indyConnector(transport);
+        indyConnector.setRequestWindows("_;4");
+
+        indyConnector.openIndyConnections(true, false, true);
+        IndyConnection indyConnection = indyConnector.getIndyConnection("_");
+
+        List<String> requests = new ArrayList<>();
+        for (int i=0; i<50; i++) requests.add("{\"reqId\":" + i + ",\"operation\":{\"type\":\"1\",\"dest\":\"did" + i + "\",\"verkey\":\"verkey" + i + "\"}}");
+        List<CompletableFuture<String>> futures = indyConnection.submitRequestsAsync(requests, true);
+
+        for (int i=0; i<futures.size(); i++) {
+            JSONObject result = new JSONObject(futures.get(i).get()).getJSONObject("result");
+            assertEquals(i, result.getInt("reqId"));
+            assertEquals(indyConnection.getSubmitterDid(), result.getString("identifier"));
+        }
+        assertEquals(4, indyConnection.getRequestWindow().getMaxInFlight());
+        assertTrue(transport.getMaxInFlight() <= 4);
+        assertTrue(indyConnection.getRequestWindow().getQueuedCount() > 0);
+        assertEquals(0, indyConnection.getRequestWindow().getInFlight());
+
+        String nym = indyConnection.getNym("did49");
+        assertEquals("verkey49", new JSONObject(new JSONObject(nym).getJSONObject("result").getString("data")).getString("verkey"));
+
+        indyConnector.closeIndyConnections();
+    }
+
+    @Test
+    public void testInMemoryIndyTransportSubmitterDidReuse() throws Exception {
+
+        InMemoryIndyTransport transport = new InMemoryIndyTransport(Duration.ZERO, Duration.ZERO, 0);
+        IndyConnector indyConnector = indyConnector(transport);
+
+        indyConnector.openIndyConnections(true, false, true);
+        String randomSubmitterDid = indyConnector.getIndyConnection("_").getSubmitterDid();
+        String seededSubmitterDid = indyConnector.getIndyConnection("test").getSubmitterDid();
+        assertEquals(2, transport.getCreatedDidCount());
+
+        indyConnector.getIndyConnection("_").close();
+        assertEquals(randomSubmitterDid, indyConnector.getIndyConnection("_", true, true, false).getSubmitterDid());
+        indyConnector.closeIndyConnections();
+
+        IndyConnector otherIndyConnector = indyConnector(transport);
+        otherIndyConnector.openIndyConnections(true, false, true);
+        assertEquals(randomSubmitterDid, otherIndyConnector.getIndyConnection("_").getSubmitterDid());
+        assertEquals(seededSubmitterDid, otherIndyConnector.getIndyConnection("test").getSubmitterDid());
+        assertEquals(2, transport.getCreatedDidCount());
+        otherIndyConnector.closeIndyConnections();
+    }
+
+    @Test
+    public void testInMemoryIndyTransportReconfiguration() throws Exception {
+
+        InMemoryIndyTransport transport = new InMemoryIndyTransport(Duration.ofMillis(5), Duration.ZERO, 0);
+        transport.addNym("did1", "verkey1");
+        IndyConnector indyConnector = indyConnector(transport);
+
+        indyConnector.openIndyConnections(true, false, true);
+        IndyConnection previousIndyConnection = indyConnector.getIndyConnection("_");
+        IndyConnection unchangedIndyConnection = indyConnector.getIndyConnection("test");
+        String submitterDid = previousIndyConnection.getSubmitterDid();
+
+        indyConnector.setPoolConfigs("_;./sovrin/mainnet-rotated.txn;test;./sovrin/test.txn;extra;./sovrin/extra.txn");
+        indyConnector.setPoolVersions("_;2;test;1;extra;2");
+        indyConnector.setWalletNames("_;w1;test;w2;extra;w3");
+        indyConnector.setSubmitterDidSeeds("_;_;test;00000000000000000000000000000001;extra;_");
+
+        IndyConfigDiff indyConfigDiff = indyConnector.diffConfiguration();
+        assertEquals(List.of("extra"), List.copyOf(indyConfigDiff.getAdded().keySet()));
+        assertEquals(List.of("_"), List.copyOf(indyConfigDiff.getChanged().keySet()));
+        assertTrue(indyConfigDiff.getRemoved().isEmpty());
+        assertEquals(List.of("test"), List.copyOf(indyConfigDiff.getUnchanged()));
+
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        for (int i=0; i<20; i++) futures.add(previousIndyConnection.getNymAsync("did1"));
+        indyConnector.applyConfiguration(true, false, Duration.ofSeconds(5));
+        for (CompletableFuture<String> future : futures) assertNotNull(future.get());
+
+        IndyConnection indyConnection = indyConnector.getIndyConnection("_");
+        assertNotSame(previousIndyConnection, indyConnection);
+        assertFalse(previousIndyConnection.isOpen());
+        assertTrue(indyConnection.isOpen());
+        assertEquals(submitterDid, indyConnection.getSubmitterDid());
+        assertSame(unchangedIndyConnection, indyConnector.getIndyConnection("test"));
+        assertTrue(indyConnector.getIndyConnection("extra").isOpen());
+        assertEquals(3, transport.getOpenPoolCount());
+        assertEquals(3, transport.getOpenWalletCount());
+        assertTrue(indyConnector.diffConfiguration().isEmpty());
+
+        // circuit breakers, pool refresh intervals and timeouts are part of the configuration of a network
+
+        indyConnector.setCircuitBreakers("test;3,10");
+        assertEquals(List.of("test"), List.copyOf(indyConnector.diffConfiguration().getChanged().keySet()));
+        indyConnector.setCircuitBreakers(null);
+        indyConnector.setPoolRefreshIntervals("extra;60");
+        assertEquals(List.of("extra"), List.copyOf(indyConnector.diffConfiguration().getChanged().keySet()));
+        indyConnector.setPoolRefreshIntervals(null);
+        indyConnector.setTimeouts("GET_NYM;5");
+        assertEquals(List.of("_", "test", "extra"), List.copyOf(indyConnector.diffConfiguration().getChanged().keySet()));
+
+        indyConnector.applyConfiguration(true, false, Duration.ofSeconds(5));
+        assertEquals(Duration.ofSeconds(5), indyConnector.getIndyConnection("test").getTimeouts().getLedgerCallTimeout("GET_NYM"));
+        assertTrue(indyConnector.diffConfiguration().isEmpty());
+
+        indyConnector.removeNetwork("extra", null);
+        assertNull(indyConnector.getIndyConnection("extra"));
+        assertEquals(2, transport.getOpenPoolCount());
+        assertEquals(2, transport.getOpenWalletCount());
+
+        indyConnector.closeIndyConnections();
+        assertEquals(0, transport.getOpenPoolCount());
+        assertEquals(0, transport.getOpenWalletCount());
+    }
+
+    @Test
+    public void testInMemoryIndyTransportNativeHandles() throws Exception {
+
+        InMemoryIndyTransport transport = new InMemoryIndyTransport(Duration.ZERO, Duration.ZERO, 0);
+
+        IndyConnection indyConnection;
+        try (IndyConnector indyConnector = indyConnector(transport)) {
+            indyConnector.openIndyConnections(true, false, true);
+            indyConnection = indyConnector.getIndyConnection("_");
+            assertEquals(1, indyConnection.getNativeHandles().getPoolHandleCount());
+            assertEquals(1, indyConnection.getNativeHandles().getWalletHandleCount());
+        }
+        assertEquals(0, indyConnection.getNativeHandles().getPoolHandleCount());
+        assertEquals(0, indyConnection.getNativeHandles().getWalletHandleCount());
+        assertEquals(0, transport.getOpenPoolCount());
+        assertEquals(0, transport.getOpenWalletCount());
+
+        indyConnection.open(false, false);
+        transport.closeWallet(indyConnection.getWalletHandle()).get();
+        assertThrows(IndyConnectionException.class, indyConnection::close);
+        assertFalse(indyConnection.isOpen());
+        assertEquals(0, indyConnection.getNativeHandles().getPoolHandleCount());
+        assertEquals(1, indyConnection.getNativeHandles().getWalletHandleCount());
+        assertEquals(0, transport.getOpenPoolCount());
+    }
+
+    @Test
+    public void testInMemoryIndyTransportGenesisFingerprint() throws Exception {
+
+        Path genesisFile = Files.createTempFile("genesis", ".txn");
+        Files.writeString(genesisFile, "{\"txn\":1}");
+
+        InMemoryIndyTransport transport = new InMemoryIndyTransport(Duration.ZERO, Duration.ZERO, 0);
+        IndyConnector indyConnector = indyConnector(transport);
+        indyConnector.setPoolConfigs("_;" + genesisFile + ";test;./sovrin/test.txn");
+        indyConnector.setGenesisTimestamps("_;1500000000");
+
+        indyConnector.openIndyConnections(true, false, true);
+        IndyConnection indyConnection = indyConnector.getIndyConnection("_");
+        assertTrue(indyConnection.getGenesisFingerprint().endsWith(":1500000000"));
+        assertEquals(2, transport.getCreatedPoolConfigCount());
+
+        indyConnection.close();
+        indyConnection.open(false, false);
+        assertEquals(2, transport.getCreatedPoolConfigCount());
+        assertTrue(indyConnector.diffConfiguration().isEmpty());
+
+        Files.writeString(genesisFile, "{\"txn\":1}\n{\"txn\":2}");
+        assertEquals(List.of("_"), List.copyOf(indyConnector.diffConfiguration().getChanged().keySet()));
+
+        indyConnection.close();
+        indyConnection.open(false, false);
+        assertEquals(3, transport.getCreatedPoolConfigCount());
+        assertEquals(indyConnection.getGenesisFingerprint(), indyConnection.getOpenGenesisFingerprint());
+
+        indyConnector.closeIndyConnections();
+        Files.delete(genesisFile);
+    }
+
+    @Test
+    public void testInMemoryIndyTransportPoolRefresh() throws Exception {
+
+        // the second refresh only starts after the first one has completed, so waiting for it does not depend on timing
+
+        CountDownLatch refreshes = new CountDownLatch(2);
+        InMemoryIndyTransport transport = new InMemoryIndyTransport(Duration.ofMillis(1), Duration.ZERO, 0) {
+            @Override
+            public CompletableFuture<Void> refreshPoolLedger(PoolHandle poolHandle) {
+                refreshes.countDown();
+                return super.refreshPoolLedger(poolHandle);
+            }
+        };
+        IndyConnector indyConnector = indyConnector(transport);
+        indyConnector.setPoolRefreshIntervals("_;1");
+
+        indyConnector.openIndyConnections(true, false, true);
+        IndyConnection indyConnection = indyConnector.getIndyConnection("_");
+        assertEquals(Duration.ofSeconds(1), indyConnection.getPoolRefreshInterval());
+        assertNull(indyConnector.getIndyConnection("test").getPoolRefreshInterval());
+
+        assertTrue(refreshes.await(10, TimeUnit.SECONDS), "pool has not been refreshed twice");
+        assertNotNull(indyConnection.getLastPoolRefreshTime());
+        assertNull(indyConnector.getIndyConnection("test").getLastPoolRefreshTime());
+        assertTrue(transport.getRefreshCount() >= 1);
+
+        indyConnector.closeIndyConnections();
+    }
+
+    @Test
+    public void testInMemoryIndyTransportTimeoutsAndCircuitBreaker() throws Exception {
+
+        InMemoryIndyTransport transport = new InMemoryIndyTransport(Duration.ZERO, Duration.ZERO, 0);
+        IndyConnector indyConnector = indyConnector(transport);
+        indyConnector.setTimeouts("GET_NYM;0.1");
+        indyConnector.setCircuitBreakers("_;2,1;test;off");
+
+        indyConnector.openIndyConnections(true, false, true);
+        IndyConnection indyConnection = indyConnector.getIndyConnection("_");
+        assertEquals(2, indyConnection.getCircuitBreaker().getFailureThreshold());
+        assertEquals(Duration.ofSeconds(1), indyConnection.getCircuitBreaker().getOpenDuration());
+        assertNull(indyConnector.getIndyConnection("test").getCircuitBreaker());
+        assertEquals(Duration.ofMillis(100), indyConnection.getTimeouts().getLedgerCallTimeout("GET_NYM"));
+
+        // the same circuit breaker, with a ticker that the test advances instead of waiting for the open duration
+
+        AtomicLong ticker = new AtomicLong();
+        IndyCircuitBreaker circuitBreaker = new IndyCircuitBreaker("_", 2, Duration.ofSeconds(1), ticker::get);
+        indyConnection.setCircuitBreaker(circuitBreaker);
+
+        CompletionException deadlineEx = assertThrows(CompletionException.class, () -> indyConnection.getNymAsync("did", Instant.now().minusSeconds(1)).join());
+        assertTrue(deadlineEx.getCause() instanceof IndyConnectionException);
+        assertEquals(IndyCircuitBreaker.State.CLOSED, circuitBreaker.getState());
+
+        transport.setLatency(Duration.ofMillis(500));
+        for (int i=0; i<2; i++) {
+            IndyConnectionException ex = assertThrows(IndyConnectionException.class, () -> indyConnection.getNym("did"));
+            assertTrue(ex.getMessage().contains("Timeout"), ex.getMessage());
+        }
+        assertEquals(IndyCircuitBreaker.State.OPEN, circuitBreaker.getState());
+
+        long requestCount = transport.getRequestCount();
+        ticker.addAndGet(Duration.ofMillis(999).toNanos());
+        IndyConnectionException ex = assertThrows(IndyConnectionException.class, () -> indyConnection.getNym("did"));
+        assertTrue(ex.getMessage().contains("Circuit breaker"), ex.getMessage());
+        assertEquals(requestCount, transport.getRequestCount());
+        assertEquals(1, circuitBreaker.getRejectedCount());
+
+        transport.setLatency(Duration.ZERO);
+        ticker.addAndGet(Duration.ofMillis(1).toNanos());
+        assertNotNull(indyConnection.getNym("did"));
+        assertEquals(IndyCircuitBreaker.State.CLOSED, circuitBreaker.getState());
+
+        indyConnector.closeIndyConnections();
+    }
+
+    @Test
+    public void testInMemoryIndyTransportReadCoalescing() throws Exception {
+
+        InMemoryIndyTransport transport = new InMemoryIndyTransport(Duration.ofMillis(50), Duration.ZERO, 0);
+        transport.addNym("did1", "verkey1");
+        IndyConnector indyConnector = indyConnector(transport);
+
+        indyConnector.openIndyConnections(true, false, true);
+        IndyConnection indyConnection = indyConnector.getIndyConnection("_");
+        assertNull(indyConnection.getLedgerReadCache());
+
+        long requestCount = transport.getRequestCount();
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        for (int i=0; i<100; i++) futures.add(indyConnection.getNymAsync("did1"));
+        String first = futures.get(0).get();
+        for (CompletableFuture<String> future : futures) assertSame(first, future.get());
+
+        assertTrue(indyConnection.getCoalescedReadCount() > 0);
+        assertTrue(transport.getRequestCount() - requestCount < 100);
+
+        indyConnector.closeIndyConnections();
+    }
+
+    @Test
+    public void testInMemoryIndyTransportReadInvalidatedInFlight() throws Exception {
+
+        CompletableFuture<Void> gate = new CompletableFuture<>();
+        InMemoryIndyTransport transport = new InMemoryIndyTransport(Duration.ZERO, Duration.ZERO, 0) {
+            @Override
+            public CompletableFuture<String> submitRequest(PoolHandle poolHandle, String request) {
+                return gate.thenCompose(x -> super.submitRequest(poolHandle, request));
+            }
+        };
+        transport.setExecutor(Runnable::run);
+        transport.addNym("did1", "verkey1");
+        IndyConnector indyConnector = indyConnector(transport);
+        indyConnector.setLedgerReadCaches("_;100,60");
+
+        indyConnector.openIndyConnections(true, false, true);
+        IndyConnection indyConnection = indyConnector.getIndyConnection("_");
+
+        // the DID is updated while a read of it is in flight, so the result of the read is not cached
+
+        CompletableFuture<String> getNym = indyConnection.getNymAsync("did1");
+        transport.addNym("did1", "verkey2");
+        indyConnector.invalidateLedgerReadCache("_", "did1");
+        gate.complete(null);
+        assertNotNull(getNym.get());
+        assertEquals(0, indyConnection.getLedgerReadCache().size());
+
+        assertEquals("verkey2", new JSONObject(new JSONObject(indyConnection.getNym("did1")).getJSONObject("result").getString("data")).getString("verkey"));
+        assertEquals(1, indyConnection.getLedgerReadCache().size());
+
+        indyConnector.closeIndyConnections();
+    }
+
+    @Test
+    public void testInMemoryIndyTransportLedgerScan() throws Exception {
+
+        InMemoryIndyTransport transport = new InMemoryIndyTransport(Duration.ofMillis(2), Duration.ofMillis(2), 0);
+        IndyConnector indyConnector = indyConnector(transport);
+
+        indyConnector.openIndyConnections(true, false, true);
+        IndyConnection indyConnection = indyConnector.getIndyConnection("_");
+
+        List<String> requests = new ArrayList<>();
+        for (int i=0; i<50; i++) requests.add(new JSONObject().put("reqId", i).put("operation", new JSONObject().put("type", "1").put("dest", "did" + i).put("verkey", "verkey" + i)).put("protocolVersion", 2).toString());
+        for (CompletableFuture<String> future : indyConnection.submitRequestsAsync(requests, false)) future.get();
+
+        List<IndyLedgerTxn> txns = indyConnection.getTxnPublisher("DOMAIN", 1, null, 8).stream().collect(Collectors.toList());
+        assertEquals(50, txns.size());
+        for (int i=0; i<50; i++) {
+            assertEquals(i + 1, txns.get(i).seqNo());
+            assertEquals("1", txns.get(i).getData().getJSONObject("txn").getString("type"));
+        }
+
+        // stop after 20 transactions, then resume from the checkpoint
+
+        IndyLedgerTxnPublisher publisher = indyConnection.getTxnPublisher("DOMAIN", 1, null, 4);
+        CompletableFuture<Void> stopped = new CompletableFuture<>();
+        publisher.subscribe(new Flow.Subscriber<>() {
+            private Flow.Subscription subscription;
+            @Override public void onSubscribe(Flow.Subscription subscription) { this.subscription = subscription; subscription.request(1); }
+            @Override public void onNext(IndyLedgerTxn item) { if (item.seqNo() == 20) { this.subscription.cancel(); stopped.complete(null); } else this.subscription.request(1); }
+            @Override public void onError(Throwable throwable) { stopped.completeExceptionally(throwable); }
+            @Override public void onComplete() { stopped.completeExceptionally(new IllegalStateException("Completed")); }
+        });
+        stopped.get();
+        assertEquals(20, publisher.getCheckpoint());
+
+        List<IndyLedgerTxn> resumed = indyConnection.getTxnPublisher("DOMAIN", publisher.getCheckpoint() + 1, 40, 4).stream().collect(Collectors.toList());
+        assertEquals(20, resumed.size());
+        assertEquals(21, resumed.get(0).seqNo());
+        assertEquals(40, resumed.get(19).seqNo());
+
+        indyConnector.closeIndyConnections();
+    }
+}
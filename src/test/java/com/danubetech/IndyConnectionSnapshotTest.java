@@ -0,0 +1,206 @@
+package com.danubetech;
+
+import com.danubetech.libindy.InMemoryIndyTransport;
+import com.danubetech.libindy.IndyConnection;
+import com.danubetech.libindy.IndyConnector;
+import com.danubetech.libindy.IndyTransport;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IndyConnectionSnapshotTest {
+
+    private static final String SEED = "00000000000000000000000000000001";
+
+    private static IndyConnector indyConnector(IndyTransport transport, Path snapshotFile, String walletName, String submitterDidSeed) {
+
+        IndyConnector indyConnector = new IndyConnector();
+        indyConnector.setTransport(transport);
+        indyConnector.setPoolConfigs("_;./sovrin/_.txn");
+        indyConnector.setPoolVersions("_;2");
+        indyConnector.setWalletNames("_;" + walletName);
+        indyConnector.setSubmitterDidSeeds("_;" + submitterDidSeed);
+        indyConnector.setSnapshotFile(snapshotFile.toString());
+        indyConnector.setOpenExecutor(Runnable::run);
+        return indyConnector;
+    }
+
+    private static InMemoryIndyTransport transport() {
+
+        InMemoryIndyTransport transport = new InMemoryIndyTransport(Duration.ZERO, Duration.ZERO, 0);
+        transport.setExecutor(Runnable::run);
+        transport.setTaa("Terms", "1.0");
+        return transport;
+    }
+
+    private static JSONObject readSnapshot(Path snapshotFile) throws Exception {
+
+        return new JSONObject(Files.readString(snapshotFile, StandardCharsets.UTF_8)).getJSONObject("_");
+    }
+
+    private static void deleteSnapshotFile(Path snapshotFile) throws Exception {
+
+        Files.deleteIfExists(snapshotFile);
+        Files.delete(snapshotFile.getParent());
+    }
+
+    @Test
+    public void testIndyConnectionSnapshotHit() throws Exception {
+
+        Path snapshotFile = Files.createTempDirectory("snapshots").resolve("snapshots.json");
+
+        CompletableFuture<Void> gate = new CompletableFuture<>();
+        AtomicBoolean gated = new AtomicBoolean();
+        InMemoryIndyTransport transport = new InMemoryIndyTransport(Duration.ZERO, Duration.ZERO, 0) {
+            @Override
+            public CompletableFuture<MyDid> createAndStoreMyDid(WalletHandle walletHandle, String seed) {
+                if (gated.get()) return gate.thenCompose(x -> super.createAndStoreMyDid(walletHandle, seed));
+                return super.createAndStoreMyDid(walletHandle, seed);
+            }
+            @Override
+            public CompletableFuture<String> getMyDidWithMeta(WalletHandle walletHandle, String did) {
+                if (gated.get()) return gate.thenCompose(x -> super.getMyDidWithMeta(walletHandle, did));
+                return super.getMyDidWithMeta(walletHandle, did);
+            }
+            @Override
+            public CompletableFuture<String> getListMyDidsWithMeta(WalletHandle walletHandle) {
+                if (gated.get()) return gate.thenCompose(x -> super.getListMyDidsWithMeta(walletHandle));
+                return super.getListMyDidsWithMeta(walletHandle);
+            }
+            @Override
+            public CompletableFuture<String> signAndSubmitRequest(PoolHandle poolHandle, WalletHandle walletHandle, String submitterDid, String request) {
+                if (gated.get()) return gate.thenCompose(x -> super.signAndSubmitRequest(poolHandle, walletHandle, submitterDid, request));
+                return super.signAndSubmitRequest(poolHandle, walletHandle, submitterDid, request);
+            }
+        };
+        transport.setExecutor(Runnable::run);
+        transport.setTaa("Terms", "1.0");
+
+        // the first open creates the submitter DID, retrieves the TAA, and writes the snapshot
+
+        IndyConnector indyConnector = indyConnector(transport, snapshotFile, "w_", SEED);
+        indyConnector.openIndyConnections(true, true, true);
+        String submitterDid = indyConnector.getIndyConnection("_").getSubmitterDid();
+        indyConnector.closeIndyConnections();
+
+        JSONObject snapshot = readSnapshot(snapshotFile);
+        assertEquals(submitterDid, snapshot.getString("submitterDid"));
+        assertEquals("1.0", snapshot.getString("taaVersion"));
+        assertEquals(1, transport.getCreatedDidCount());
+
+        // the seed is neither stored, nor its plain hash
+
+        String snapshotString = Files.readString(snapshotFile, StandardCharsets.UTF_8);
+        assertFalse(snapshotString.contains(SEED));
+        assertFalse(snapshotString.contains(HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(SEED.getBytes(StandardCharsets.UTF_8)))));
+
+        // the next open takes the submitter DID and TAA from the snapshot, without waiting for the wallet or the ledger
+
+        gated.set(true);
+        indyConnector = indyConnector(transport, snapshotFile, "w_", SEED);
+        indyConnector.openIndyConnections(true, true, true);
+        IndyConnection indyConnection = indyConnector.getIndyConnection("_");
+        assertTrue(indyConnection.isOpen());
+        assertEquals(submitterDid, indyConnection.getSubmitterDid());
+        assertEquals("Terms", indyConnection.getTaa());
+        assertEquals("1.0", indyConnection.getTaaVersion());
+
+        // the snapshot is revalidated in the background, and is still valid
+
+        long requestCount = transport.getRequestCount();
+        gate.complete(null);
+        assertEquals(requestCount + 1, transport.getRequestCount());
+        assertEquals(1, transport.getCreatedDidCount());
+        assertEquals(submitterDid, readSnapshot(snapshotFile).getString("submitterDid"));
+
+        indyConnector.closeIndyConnections();
+        deleteSnapshotFile(snapshotFile);
+    }
+
+    @Test
+    public void testIndyConnectionSnapshotMismatch() throws Exception {
+
+        Path snapshotFile = Files.createTempDirectory("snapshots").resolve("snapshots.json");
+        InMemoryIndyTransport transport = transport();
+
+        IndyConnector indyConnector = indyConnector(transport, snapshotFile, "w_", SEED);
+        indyConnector.openIndyConnections(true, true, true);
+        String submitterDid = indyConnector.getIndyConnection("_").getSubmitterDid();
+        indyConnector.closeIndyConnections();
+
+        // another wallet does not use the snapshot, but opens as usual and then replaces it
+
+        indyConnector = indyConnector(transport, snapshotFile, "w2", SEED);
+        indyConnector.openIndyConnections(true, true, true);
+        assertEquals(2, transport.getCreatedDidCount());
+        assertEquals("w2", readSnapshot(snapshotFile).getString("walletName"));
+        indyConnector.closeIndyConnections();
+
+        // so does another seed
+
+        indyConnector = indyConnector(transport, snapshotFile, "w2", "00000000000000000000000000000002");
+        indyConnector.openIndyConnections(true, true, true);
+        String otherSubmitterDid = indyConnector.getIndyConnection("_").getSubmitterDid();
+        assertNotEquals(submitterDid, otherSubmitterDid);
+        assertEquals(3, transport.getCreatedDidCount());
+        assertEquals(otherSubmitterDid, readSnapshot(snapshotFile).getString("submitterDid"));
+        indyConnector.closeIndyConnections();
+
+        deleteSnapshotFile(snapshotFile);
+    }
+
+    @Test
+    public void testIndyConnectionSnapshotDidMissing() throws Exception {
+
+        Path snapshotFile = Files.createTempDirectory("snapshots").resolve("snapshots.json");
+
+        IndyConnector indyConnector = indyConnector(transport(), snapshotFile, "w_", SEED);
+        indyConnector.openIndyConnections(true, true, true);
+        String submitterDid = indyConnector.getIndyConnection("_").getSubmitterDid();
+        indyConnector.closeIndyConnections();
+
+        // the wallet no longer has the submitter DID of the snapshot, so it is created again in the background
+
+        InMemoryIndyTransport transport = transport();
+        indyConnector = indyConnector(transport, snapshotFile, "w_", SEED);
+        indyConnector.openIndyConnections(true, true, true);
+        IndyConnection indyConnection = indyConnector.getIndyConnection("_");
+        assertEquals(1, transport.getCreatedDidCount());
+        assertEquals(submitterDid, indyConnection.getSubmitterDid());
+        assertTrue(indyConnection.verifySubmitterDidAsync().get());
+        assertEquals("1.0", indyConnection.getTaaVersion());
+
+        indyConnector.closeIndyConnections();
+        deleteSnapshotFile(snapshotFile);
+    }
+
+    @Test
+    public void testIndyConnectionSnapshotCorruptFile() throws Exception {
+
+        Path snapshotFile = Files.createTempDirectory("snapshots").resolve("snapshots.json");
+        Files.writeString(snapshotFile, "{\"_\":{\"walletName\":", StandardCharsets.UTF_8);
+
+        // the corrupt file is ignored, and replaced once the connection is open
+
+        InMemoryIndyTransport transport = transport();
+        IndyConnector indyConnector = indyConnector(transport, snapshotFile, "w_", SEED);
+        indyConnector.openIndyConnections(true, true, true);
+        IndyConnection indyConnection = indyConnector.getIndyConnection("_");
+        assertTrue(indyConnection.isOpen());
+        assertEquals(1, transport.getCreatedDidCount());
+        assertEquals(indyConnection.getSubmitterDid(), readSnapshot(snapshotFile).getString("submitterDid"));
+
+        indyConnector.closeIndyConnections();
+        deleteSnapshotFile(snapshotFile);
+    }
+}
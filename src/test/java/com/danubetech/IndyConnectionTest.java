@@ -1,9 +1,15 @@
 package com.danubetech;
 
 import com.danubetech.libindy.IndyConnection;
+import com.danubetech.libindy.IndyDidRouter;
 import org.junit.jupiter.api.Test;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
 public class IndyConnectionTest {
 
@@ -17,4 +23,24 @@ public class IndyConnectionTest {
         assertEquals(IndyConnection.getDidNetworkPrefix("dummy"), "dummy:");
         assertEquals(IndyConnection.getDidNetworkPrefix("dummy:test"), "dummy:test:");
     }
+
+    @Test
+    public void testIndyConnectionDidRouter() {
+
+        Map<String, IndyConnection> indyConnections = new LinkedHashMap<>();
+        for (String network : new String[] { "_", "dummy", "dummy:test", "danube" }) {
+            indyConnections.put(network, new IndyConnection(network, network, null, 2, false, false, false, false, false, network, "_", null));
+        }
+        IndyDidRouter indyDidRouter = new IndyDidRouter(indyConnections);
+
+        assertSame(indyConnections.get("_"), indyDidRouter.route("did:sov:WRfXPg8dantKVubE3HX8pw"));
+        assertSame(indyConnections.get("dummy"), indyDidRouter.route("did:sov:dummy:WRfXPg8dantKVubE3HX8pw"));
+        assertSame(indyConnections.get("dummy:test"), indyDidRouter.route("did:sov:dummy:test:WRfXPg8dantKVubE3HX8pw"));
+        assertSame(indyConnections.get("danube"), indyDidRouter.route("did:indy:danube:WRfXPg8dantKVubE3HX8pw"));
+        assertNull(indyDidRouter.route("did:sov:dum:WRfXPg8dantKVubE3HX8pw"));
+        assertNull(indyDidRouter.route("did:sov:dummy:other:WRfXPg8dantKVubE3HX8pw"));
+        assertNull(indyDidRouter.route("did:sov:dummy:"));
+        assertNull(indyDidRouter.route("did:web:example.com"));
+        assertNull(IndyDidRouter.EMPTY.route("did:sov:WRfXPg8dantKVubE3HX8pw"));
+    }
 }
@@ -0,0 +1,268 @@
+package com.danubetech;
+
+import com.danubetech.libindy.InMemoryIndyTransport;
+import com.danubetech.libindy.IndyConnection;
+import com.danubetech.libindy.IndyConnectionException;
+import com.danubetech.libindy.IndyConnector;
+import com.danubetech.libindy.IndyTransport;
+import com.danubetech.libindy.IndyTransport.WalletHandle;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IndyConnectorTest {
+
+    private static IndyConnector indyConnector(IndyTransport transport, String... networks) {
+
+        StringBuilder poolConfigs = new StringBuilder();
+        StringBuilder poolVersions = new StringBuilder();
+        StringBuilder walletNames = new StringBuilder();
+        StringBuilder submitterDidSeeds = new StringBuilder();
+        for (String network : networks) {
+            poolConfigs.append(network).append(";./sovrin/").append(network).append(".txn;");
+            poolVersions.append(network).append(";2;");
+            walletNames.append(network).append(";w").append(network).append(";");
+            submitterDidSeeds.append(network).append(";_;");
+        }
+
+        IndyConnector indyConnector = new IndyConnector();
+        indyConnector.setTransport(transport);
+        indyConnector.setPoolConfigs(poolConfigs.toString());
+        indyConnector.setPoolVersions(poolVersions.toString());
+        indyConnector.setWalletNames(walletNames.toString());
+        indyConnector.setSubmitterDidSeeds(submitterDidSeeds.toString());
+        return indyConnector;
+    }
+
+    @Test
+    public void testIndyConnectorOpenConcurrency() throws Exception {
+
+        InMemoryIndyTransport transport = new InMemoryIndyTransport(Duration.ofMillis(20), Duration.ZERO, 0);
+        IndyConnector indyConnector = indyConnector(transport, "n1", "n2", "n3", "n4", "n5", "n6");
+        indyConnector.setOpenConcurrency(2);
+
+        indyConnector.openIndyConnections(true, false, true);
+        assertEquals(6, transport.getOpenPoolCount());
+        assertTrue(transport.getMaxInFlight() <= 2, "max in flight: " + transport.getMaxInFlight());
+        indyConnector.closeIndyConnections();
+
+        InMemoryIndyTransport sequentialTransport = new InMemoryIndyTransport(Duration.ofMillis(5), Duration.ZERO, 0);
+        IndyConnector sequentialIndyConnector = indyConnector(sequentialTransport, "n1", "n2", "n3");
+        sequentialIndyConnector.openIndyConnections(true, false, false);
+        assertEquals(3, sequentialTransport.getOpenPoolCount());
+        assertEquals(1, sequentialTransport.getMaxInFlight());
+        sequentialIndyConnector.closeIndyConnections();
+    }
+
+    @Test
+    public void testIndyConnectorOpenTimeout() {
+
+        // everything runs on the calling thread, except for the pool of "slow", which opens when the gate is opened
+
+        CompletableFuture<Void> gate = new CompletableFuture<>();
+        InMemoryIndyTransport transport = new InMemoryIndyTransport(Duration.ZERO, Duration.ZERO, 0) {
+            @Override
+            public CompletableFuture<PoolHandle> openPoolLedger(String poolConfigName) {
+                if ("slow".equals(poolConfigName)) return gate.thenCompose(x -> super.openPoolLedger(poolConfigName));
+                return super.openPoolLedger(poolConfigName);
+            }
+        };
+        transport.setExecutor(Runnable::run);
+        IndyConnector indyConnector = indyConnector(transport, "_", "slow", "later");
+        indyConnector.setOpenExecutor(Runnable::run);
+        indyConnector.setOpenConcurrency(1);
+        indyConnector.setOpenTimeout(Duration.ofMillis(200));
+
+        IndyConnectionException ex = assertThrows(IndyConnectionException.class, () -> indyConnector.openIndyConnections(true, false, true));
+        assertTrue(ex.getMessage().contains("Timeout"), ex.getMessage());
+        assertTrue(ex.getMessage().contains("slow") && ex.getMessage().contains("later") && ! ex.getMessage().contains("_"), ex.getMessage());
+        assertFalse(indyConnector.isOpened());
+
+        // the network that opens after the timeout is closed together with the ones opened before, and the remaining one is not opened
+
+        gate.complete(null);
+        assertEquals(2, transport.getCreatedPoolConfigCount());
+        assertEquals(0, transport.getOpenPoolCount());
+        assertEquals(0, transport.getOpenWalletCount());
+        assertFalse(indyConnector.isOpened());
+    }
+
+    @Test
+    public void testIndyConnectorOpenFailure() {
+
+        InMemoryIndyTransport transport = new InMemoryIndyTransport(Duration.ZERO, Duration.ZERO, 0) {
+            @Override
+            public CompletableFuture<WalletHandle> openWallet(String walletConfig, String walletCredentials) {
+                if ("wbad".equals(new JSONObject(walletConfig).getString("id"))) return CompletableFuture.failedFuture(new IllegalStateException("Wallet is broken"));
+                return super.openWallet(walletConfig, walletCredentials);
+            }
+        };
+        transport.setExecutor(Runnable::run);
+        IndyConnector indyConnector = indyConnector(transport, "_", "bad", "later");
+        indyConnector.setOpenExecutor(Runnable::run);
+        indyConnector.setOpenConcurrency(1);
+
+        IndyConnectionException ex = assertThrows(IndyConnectionException.class, () -> indyConnector.openIndyConnections(true, false, true));
+        assertTrue(ex.getMessage().contains("wbad"), ex.getMessage());
+        assertFalse(indyConnector.isOpened());
+        assertEquals(2, transport.getCreatedPoolConfigCount());
+        assertEquals(0, transport.getOpenPoolCount());
+        assertEquals(0, transport.getOpenWalletCount());
+    }
+
+    @Test
+    public void testIndyConnectorLazyOpen() throws Exception {
+
+        InMemoryIndyTransport transport = new InMemoryIndyTransport(Duration.ZERO, Duration.ZERO, 0);
+        IndyConnector indyConnector = indyConnector(transport, "_", "prewarmed", "lazy");
+        indyConnector.setLazyOpen(true);
+        indyConnector.setPrewarmNetworks("prewarmed");
+
+        indyConnector.openIndyConnections(true, false, true);
+        assertTrue(indyConnector.isOpened());
+        assertEquals(3, indyConnector.getIndyConnections().size());
+        assertTrue(indyConnector.getIndyConnections().get("prewarmed").isOpen());
+        assertFalse(indyConnector.getIndyConnections().get("lazy").isOpen());
+        assertEquals(1, transport.getOpenPoolCount());
+
+        // the first use opens a network with the settings given when opening the connector
+
+        IndyConnection indyConnection = indyConnector.getIndyConnection("lazy");
+        assertTrue(indyConnection.isOpen());
+        assertNotNull(indyConnection.getSubmitterDid());
+        assertFalse(indyConnector.getIndyConnections().get("_").isOpen());
+        assertEquals(2, transport.getOpenPoolCount());
+
+        indyConnector.closeIndyConnections();
+        assertEquals(0, transport.getOpenPoolCount());
+    }
+
+    @Test
+    public void testIndyConnectorLazyOpenUnknownPrewarmNetwork() {
+
+        InMemoryIndyTransport transport = new InMemoryIndyTransport(Duration.ZERO, Duration.ZERO, 0);
+        IndyConnector indyConnector = indyConnector(transport, "_", "lazy");
+        indyConnector.setLazyOpen(true);
+        indyConnector.setPrewarmNetworks("_;unknown");
+
+        IndyConnectionException ex = assertThrows(IndyConnectionException.class, () -> indyConnector.openIndyConnections(true, false, true));
+        assertTrue(ex.getMessage().contains("unknown"), ex.getMessage());
+        assertFalse(indyConnector.isOpened());
+        assertEquals(0, transport.getOpenPoolCount());
+    }
+
+    @Test
+    public void testIndyConnectorIdleClose() throws Exception {
+
+        CompletableFuture<WalletHandle> closedWallet = new CompletableFuture<>();
+        InMemoryIndyTransport transport = new InMemoryIndyTransport(Duration.ZERO, Duration.ZERO, 0) {
+            @Override
+            public CompletableFuture<Void> closeWallet(WalletHandle walletHandle) {
+                return super.closeWallet(walletHandle).whenComplete((result, ex) -> closedWallet.complete(walletHandle));
+            }
+        };
+        IndyConnector indyConnector = indyConnector(transport, "_");
+        indyConnector.setIdleTimeout(Duration.ofMillis(100));
+
+        indyConnector.openIndyConnections(true, false, true);
+        IndyConnection indyConnection = indyConnector.getIndyConnections().get("_");
+        assertTrue(indyConnection.isOpen());
+
+        // the idle connection is closed in the background, and opened again on its next use
+
+        closedWallet.get(10, TimeUnit.SECONDS);
+        assertFalse(indyConnection.isOpen());
+        assertSame(indyConnection, indyConnector.getIndyConnection("_", true, true, false));
+        assertTrue(indyConnection.isOpen());
+        assertEquals(1, transport.getOpenWalletCount());
+
+        indyConnector.closeIndyConnections();
+        assertEquals(0, transport.getOpenWalletCount());
+    }
+
+    @Test
+    public void testIndyConnectorIdleCloseWithPendingCall() throws Exception {
+
+        CompletableFuture<Void> gate = new CompletableFuture<>();
+        CompletableFuture<WalletHandle> closedWallet = new CompletableFuture<>();
+        InMemoryIndyTransport transport = new InMemoryIndyTransport(Duration.ZERO, Duration.ZERO, 0) {
+            @Override
+            public CompletableFuture<String> submitRequest(PoolHandle poolHandle, String request) {
+                return gate.thenCompose(x -> super.submitRequest(poolHandle, request));
+            }
+            @Override
+            public CompletableFuture<Void> closeWallet(WalletHandle walletHandle) {
+                return super.closeWallet(walletHandle).whenComplete((result, ex) -> closedWallet.complete(walletHandle));
+            }
+        };
+        transport.addNym("did1", "verkey1");
+        IndyConnector indyConnector = indyConnector(transport, "_");
+        indyConnector.setIdleTimeout(Duration.ofMillis(100));
+
+        indyConnector.openIndyConnections(true, false, true);
+        IndyConnection indyConnection = indyConnector.getIndyConnections().get("_");
+
+        // a connection with a call in flight is not closed, however long the call takes
+
+        CompletableFuture<String> getNym = indyConnection.getNymAsync("did1");
+        assertThrows(TimeoutException.class, () -> closedWallet.get(2500, TimeUnit.MILLISECONDS));
+        assertTrue(indyConnection.isOpen());
+
+        // once the call has completed, the connection is closed after the idle timeout
+
+        gate.complete(null);
+        assertEquals("verkey1", new JSONObject(new JSONObject(getNym.get(10, TimeUnit.SECONDS)).getJSONObject("result").getString("data")).getString("verkey"));
+        closedWallet.get(10, TimeUnit.SECONDS);
+        assertFalse(indyConnection.isOpen());
+
+        indyConnector.closeIndyConnections();
+    }
+
+    @Test
+    public void testIndyConnectorRemoveNetworkDrain() throws Exception {
+
+        AtomicReference<CompletableFuture<Void>> gate = new AtomicReference<>(new CompletableFuture<>());
+        InMemoryIndyTransport transport = new InMemoryIndyTransport(Duration.ZERO, Duration.ZERO, 0) {
+            @Override
+            public CompletableFuture<String> submitRequest(PoolHandle poolHandle, String request) {
+                return gate.get().thenCompose(x -> super.submitRequest(poolHandle, request));
+            }
+        };
+        transport.addNym("did1", "verkey1");
+        IndyConnector indyConnector = indyConnector(transport, "_", "x");
+        indyConnector.openIndyConnections(true, false, true);
+
+        // a removed network is closed as soon as its last call has completed
+
+        IndyConnection indyConnection = indyConnector.getIndyConnection("x");
+        CompletableFuture<String> getNym = indyConnection.getNymAsync("did1");
+        CompletableFuture<Void> removed = indyConnector.removeNetworkAsync("x", Duration.ofMinutes(1));
+        assertNull(indyConnector.getIndyConnection("x"));
+        assertFalse(removed.isDone());
+        assertTrue(indyConnection.isOpen());
+
+        gate.get().complete(null);
+        removed.get(10, TimeUnit.SECONDS);
+        assertNotNull(getNym.get());
+        assertFalse(indyConnection.isOpen());
+
+        // a call that does not complete within the drain timeout does not keep the connection open
+
+        gate.set(new CompletableFuture<>());
+        indyConnection = indyConnector.getIndyConnection("_");
+        indyConnection.getNymAsync("did1");
+        indyConnector.removeNetworkAsync("_", Duration.ofMillis(100)).get(10, TimeUnit.SECONDS);
+        assertTrue(indyConnection.isBusy());
+        assertFalse(indyConnection.isOpen());
+
+        gate.get().complete(null);
+        indyConnector.closeIndyConnections();
+    }
+}
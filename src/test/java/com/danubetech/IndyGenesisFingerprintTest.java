@@ -0,0 +1,141 @@
+package com.danubetech;
+
+import com.danubetech.libindy.InMemoryIndyTransport;
+import com.danubetech.libindy.IndyConnection;
+import com.danubetech.libindy.IndyConnector;
+import com.danubetech.libindy.LibIndyTransport;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IndyGenesisFingerprintTest {
+
+    @Test
+    public void testLibIndyTransportGenesisFingerprintFile() throws Exception {
+
+        LibIndyTransport transport = LibIndyTransport.getInstance();
+        Path previousGenesisFingerprintDirectory = transport.getGenesisFingerprintDirectory();
+        Path genesisFingerprintDirectory = Files.createTempDirectory("genesis-fingerprints").resolve("nested");
+        transport.setGenesisFingerprintDirectory(genesisFingerprintDirectory);
+        try {
+            assertNull(transport.getPoolLedgerConfigFingerprint("sovrin/test").get());
+
+            transport.setPoolLedgerConfigFingerprint("sovrin/test", "fingerprint1").get();
+            transport.setPoolLedgerConfigFingerprint("sovrin/test", "fingerprint2").get();
+            assertEquals("fingerprint2", transport.getPoolLedgerConfigFingerprint("sovrin/test").get());
+
+            try (Stream<Path> files = Files.list(genesisFingerprintDirectory)) {
+                assertEquals(List.of("sovrin%2Ftest.fingerprint"), files.map(file -> file.getFileName().toString()).toList());
+            }
+        } finally {
+            transport.setGenesisFingerprintDirectory(previousGenesisFingerprintDirectory);
+            try (Stream<Path> files = Files.walk(genesisFingerprintDirectory.getParent())) {
+                for (Path file : files.sorted((path1, path2) -> path2.compareTo(path1)).toList()) Files.delete(file);
+            }
+        }
+    }
+
+    @Test
+    public void testGenesisFingerprintStoredAfterOpen() throws Exception {
+
+        Path genesisFile = Files.createTempFile("genesis", ".txn");
+        Files.writeString(genesisFile, "{\"txn\":1}");
+
+        AtomicBoolean failOpenPool = new AtomicBoolean(true);
+        InMemoryIndyTransport transport = new InMemoryIndyTransport(Duration.ZERO, Duration.ZERO, 0) {
+            @Override
+            public CompletableFuture<PoolHandle> openPoolLedger(String poolConfigName) {
+                if (failOpenPool.get()) return CompletableFuture.failedFuture(new IllegalStateException("Genesis nodes are unreachable"));
+                return super.openPoolLedger(poolConfigName);
+            }
+        };
+        IndyConnector indyConnector = new IndyConnector();
+        indyConnector.setTransport(transport);
+        indyConnector.setPoolConfigs("_;" + genesisFile);
+        indyConnector.setPoolVersions("_;2");
+        indyConnector.setWalletNames("_;w_");
+        indyConnector.setSubmitterDidSeeds("_;_");
+        indyConnector.setLazyOpen(true);
+        indyConnector.openIndyConnections(false, false, true);
+        IndyConnection indyConnection = indyConnector.getIndyConnections().get("_");
+
+        // a pool that cannot be opened records no fingerprint
+
+        indyConnection.open(false, false);
+        assertFalse(indyConnection.isOpen());
+        assertNull(indyConnection.getOpenGenesisFingerprint());
+        assertNull(transport.getPoolLedgerConfigFingerprint(indyConnection.getPoolConfigName()).get());
+        assertEquals(1, transport.getCreatedPoolConfigCount());
+
+        // the pool config is created again and opened, and only then is the fingerprint recorded
+
+        indyConnection.close();
+        failOpenPool.set(false);
+        indyConnection.open(false, false);
+        assertTrue(indyConnection.isOpen());
+        assertEquals(indyConnection.getGenesisFingerprint(), indyConnection.getOpenGenesisFingerprint());
+        assertEquals(indyConnection.getGenesisFingerprint(), transport.getPoolLedgerConfigFingerprint(indyConnection.getPoolConfigName()).get());
+        assertEquals(2, transport.getCreatedPoolConfigCount());
+
+        indyConnector.closeIndyConnections();
+        Files.delete(genesisFile);
+    }
+
+    @Test
+    public void testGenesisFingerprintSkipsPoolConfigCreation() throws Exception {
+
+        Path genesisFile = Files.createTempFile("genesis", ".txn");
+        Files.writeString(genesisFile, "{\"txn\":1}");
+
+        AtomicInteger createPoolConfigCount = new AtomicInteger();
+        AtomicBoolean poolConfigLost = new AtomicBoolean();
+        InMemoryIndyTransport transport = new InMemoryIndyTransport(Duration.ZERO, Duration.ZERO, 0) {
+            @Override
+            public CompletableFuture<Boolean> createPoolLedgerConfig(String poolConfigName, String poolConfigFile) {
+                createPoolConfigCount.incrementAndGet();
+                return super.createPoolLedgerConfig(poolConfigName, poolConfigFile);
+            }
+            @Override
+            public CompletableFuture<Boolean> existsPoolLedgerConfig(String poolConfigName) {
+                if (poolConfigLost.get()) return CompletableFuture.completedFuture(false);
+                return super.existsPoolLedgerConfig(poolConfigName);
+            }
+        };
+        IndyConnector indyConnector = new IndyConnector();
+        indyConnector.setTransport(transport);
+        indyConnector.setPoolConfigs("_;" + genesisFile);
+        indyConnector.setPoolVersions("_;2");
+        indyConnector.setWalletNames("_;w_");
+        indyConnector.setSubmitterDidSeeds("_;_");
+        indyConnector.openIndyConnections(true, false, true);
+        IndyConnection indyConnection = indyConnector.getIndyConnections().get("_");
+        assertEquals(1, createPoolConfigCount.get());
+
+        // the pool config exists and has been created from the same genesis file, so it is not created again
+
+        indyConnection.close();
+        indyConnection.open(false, false);
+        assertTrue(indyConnection.isOpen());
+        assertEquals(1, createPoolConfigCount.get());
+
+        // the fingerprint has outlived the pool config, so the pool config is created
+
+        indyConnection.close();
+        poolConfigLost.set(true);
+        indyConnection.open(false, false);
+        assertTrue(indyConnection.isOpen());
+        assertEquals(2, createPoolConfigCount.get());
+
+        indyConnector.closeIndyConnections();
+        Files.delete(genesisFile);
+    }
+}
@@ -0,0 +1,200 @@
+package com.danubetech;
+
+import com.danubetech.libindy.InMemoryIndyTransport;
+import com.danubetech.libindy.IndyConnection;
+import com.danubetech.libindy.IndyConnectionHealth;
+import com.danubetech.libindy.IndyConnector;
+import com.danubetech.libindy.IndyHealthChecker;
+import com.danubetech.libindy.IndyPoolHandles;
+import com.danubetech.libindy.IndyTransport;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IndyHealthCheckerTest {
+
+    private static IndyConnector indyConnector(IndyTransport transport) {
+
+        IndyConnector indyConnector = new IndyConnector();
+        indyConnector.setTransport(transport);
+        indyConnector.setPoolConfigs("_;./sovrin/_.txn");
+        indyConnector.setPoolVersions("_;2");
+        indyConnector.setWalletNames("_;w_");
+        indyConnector.setSubmitterDidSeeds("_;_");
+        return indyConnector;
+    }
+
+    private static void losePool(InMemoryIndyTransport transport, IndyConnection indyConnection) {
+
+        for (IndyTransport.PoolHandle poolHandle : indyConnection.getPoolHandles().getPoolHandles()) transport.closePoolLedger(poolHandle).join();
+        indyConnection.setPool(null);
+    }
+
+    @Test
+    public void testIndyHealthCheckerProbe() throws Exception {
+
+        InMemoryIndyTransport transport = new InMemoryIndyTransport(Duration.ZERO, Duration.ZERO, 0);
+        transport.setExecutor(Runnable::run);
+        IndyConnector indyConnector = indyConnector(transport);
+        indyConnector.openIndyConnections(true, false, true);
+        IndyConnection indyConnection = indyConnector.getIndyConnections().get("_");
+        IndyConnectionHealth health = indyConnection.getHealth();
+
+        IndyHealthChecker indyHealthChecker = new IndyHealthChecker(indyConnector::getIndyConnections, Duration.ofMinutes(1), Duration.ofSeconds(10), 2);
+        indyHealthChecker.check(indyConnection).join();
+        assertEquals(1, health.getProbeCount());
+        assertEquals(0, health.getFailureCount());
+        assertTrue(indyConnection.isHealthy());
+
+        // the connection is degraded after two failed probes in a row, and a reconnection is attempted
+
+        transport.setFailureRate(1.0);
+        indyHealthChecker.check(indyConnection).join();
+        assertEquals(1, health.getConsecutiveFailures());
+        assertFalse(health.isDegraded());
+        assertEquals(0, health.getReconnectAttempts());
+
+        indyHealthChecker.check(indyConnection).join();
+        assertTrue(health.isDegraded());
+        assertFalse(indyConnection.isHealthy());
+        assertEquals(1, health.getReconnectAttempts());
+        assertEquals(0, health.getReconnectCount());
+        assertFalse(health.isReconnecting());
+
+        // no other reconnection is started before the backoff has passed
+
+        transport.setFailureRate(0);
+        long requestCount = transport.getRequestCount();
+        indyHealthChecker.reconnectAsync(indyConnection).join();
+        assertEquals(requestCount, transport.getRequestCount());
+        assertEquals(1, health.getReconnectAttempts());
+
+        indyConnector.closeIndyConnections();
+    }
+
+    @Test
+    public void testIndyHealthCheckerReconnect() throws Exception {
+
+        InMemoryIndyTransport transport = new InMemoryIndyTransport(Duration.ZERO, Duration.ZERO, 0);
+        transport.setExecutor(Runnable::run);
+        IndyConnector indyConnector = indyConnector(transport);
+        indyConnector.openIndyConnections(true, false, true);
+        IndyConnection indyConnection = indyConnector.getIndyConnections().get("_");
+        IndyPoolHandles poolHandles = indyConnection.getPoolHandles();
+        IndyTransport.WalletHandle walletHandle = indyConnection.getWalletHandle();
+
+        IndyHealthChecker indyHealthChecker = new IndyHealthChecker(indyConnector::getIndyConnections, Duration.ofMinutes(1), Duration.ofSeconds(10), 2);
+        indyHealthChecker.reconnectAsync(indyConnection).join();
+
+        assertNotSame(poolHandles, indyConnection.getPoolHandles());
+        assertSame(walletHandle, indyConnection.getWalletHandle());
+        assertEquals(1, indyConnection.getHealth().getReconnectCount());
+        assertEquals(1, transport.getOpenPoolCount());
+        assertEquals(1, transport.getOpenWalletCount());
+
+        indyConnector.closeIndyConnections();
+    }
+
+    @Test
+    public void testIndyHealthCheckerReconnectJoined() throws Exception {
+
+        CompletableFuture<Void> gate = new CompletableFuture<>();
+        AtomicInteger openPoolCount = new AtomicInteger();
+        InMemoryIndyTransport transport = new InMemoryIndyTransport(Duration.ZERO, Duration.ZERO, 0) {
+            @Override
+            public CompletableFuture<PoolHandle> openPoolLedger(String poolConfigName) {
+                if (openPoolCount.incrementAndGet() > 1) return gate.thenCompose(x -> super.openPoolLedger(poolConfigName));
+                return super.openPoolLedger(poolConfigName);
+            }
+        };
+        transport.setExecutor(Runnable::run);
+        IndyConnector indyConnector = indyConnector(transport);
+        indyConnector.openIndyConnections(true, false, true);
+        IndyConnection indyConnection = indyConnector.getIndyConnections().get("_");
+
+        // a second reconnection joins the running one
+
+        IndyHealthChecker indyHealthChecker = new IndyHealthChecker(indyConnector::getIndyConnections, Duration.ofMinutes(1), Duration.ofSeconds(10), 2);
+        CompletableFuture<Void> reconnect1 = indyHealthChecker.reconnectAsync(indyConnection);
+        CompletableFuture<Void> reconnect2 = indyHealthChecker.reconnectAsync(indyConnection);
+        assertTrue(indyConnection.getHealth().isReconnecting());
+        assertFalse(reconnect1.isDone());
+        assertFalse(reconnect2.isDone());
+
+        gate.complete(null);
+        reconnect1.join();
+        reconnect2.join();
+        assertEquals(2, openPoolCount.get());
+        assertEquals(1, indyConnection.getHealth().getReconnectCount());
+        assertFalse(indyConnection.getHealth().isReconnecting());
+
+        indyConnector.closeIndyConnections();
+    }
+
+    @Test
+    public void testIndyConnectorReconnectOnGet() throws Exception {
+
+        InMemoryIndyTransport transport = new InMemoryIndyTransport(Duration.ofMillis(20), Duration.ZERO, 0);
+        IndyConnector indyConnector = indyConnector(transport);
+        indyConnector.setHealthCheckInterval(Duration.ofHours(1));
+        indyConnector.setHealthCheckTimeout(Duration.ofSeconds(10));
+        indyConnector.openIndyConnections(true, false, true);
+        assertNotNull(indyConnector.getIndyHealthChecker());
+        IndyConnection indyConnection = indyConnector.getIndyConnections().get("_");
+        IndyTransport.WalletHandle walletHandle = indyConnection.getWalletHandle();
+
+        // the pool is lost while the wallet stays open, so only the pool is reconnected, and the caller gets an open connection
+
+        losePool(transport, indyConnection);
+        assertFalse(indyConnection.isOpen());
+
+        assertSame(indyConnection, indyConnector.getIndyConnection("_", true, true, false));
+        assertTrue(indyConnection.isOpen());
+        assertSame(walletHandle, indyConnection.getWalletHandle());
+        assertEquals(1, indyConnection.getHealth().getReconnectCount());
+
+        indyConnector.closeIndyConnections();
+        assertEquals(0, transport.getOpenPoolCount());
+    }
+
+    @Test
+    public void testIndyConnectorReopenOnGetAfterFailedReconnect() throws Exception {
+
+        InMemoryIndyTransport transport = new InMemoryIndyTransport(Duration.ZERO, Duration.ZERO, 0) {
+            @Override
+            public CompletableFuture<PoolHandle> openPoolLedger(String poolConfigName) {
+                if (poolConfigName.endsWith("-b")) return CompletableFuture.failedFuture(new IllegalStateException("Pool is unreachable"));
+                return super.openPoolLedger(poolConfigName);
+            }
+        };
+        IndyConnector indyConnector = indyConnector(transport);
+        indyConnector.setHealthCheckInterval(Duration.ofHours(1));
+        indyConnector.setHealthCheckTimeout(Duration.ofSeconds(10));
+        indyConnector.openIndyConnections(true, false, true);
+        IndyConnection indyConnection = indyConnector.getIndyConnections().get("_");
+
+        // the pool cannot be reconnected, so the whole connection is re-opened
+
+        losePool(transport, indyConnection);
+        assertSame(indyConnection, indyConnector.getIndyConnection("_", true, true, false));
+        assertTrue(indyConnection.isOpen());
+        assertEquals(1, indyConnection.getHealth().getReconnectAttempts());
+        assertEquals(0, indyConnection.getHealth().getReconnectCount());
+        assertEquals(1, transport.getOpenPoolCount());
+        assertEquals(1, transport.getOpenWalletCount());
+
+        // while the backoff has not passed, the connection is re-opened right away
+
+        losePool(transport, indyConnection);
+        assertSame(indyConnection, indyConnector.getIndyConnection("_", true, true, false));
+        assertTrue(indyConnection.isOpen());
+        assertEquals(1, indyConnection.getHealth().getReconnectAttempts());
+
+        indyConnector.closeIndyConnections();
+        assertEquals(0, transport.getOpenPoolCount());
+    }
+}
@@ -0,0 +1,178 @@
+package com.danubetech;
+
+import com.danubetech.libindy.InMemoryIndyTransport;
+import com.danubetech.libindy.IndyConnection;
+import com.danubetech.libindy.IndyConnectionException;
+import com.danubetech.libindy.IndyConnector;
+import com.danubetech.libindy.IndyRequestWindow;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IndyRequestWindowTest {
+
+    @Test
+    public void testIndyRequestWindow() {
+
+        IndyRequestWindow requestWindow = new IndyRequestWindow(2);
+        List<CompletableFuture<String>> calls = new ArrayList<>();
+        List<CompletableFuture<String>> results = new ArrayList<>();
+        for (int i=0; i<4; i++) calls.add(new CompletableFuture<>());
+
+        // submitting to a full window returns right away, and the calls are started in submission order
+
+        AtomicInteger started = new AtomicInteger();
+        for (int i=0; i<4; i++) {
+            CompletableFuture<String> call = calls.get(i);
+            results.add(requestWindow.submit(() -> {
+                started.incrementAndGet();
+                return call;
+            }));
+        }
+        assertEquals(2, started.get());
+        assertEquals(2, requestWindow.getInFlight());
+        assertEquals(2, requestWindow.getWaiting());
+        assertEquals(2, requestWindow.getQueuedCount());
+
+        calls.get(0).complete("0");
+        assertEquals("0", results.get(0).join());
+        assertEquals(3, started.get());
+        assertEquals(1, requestWindow.getWaiting());
+
+        calls.get(2).completeExceptionally(new IllegalStateException("Request failed"));
+        assertTrue(results.get(2).isCompletedExceptionally());
+        assertEquals(4, started.get());
+
+        calls.get(1).complete("1");
+        calls.get(3).complete("3");
+        assertEquals("1", results.get(1).join());
+        assertEquals("3", results.get(3).join());
+        assertEquals(0, requestWindow.getInFlight());
+        assertEquals(0, requestWindow.getWaiting());
+        assertEquals(4, requestWindow.getSubmitCount());
+    }
+
+    @Test
+    public void testIndyRequestWindowSubmitFromCompletion() {
+
+        // a call that is submitted from the completion of a call in flight is queued, instead of waiting for the thread that would make room
+
+        IndyRequestWindow requestWindow = new IndyRequestWindow(1);
+        CompletableFuture<String> call1 = new CompletableFuture<>();
+        CompletableFuture<String> call2 = new CompletableFuture<>();
+
+        CompletableFuture<String> result1 = requestWindow.submit(() -> call1);
+        CompletableFuture<String> result2 = requestWindow.submit(() -> call2);
+        CompletableFuture<String> result3 = result1.thenCompose(x -> requestWindow.submit(() -> CompletableFuture.completedFuture(x + "3")));
+
+        call1.complete("1");
+        assertEquals("1", result1.join());
+        assertFalse(result3.isDone());
+        assertEquals(1, requestWindow.getWaiting());
+
+        call2.complete("2");
+        assertEquals("2", result2.join());
+        assertEquals("13", result3.join());
+        assertEquals(0, requestWindow.getInFlight());
+    }
+
+    @Test
+    public void testIndyRequestWindowManyCompletedCalls() {
+
+        IndyRequestWindow requestWindow = new IndyRequestWindow(1);
+        CompletableFuture<String> call = new CompletableFuture<>();
+        CompletableFuture<String> result = requestWindow.submit(() -> call);
+
+        List<CompletableFuture<Integer>> results = new ArrayList<>();
+        for (int i=0; i<10000; i++) {
+            int value = i;
+            results.add(requestWindow.submit(() -> CompletableFuture.completedFuture(value)));
+        }
+        assertEquals(10000, requestWindow.getWaiting());
+
+        call.complete("0");
+        assertEquals("0", result.join());
+        for (int i=0; i<10000; i++) assertEquals(Integer.valueOf(i), results.get(i).join());
+        assertEquals(0, requestWindow.getInFlight());
+    }
+
+    @Test
+    public void testIndyRequestWindowMaxWait() throws Exception {
+
+        IndyRequestWindow requestWindow = new IndyRequestWindow(1);
+        CompletableFuture<String> call = new CompletableFuture<>();
+        CompletableFuture<String> result = requestWindow.submit(() -> call);
+
+        AtomicInteger started = new AtomicInteger();
+        CompletableFuture<String> waitingResult = requestWindow.submit(() -> {
+            started.incrementAndGet();
+            return CompletableFuture.completedFuture("late");
+        }, Duration.ofMillis(50));
+
+        ExecutionException ex = assertThrows(ExecutionException.class, () -> waitingResult.get(10, TimeUnit.SECONDS));
+        assertTrue(ex.getCause() instanceof IndyConnectionException, String.valueOf(ex.getCause()));
+        assertTrue(ex.getCause().getMessage().contains("Timeout"), ex.getCause().getMessage());
+        assertEquals(0, requestWindow.getWaiting());
+
+        call.complete("0");
+        assertEquals("0", result.join());
+        assertEquals(0, started.get());
+        assertEquals(0, requestWindow.getInFlight());
+    }
+
+    @Test
+    public void testIndyRequestWindowHeldAfterTimeout() throws Exception {
+
+        CompletableFuture<Void> gate = new CompletableFuture<>();
+        AtomicInteger submitted = new AtomicInteger();
+        InMemoryIndyTransport transport = new InMemoryIndyTransport(Duration.ZERO, Duration.ZERO, 0) {
+            @Override
+            public CompletableFuture<String> submitRequest(PoolHandle poolHandle, String request) {
+                if (submitted.incrementAndGet() == 1) return gate.thenCompose(x -> super.submitRequest(poolHandle, request));
+                return super.submitRequest(poolHandle, request);
+            }
+        };
+        transport.setExecutor(Runnable::run);
+        IndyConnector indyConnector = new IndyConnector();
+        indyConnector.setTransport(transport);
+        indyConnector.setPoolConfigs("_;./sovrin/_.txn");
+        indyConnector.setPoolVersions("_;2");
+        indyConnector.setWalletNames("_;w_");
+        indyConnector.setSubmitterDidSeeds("_;_");
+        indyConnector.setRequestWindows("_;1");
+        indyConnector.setTimeouts("SUBMIT;0.1");
+        indyConnector.openIndyConnections(true, false, true);
+        IndyConnection indyConnection = indyConnector.getIndyConnection("_");
+        IndyRequestWindow requestWindow = indyConnection.getRequestWindow();
+
+        // the first request times out for its caller, but keeps its place in the window while it is still in flight on the pool
+
+        CompletableFuture<String> result1 = indyConnection.submitRequestAsync("{\"reqId\":1,\"operation\":{\"type\":\"1\",\"dest\":\"did1\"}}");
+        ExecutionException ex = assertThrows(ExecutionException.class, () -> result1.get(10, TimeUnit.SECONDS));
+        assertTrue(ex.getCause().getMessage().contains("Timeout"), ex.getCause().getMessage());
+
+        CompletableFuture<String> result2 = indyConnection.submitRequestAsync("{\"reqId\":2,\"operation\":{\"type\":\"1\",\"dest\":\"did2\"}}");
+        assertEquals(1, submitted.get());
+        assertEquals(1, requestWindow.getInFlight());
+        assertEquals(1, requestWindow.getWaiting());
+        assertEquals(1, indyConnection.getInFlightRequests());
+        assertFalse(result2.isDone());
+
+        gate.complete(null);
+        assertEquals(2, new JSONObject(result2.get(10, TimeUnit.SECONDS)).getJSONObject("result").getInt("reqId"));
+        assertEquals(2, submitted.get());
+        assertEquals(0, requestWindow.getInFlight());
+        assertEquals(0, indyConnection.getInFlightRequests());
+
+        indyConnector.closeIndyConnections();
+    }
+}
@@ -0,0 +1,80 @@
+package com.danubetech;
+
+import com.danubetech.libindy.LedgerReadCache;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LedgerReadCacheTest {
+
+    private static final LedgerReadCache.Key NYM1 = new LedgerReadCache.Key(LedgerReadCache.GET_NYM, "did1", null);
+    private static final LedgerReadCache.Key NYM2 = new LedgerReadCache.Key(LedgerReadCache.GET_NYM, "did2", null);
+    private static final LedgerReadCache.Key NYM3 = new LedgerReadCache.Key(LedgerReadCache.GET_NYM, "did3", null);
+    private static final LedgerReadCache.Key ATTRIB1 = new LedgerReadCache.Key(LedgerReadCache.GET_ATTRIB, "did1", "endpoint|null|null");
+
+    @Test
+    public void testLedgerReadCacheEviction() {
+
+        LedgerReadCache ledgerReadCache = new LedgerReadCache(2, Duration.ofHours(1));
+
+        ledgerReadCache.put(NYM1, "nym1");
+        ledgerReadCache.put(NYM2, "nym2");
+        assertEquals("nym1", ledgerReadCache.get(NYM1));
+        ledgerReadCache.put(NYM3, "nym3");
+
+        assertEquals(2, ledgerReadCache.size());
+        assertEquals("nym1", ledgerReadCache.get(NYM1));
+        assertNull(ledgerReadCache.get(NYM2));
+        assertEquals("nym3", ledgerReadCache.get(NYM3));
+        assertEquals(1, ledgerReadCache.getEvictionCount());
+        assertEquals(3, ledgerReadCache.getHitCount());
+        assertEquals(1, ledgerReadCache.getMissCount());
+    }
+
+    @Test
+    public void testLedgerReadCacheExpiration() {
+
+        LedgerReadCache ledgerReadCache = new LedgerReadCache(10, Duration.ZERO);
+
+        ledgerReadCache.put(NYM1, "nym1");
+        assertNull(ledgerReadCache.get(NYM1));
+        assertEquals(1, ledgerReadCache.getExpirationCount());
+        assertEquals(0, ledgerReadCache.size());
+    }
+
+    @Test
+    public void testLedgerReadCacheInvalidation() {
+
+        LedgerReadCache ledgerReadCache = new LedgerReadCache(10, Duration.ofHours(1));
+
+        ledgerReadCache.put(NYM1, "nym1");
+        ledgerReadCache.put(ATTRIB1, "attrib1");
+        ledgerReadCache.put(NYM2, "nym2");
+        ledgerReadCache.invalidate("did1");
+
+        assertNull(ledgerReadCache.get(NYM1));
+        assertNull(ledgerReadCache.get(ATTRIB1));
+        assertEquals("nym2", ledgerReadCache.get(NYM2));
+
+        ledgerReadCache.invalidateAll();
+        assertEquals(0, ledgerReadCache.size());
+    }
+
+    @Test
+    public void testLedgerReadCacheGeneration() {
+
+        LedgerReadCache ledgerReadCache = new LedgerReadCache(10, Duration.ofHours(1));
+
+        // a read that was started before an invalidation does not put its result back
+
+        long generation = ledgerReadCache.getGeneration();
+        ledgerReadCache.invalidate("did1");
+        assertFalse(ledgerReadCache.put(NYM1, "nym1", generation));
+        assertNull(ledgerReadCache.get(NYM1));
+
+        assertTrue(ledgerReadCache.put(NYM1, "nym1", ledgerReadCache.getGeneration()));
+        assertEquals("nym1", ledgerReadCache.get(NYM1));
+    }
+}
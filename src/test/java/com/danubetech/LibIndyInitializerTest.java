@@ -0,0 +1,44 @@
+package com.danubetech;
+
+import com.danubetech.libindy.LibIndyInitializer;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LibIndyInitializerTest {
+
+    @Test
+    public void testLibIndyInitializerRuntimeConfig() {
+
+        LibIndyInitializer libIndyInitializer = new LibIndyInitializer(null);
+        assertNull(libIndyInitializer.getRuntimeConfig());
+
+        libIndyInitializer.setCollectBacktrace(false);
+        JSONObject runtimeConfig = new JSONObject(libIndyInitializer.getRuntimeConfig());
+        assertFalse(runtimeConfig.getBoolean("collect_backtrace"));
+        assertFalse(runtimeConfig.has("crypto_thread_pool_size"));
+
+        libIndyInitializer.setCryptoThreadPoolSize(4);
+        runtimeConfig = new JSONObject(libIndyInitializer.getRuntimeConfig());
+        assertEquals(4, runtimeConfig.getInt("crypto_thread_pool_size"));
+        assertFalse(runtimeConfig.getBoolean("collect_backtrace"));
+
+        libIndyInitializer.setCollectBacktrace(null);
+        runtimeConfig = new JSONObject(libIndyInitializer.getRuntimeConfig());
+        assertEquals(4, runtimeConfig.getInt("crypto_thread_pool_size"));
+        assertFalse(runtimeConfig.has("collect_backtrace"));
+    }
+
+    @Test
+    public void testLibIndyInitializerRuntimeConfigInvalidPoolSize() {
+
+        LibIndyInitializer libIndyInitializer = new LibIndyInitializer(null);
+
+        libIndyInitializer.setCryptoThreadPoolSize(0);
+        assertThrows(IllegalArgumentException.class, libIndyInitializer::getRuntimeConfig);
+
+        libIndyInitializer.setCryptoThreadPoolSize(-1);
+        assertThrows(IllegalArgumentException.class, libIndyInitializer::getRuntimeConfig);
+    }
+}
@@ -0,0 +1,109 @@
+package com.danubetech;
+
+import com.danubetech.libindy.InMemoryIndyTransport;
+import com.danubetech.libindy.IndyConnection;
+import com.danubetech.libindy.IndyConnectionException;
+import com.danubetech.libindy.IndyConnector;
+import com.danubetech.libindy.PoolVersionDispatcher;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PoolVersionDispatcherTest {
+
+    @Test
+    public void testPoolVersionDispatcher() {
+
+        List<Integer> setPoolVersions = new ArrayList<>();
+        PoolVersionDispatcher poolVersionDispatcher = new PoolVersionDispatcher(poolVersion -> {
+            setPoolVersions.add(poolVersion);
+            return CompletableFuture.completedFuture(null);
+        });
+
+        CompletableFuture<String> call1 = new CompletableFuture<>();
+        CompletableFuture<String> call2 = new CompletableFuture<>();
+        CompletableFuture<String> call3 = new CompletableFuture<>();
+        CompletableFuture<String> call4 = new CompletableFuture<>();
+
+        CompletableFuture<String> result1 = poolVersionDispatcher.dispatch(2, () -> call1);
+        CompletableFuture<String> result2 = poolVersionDispatcher.dispatch(2, () -> call2);
+        CompletableFuture<String> result3 = poolVersionDispatcher.dispatch(1, () -> call3);
+        CompletableFuture<String> result4 = poolVersionDispatcher.dispatch(2, () -> call4);
+
+        assertEquals(List.of(2), setPoolVersions);
+        assertEquals(2, poolVersionDispatcher.getRunningCalls());
+        assertEquals(2, poolVersionDispatcher.getPendingCalls());
+
+        call1.complete("1");
+        assertEquals("1", result1.join());
+        assertEquals(List.of(2), setPoolVersions);
+
+        call2.complete("2");
+        assertEquals("2", result2.join());
+        assertEquals(List.of(2, 1), setPoolVersions);
+        assertEquals(Integer.valueOf(1), poolVersionDispatcher.getCurrentPoolVersion());
+        assertFalse(result4.isDone());
+
+        call3.complete("3");
+        assertEquals("3", result3.join());
+        assertEquals(List.of(2, 1, 2), setPoolVersions);
+
+        call4.complete("4");
+        assertEquals("4", result4.join());
+        assertEquals(0, poolVersionDispatcher.getRunningCalls());
+        assertEquals(0, poolVersionDispatcher.getPendingCalls());
+        assertEquals(3, poolVersionDispatcher.getSwitchCount());
+    }
+
+    @Test
+    public void testPoolVersionDispatcherTimeout() {
+
+        PoolVersionDispatcher poolVersionDispatcher = new PoolVersionDispatcher(poolVersion -> CompletableFuture.completedFuture(null));
+        poolVersionDispatcher.setDispatchTimeout(Duration.ofMillis(50));
+
+        CompletableFuture<String> hung = new CompletableFuture<>();
+        CompletableFuture<String> result1 = poolVersionDispatcher.dispatch(1, () -> hung);
+        CompletableFuture<String> result2 = poolVersionDispatcher.dispatch(2, () -> CompletableFuture.completedFuture("2"));
+
+        CompletionException ex = assertThrows(CompletionException.class, result1::join);
+        assertTrue(ex.getCause() instanceof IndyConnectionException);
+        assertEquals("2", result2.join());
+        assertEquals(Integer.valueOf(2), poolVersionDispatcher.getCurrentPoolVersion());
+
+        hung.complete("1");
+        assertEquals(0, poolVersionDispatcher.getRunningCalls());
+    }
+
+    @Test
+    public void testPoolVersionDispatcherReleasedBeforeSubmit() throws Exception {
+
+        InMemoryIndyTransport transport = new InMemoryIndyTransport(Duration.ZERO, Duration.ZERO, 0);
+        transport.addNym("did1", "verkey1");
+        IndyConnector indyConnector = new IndyConnector();
+        indyConnector.setTransport(transport);
+        indyConnector.setPoolConfigs("_;./sovrin/mainnet.txn;test;./sovrin/test.txn");
+        indyConnector.setPoolVersions("_;2;test;1");
+        indyConnector.setWalletNames("_;w1;test;w2");
+        indyConnector.setSubmitterDidSeeds("_;_;test;_");
+        indyConnector.openIndyConnections(true, false, true);
+        IndyConnection indyConnection = indyConnector.getIndyConnection("test");
+
+        // a slow read on a version 1 network does not hold the protocol version while it waits for the ledger
+
+        transport.setLatency(Duration.ofSeconds(2));
+        CompletableFuture<String> slowRead = indyConnection.getNymAsync("did1");
+        PoolVersionDispatcher poolVersionDispatcher = transport.getPoolVersionDispatcher();
+        assertFalse(slowRead.isDone());
+        assertEquals(0, poolVersionDispatcher.getRunningCalls());
+        assertTrue(poolVersionDispatcher.dispatch(2, () -> CompletableFuture.completedFuture("2")).isDone());
+
+        assertNotNull(slowRead.get());
+        indyConnector.closeIndyConnections();
+    }
+}
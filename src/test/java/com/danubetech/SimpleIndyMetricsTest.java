@@ -0,0 +1,161 @@
+package com.danubetech;
+
+import com.danubetech.libindy.InMemoryIndyTransport;
+import com.danubetech.libindy.IndyConfigDiff;
+import com.danubetech.libindy.IndyConnection;
+import com.danubetech.libindy.IndyConnectionException;
+import com.danubetech.libindy.IndyConnector;
+import com.danubetech.libindy.IndyMetrics;
+import com.danubetech.libindy.SimpleIndyMetrics;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SimpleIndyMetricsTest {
+
+    private static IndyConnector indyConnector(InMemoryIndyTransport transport, IndyMetrics indyMetrics) {
+
+        IndyConnector indyConnector = new IndyConnector();
+        indyConnector.setTransport(transport);
+        indyConnector.setPoolConfigs("_;./sovrin/_.txn");
+        indyConnector.setPoolVersions("_;2");
+        indyConnector.setWalletNames("_;w_");
+        indyConnector.setSubmitterDidSeeds("_;_");
+        indyConnector.setIndyMetrics(indyMetrics);
+        return indyConnector;
+    }
+
+    @Test
+    public void testSimpleIndyMetrics() throws Exception {
+
+        InMemoryIndyTransport transport = new InMemoryIndyTransport(Duration.ZERO, Duration.ZERO, 0);
+        transport.addNym("did1", "verkey1");
+        SimpleIndyMetrics indyMetrics = new SimpleIndyMetrics();
+        IndyConnector indyConnector = indyConnector(transport, indyMetrics);
+
+        // every step of opening is timed
+
+        indyConnector.openIndyConnections(true, false, true);
+        for (String operation : List.of(IndyMetrics.CREATE_POOL_CONFIG, IndyMetrics.OPEN_POOL, IndyMetrics.OPEN_WALLET, IndyMetrics.CREATE_SUBMITTER_DID)) {
+            SimpleIndyMetrics.Timer timer = indyMetrics.getOperationTimer("_", operation);
+            assertNotNull(timer, operation);
+            assertEquals(1, timer.getCount(), operation);
+            assertEquals(0, timer.getFailureCount(), operation);
+        }
+        assertNull(indyMetrics.getOperationTimer("_", IndyMetrics.RETRIEVE_TAA));
+
+        // ledger calls are timed per request type, including failed ones
+
+        IndyConnection indyConnection = indyConnector.getIndyConnection("_");
+        indyConnection.getNym("did1");
+        SimpleIndyMetrics.Timer getNymTimer = indyMetrics.getLedgerCallTimer("_", "GET_NYM");
+        assertEquals(1, getNymTimer.getCount());
+        assertEquals(0, getNymTimer.getFailureCount());
+        assertTrue(getNymTimer.getPercentileMillis(0.99) >= getNymTimer.getPercentileMillis(0.5));
+
+        transport.setFailureRate(1.0);
+        assertThrows(IndyConnectionException.class, () -> indyConnection.getNym("did2"));
+        assertEquals(2, getNymTimer.getCount());
+        assertEquals(1, getNymTimer.getFailureCount());
+        transport.setFailureRate(0);
+
+        // re-opening is counted
+
+        indyConnection.close();
+        indyConnector.getIndyConnection("_", true, true, false);
+        assertEquals(1, indyMetrics.getReopenCount("_"));
+        assertEquals(0, indyMetrics.getReconnectCount("_"));
+        assertEquals(2, indyMetrics.getOperationTimer("_", IndyMetrics.OPEN_POOL).getCount());
+
+        indyConnector.closeIndyConnections();
+    }
+
+    @Test
+    public void testSimpleIndyMetricsInFlightGauge() throws Exception {
+
+        InMemoryIndyTransport transport = new InMemoryIndyTransport(Duration.ofMillis(200), Duration.ZERO, 0);
+        transport.addNym("did1", "verkey1");
+        transport.addNym("did2", "verkey2");
+        SimpleIndyMetrics indyMetrics = new SimpleIndyMetrics();
+        IndyConnector indyConnector = indyConnector(transport, indyMetrics);
+
+        indyConnector.openIndyConnections(true, false, true);
+        IndyConnection indyConnection = indyConnector.getIndyConnection("_");
+        assertEquals(0, indyMetrics.getInFlight("_"));
+
+        CompletableFuture<String> getNym1 = indyConnection.getNymAsync("did1");
+        CompletableFuture<String> getNym2 = indyConnection.getNymAsync("did2");
+        assertEquals(2, indyMetrics.getInFlight("_"));
+
+        CompletableFuture.allOf(getNym1, getNym2).get();
+        assertEquals(0, indyMetrics.getInFlight("_"));
+
+        indyConnector.closeIndyConnections();
+    }
+
+    @Test
+    public void testSimpleIndyMetricsInFlightGaugeAfterDiff() throws Exception {
+
+        InMemoryIndyTransport transport = new InMemoryIndyTransport(Duration.ofMillis(200), Duration.ZERO, 0);
+        transport.addNym("did1", "verkey1");
+        SimpleIndyMetrics indyMetrics = new SimpleIndyMetrics();
+        IndyConnector indyConnector = indyConnector(transport, indyMetrics);
+        indyConnector.openIndyConnections(true, false, true);
+        IndyConnection indyConnection = indyConnector.getIndyConnection("_");
+
+        // comparing with the configuration does not take over the gauge of the connection in use
+
+        IndyConfigDiff indyConfigDiff = indyConnector.diffConfiguration();
+        assertTrue(indyConfigDiff.isEmpty());
+
+        CompletableFuture<String> getNym = indyConnection.getNymAsync("did1");
+        assertEquals(1, indyMetrics.getInFlight("_"));
+        getNym.get();
+        assertEquals(0, indyMetrics.getInFlight("_"));
+
+        indyConnector.closeIndyConnections();
+    }
+
+    @Test
+    public void testIndyEvents() throws Exception {
+
+        InMemoryIndyTransport transport = new InMemoryIndyTransport(Duration.ZERO, Duration.ZERO, 0);
+        transport.addNym("did1", "verkey1");
+        IndyConnector indyConnector = indyConnector(transport, IndyMetrics.NOOP);
+
+        Path file = Files.createTempFile("indy", ".jfr");
+        List<RecordedEvent> events;
+        try (Recording recording = new Recording()) {
+            recording.enable("com.danubetech.libindy.Operation");
+            recording.enable("com.danubetech.libindy.LedgerCall");
+            recording.enable("com.danubetech.libindy.Reopen");
+            recording.start();
+
+            indyConnector.openIndyConnections(true, false, true);
+            IndyConnection indyConnection = indyConnector.getIndyConnection("_");
+            indyConnection.getNym("did1");
+            indyConnection.close();
+            indyConnector.getIndyConnection("_", true, true, false);
+            indyConnector.closeIndyConnections();
+
+            recording.stop();
+            recording.dump(file);
+            events = RecordingFile.readAllEvents(file);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+
+        assertTrue(events.stream().anyMatch(event -> "com.danubetech.libindy.Operation".equals(event.getEventType().getName()) && IndyMetrics.OPEN_POOL.equals(event.getString("operation")) && event.getBoolean("success")));
+        assertTrue(events.stream().anyMatch(event -> "com.danubetech.libindy.LedgerCall".equals(event.getEventType().getName()) && "GET_NYM".equals(event.getString("requestType")) && "_".equals(event.getString("network"))));
+        assertEquals(1, events.stream().filter(event -> "com.danubetech.libindy.Reopen".equals(event.getEventType().getName()) && ! event.getBoolean("background")).count());
+    }
+}